@@ -0,0 +1,103 @@
+// This class walks through a student loan month by month and produces the
+// amortization schedule: how much of each payment is interest, how much is
+// principal, any extra payment, and the balance left afterwards.
+//
+// It only keeps the current month's numbers in primitive fields. Calling
+// next() moves to the following month, so the controller can write each row
+// out as soon as it is computed without ever building a list of rows.
+//
+// Extra payments can be made monthly, or weekly. Weekly extras are added up
+// for the weeks that fall in each month (some months have 4, some have 5).
+
+package com.gradgoals;
+
+class AmortizationSchedule {
+
+    // Longest loan we will produce a schedule for
+    static final int MAX_YEARS = 50;
+
+    private final double monthlyRate;
+    private final double scheduledPayment;
+    private final double extraAmount;
+    private final boolean weeklyExtra;
+    private final int maxMonths;
+
+    // state of the current row
+    private int month = 0;
+    private double balance;
+    private double payment;
+    private double interest;
+    private double principal;
+    private double extra;
+
+    // running totals
+    private double totalInterest = 0;
+    private double totalPaid = 0;
+
+    AmortizationSchedule(double principal, double apr, int years, double extraAmount, boolean weeklyExtra) {
+        if (principal < 0 || !Double.isFinite(principal)) {
+            throw new IllegalArgumentException("Principal must be zero or more.");
+        }
+        if (apr < 0 || !Double.isFinite(apr)) {
+            throw new IllegalArgumentException("APR must be zero or more.");
+        }
+        if (years <= 0 || years > MAX_YEARS) {
+            throw new IllegalArgumentException("Years must be between 1 and " + MAX_YEARS + ".");
+        }
+        if (extraAmount < 0 || !Double.isFinite(extraAmount)) {
+            throw new IllegalArgumentException("Extra payment must be zero or more.");
+        }
+        this.balance = principal;
+        this.monthlyRate = apr / 100.0 / 12.0;
+        this.scheduledPayment = BudgetToolCode.loanPayment(principal, apr, years);
+        this.extraAmount = extraAmount;
+        this.weeklyExtra = weeklyExtra;
+        this.maxMonths = years * 12;
+    }
+
+    // Moves to the next month. Returns false once the loan is paid off.
+    boolean next() {
+        if (balance <= 0.005 || month >= maxMonths) {
+            return false;
+        }
+        month++;
+
+        interest = balance * monthlyRate;
+        double owed = balance + interest;
+
+        payment = Math.min(scheduledPayment, owed);
+        extra = Math.min(extraFor(month), owed - payment);
+        principal = payment + extra - interest;
+
+        // The scheduled payment always clears the loan in the final month;
+        // this just absorbs any floating point leftover.
+        balance = month == maxMonths ? 0 : owed - payment - extra;
+        if (balance < 0.005) {
+            balance = 0;
+        }
+
+        totalInterest += interest;
+        totalPaid += payment + extra;
+        return true;
+    }
+
+    // Extra payment made during the given month
+    private double extraFor(int m) {
+        if (!weeklyExtra) {
+            return extraAmount;
+        }
+        // number of week boundaries that land in this month (52 weeks over 12 months)
+        int weeks = (52 * m) / 12 - (52 * (m - 1)) / 12;
+        return extraAmount * weeks;
+    }
+
+    int getMonth() { return month; }
+    double getPayment() { return Money.round(payment); }
+    double getInterest() { return Money.round(interest); }
+    double getPrincipal() { return Money.round(principal); }
+    double getExtra() { return Money.round(extra); }
+    double getBalance() { return Money.round(balance); }
+    double getScheduledPayment() { return Money.round(scheduledPayment); }
+    double getTotalInterest() { return Money.round(totalInterest); }
+    double getTotalPaid() { return Money.round(totalPaid); }
+}
@@ -0,0 +1,193 @@
+// This class grades a typed answer against a question's correct answer.
+//
+// The old way normalized both strings on every check (trim, then strip "$"
+// and ","), which made 3-4 new Strings per answer, and it still said no to
+// answers that mean the same number, like "1200.00" or "$1.2k" for 1200.
+//
+// Now each question's answer is compiled once, when the question is created
+// (so when the bank is loaded):
+//   - numbers become a whole number of millionths (1200 -> 1,200,000,000),
+//     and the user's answer is read straight out of its characters into the
+//     same form. It accepts "$", "," between digits, a decimal point,
+//     a "k" (thousand) or "m" (million) at the end, a "%" sign, and spaces
+//     around it all. Numbers within half a cent of the answer count.
+//   - anything else is a list of accepted texts (split on "|" in the bank
+//     file), compared ignoring case and extra spaces.
+// Checking an answer only walks its characters; it never builds a String.
+
+package com.gradgoals;
+
+import java.util.Locale;
+
+final class AnswerMatcher {
+
+    // What parseMillionths returns when the text isn't a number we understand
+    static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private static final int DIGITS = 6;           // we keep 6 decimal places
+    private static final long TOLERANCE = 5_000;   // half a cent, in millionths
+
+    private static final long[] POW10 = new long[19];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final long number;      // expected value in millionths, or NOT_A_NUMBER
+    private final String[] texts;   // accepted answers (lowercase, single spaces) when it's not a number
+
+    private AnswerMatcher(long number, String[] texts) {
+        this.number = number;
+        this.texts = texts;
+    }
+
+    static AnswerMatcher compile(String correctAnswer) {
+        if (correctAnswer == null) {
+            return new AnswerMatcher(NOT_A_NUMBER, new String[0]);
+        }
+        long number = parseMillionths(correctAnswer);
+        if (number != NOT_A_NUMBER) {
+            return new AnswerMatcher(number, null);
+        }
+        String[] texts = correctAnswer.split("\\|");
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = texts[i].trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        }
+        return new AnswerMatcher(NOT_A_NUMBER, texts);
+    }
+
+    boolean matches(CharSequence answer) {
+        if (answer == null) {
+            return false;
+        }
+        if (texts == null) {
+            long given = parseMillionths(answer);
+            return given != NOT_A_NUMBER && Math.abs(given - number) <= TOLERANCE;
+        }
+        for (String text : texts) {
+            if (sameText(answer, text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Compares ignoring case, spaces at the ends, and runs of spaces in the middle
+    private static boolean sameText(CharSequence answer, String text) {
+        int end = answer.length();
+        while (end > 0 && Character.isWhitespace(answer.charAt(end - 1))) {
+            end--;
+        }
+        int i = skipSpaces(answer, 0, end);
+        int j = 0;
+        while (i < end) {
+            char c = answer.charAt(i);
+            if (Character.isWhitespace(c)) {
+                c = ' ';
+                i = skipSpaces(answer, i, end);
+            } else {
+                i++;
+            }
+            if (j == text.length() || Character.toLowerCase(c) != text.charAt(j)) {
+                return false;
+            }
+            j++;
+        }
+        return j == text.length();
+    }
+
+    // Reads a number like "1,200", "$1200.00", "-$5", "1.2k", "45%" as millionths.
+    // Returns NOT_A_NUMBER for anything else (or numbers too big to hold).
+    static long parseMillionths(CharSequence s) {
+        int n = s.length();
+        int i = skipSpaces(s, 0, n);
+
+        boolean negative = false;
+        if (i < n && s.charAt(i) == '-') {
+            negative = true;
+            i = skipSpaces(s, i + 1, n);
+        }
+        if (i < n && s.charAt(i) == '$') {
+            i = skipSpaces(s, i + 1, n);
+        }
+        if (!negative && i < n && s.charAt(i) == '-') { // "$-5"
+            negative = true;
+            i++;
+        }
+
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int decimals = 0;
+        boolean dot = false;
+        boolean afterDigit = false;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 18) {
+                    return NOT_A_NUMBER; // wouldn't fit in a long
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa > 0) {
+                    digits++; // leading zeros don't use up room
+                }
+                if (dot) {
+                    decimals++;
+                }
+                anyDigit = true;
+                afterDigit = true;
+            } else if (c == ',' && !dot && afterDigit) {
+                afterDigit = false; // thousands separator
+            } else if (c == '.' && !dot) {
+                dot = true;
+                afterDigit = false;
+            } else {
+                break;
+            }
+        }
+        if (!anyDigit) {
+            return NOT_A_NUMBER;
+        }
+
+        int shift = DIGITS - decimals;
+        i = skipSpaces(s, i, n);
+        if (i < n) {
+            char c = s.charAt(i);
+            if (c == 'k' || c == 'K') {
+                shift += 3;
+            } else if (c == 'm' || c == 'M') {
+                shift += 6;
+            } else if (c != '%') {
+                return NOT_A_NUMBER;
+            }
+            i = skipSpaces(s, i + 1, n);
+        }
+        if (i != n) {
+            return NOT_A_NUMBER; // something else after the number
+        }
+
+        long value;
+        if (shift >= 0) {
+            if (shift >= POW10.length || mantissa > Long.MAX_VALUE / POW10[shift]) {
+                return NOT_A_NUMBER;
+            }
+            value = mantissa * POW10[shift];
+        } else if (-shift >= POW10.length) {
+            value = 0; // so many decimals that it rounds to nothing
+        } else {
+            // more than 6 decimals: round to the nearest millionth
+            long unit = POW10[-shift];
+            value = (mantissa + unit / 2) / unit;
+        }
+        return negative ? -value : value;
+    }
+
+    private static int skipSpaces(CharSequence s, int i, int end) {
+        while (i < end && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
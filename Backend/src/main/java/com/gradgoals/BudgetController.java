@@ -5,12 +5,27 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;       
 import org.springframework.http.ResponseEntity;   
 import org.springframework.web.bind.annotation.*; 
-
-// Java utilities and file handling
-import java.nio.file.Files;       
-import java.nio.file.Path;        
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// JSON / CSV writers used for streamed responses
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+// Java utilities and input/output streams
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;              
-import java.util.concurrent.ConcurrentHashMap; 
 
 @RestController                         // Marks this Java class as a REST API
 @RequestMapping("/budget")              // Every endpoint begins with /budget
@@ -18,15 +33,47 @@ import java.util.concurrent.ConcurrentHashMap;
 public class BudgetController {
 
     // Stores each user's budget separately
-    // Key = userId, Value = that user's BudgetToolCode
-    private final Map<String, BudgetToolCode> userBudgets = new ConcurrentHashMap<>();
+    // Key = userId, Value = that user's BudgetToolCode. Users who have been
+    // idle for a while are moved to disk and loaded back when needed (see UserStateCache).
+    private final UserStateCache.Region<BudgetToolCode> userBudgets;
+
+    // What read requests see for a user with no budget (never written to)
+    private static final BudgetToolCode NO_BUDGET = new BudgetToolCode();
+
+    // Shared factory for the streamed JSON responses (thread-safe)
+    private static final JsonFactory JSON = new JsonFactory();
+
+    // Saves every change so budgets survive a restart (disabled when created with new)
+    private final StateJournal journal;
+
+    // Kinds of changes written to the journal
+    private static final byte ADD_ITEM = 1;
+    private static final byte REMOVE_ITEM = 2;
+
+    public BudgetController() {
+        this(StateJournal.disabled());
+    }
+
+    public BudgetController(StateJournal journal) {
+        this(journal, UserStateCache.unbounded(journal));
+    }
 
-    // Retrieves a user's budget; creates one if it doesn't exist yet
+    @Autowired
+    public BudgetController(StateJournal journal, UserStateCache cache) {
+        this.journal = journal;
+        this.userBudgets = cache.region("budgets", BudgetToolCode::new, new BudgetCodec(), BudgetToolCode::estimatedBytes);
+        journal.register(new BudgetState());
+    }
+
+    // Retrieves a user's budget for reading; users without one get an empty
+    // budget and nothing is stored for them
     private BudgetToolCode getBudget(String userId) {
-        if (userId == null || userId.isEmpty()) {
-            return userBudgets.computeIfAbsent("guest", k -> new BudgetToolCode());
-        }
-        return userBudgets.computeIfAbsent(userId, k -> new BudgetToolCode());
+        BudgetToolCode budget = userBudgets.peek(userKey(userId));
+        return budget == null ? NO_BUDGET : budget;
+    }
+
+    private static String userKey(String userId) {
+        return userId == null || userId.isEmpty() ? "guest" : userId;
     }
 
     // Returns all budget items for a given user
@@ -52,24 +99,77 @@ public class BudgetController {
     @PostMapping("/add-item")
     public String addItem(@RequestBody Map<String, Object> body) {
 
-        String userId = (String) body.get("userId");
-        BudgetToolCode budget = getBudget(userId);
+        String userId = userKey((String) body.get("userId"));
 
         String category = (String) body.get("category");
-        double amount = Double.parseDouble(body.get("amount").toString());
+        long amountCents = Money.parse(body.get("amount"));
         String type = (String) body.get("type");
 
-        budget.addItem(category, amount, type);
+        // creates the budget if this is the user's first item
+        BudgetToolCode budget = userBudgets.acquire(userId);
+        try {
+            BudgetToolCode.BudgetItem item = budget.addItemCents(category, amountCents, type);
+            journal.append(budget.stamp(), StateJournal.BUDGET, ADD_ITEM, userId, out -> writeItem(out, item));
+        } finally {
+            budget.stamp().exit();
+        }
 
         return "Item added!";
     }
 
+    // Adds many items at once from an uploaded CSV or JSON array.
+    // CSV needs a header row with category, amount and type; JSON is an array
+    // of objects with the same fields. The body is parsed row by row as it
+    // streams in, valid rows are added in one batch, and the response lists
+    // which rows were rejected and why.
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importItems(@RequestParam String userId,
+                                                           HttpServletRequest request) throws IOException {
+
+        // parsed before the user is looked up, so a bad upload doesn't create
+        // (or reload) a budget
+        BudgetImporter importer = new BudgetImporter();
+
+        String contentType = request.getContentType();
+        try {
+            if (contentType != null && contentType.toLowerCase().contains("json")) {
+                importer.readJson(request.getInputStream());
+            } else {
+                importer.readCsv(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", "Could not read import: " + e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        BudgetToolCode budget = userBudgets.acquire(userKey(userId));
+        try {
+            importer.applyTo(budget);
+            for (BudgetToolCode.BudgetItem item : importer.accepted()) {
+                journal.append(budget.stamp(), StateJournal.BUDGET, ADD_ITEM, userKey(userId), out -> writeItem(out, item));
+            }
+        } finally {
+            budget.stamp().exit();
+        }
+        return ResponseEntity.ok(importer.report());
+    }
+
     // Deletes a specific item by ID for a user
     @DeleteMapping("/delete/{id}")
     public String deleteItem(@PathVariable String id, @RequestParam String userId) {
 
-        BudgetToolCode budget = getBudget(userId);
-        budget.removeItem(id);
+        if (userBudgets.peek(userKey(userId)) == null) {
+            return "Deleted!"; // nothing to delete, and no budget gets created for it
+        }
+        BudgetToolCode budget = userBudgets.acquire(userKey(userId));
+        try {
+            if (budget.removeItem(id)) {
+                journal.append(budget.stamp(), StateJournal.BUDGET, REMOVE_ITEM, userKey(userId), out -> out.writeUTF(id));
+            }
+        } finally {
+            budget.stamp().exit();
+        }
 
         return "Deleted!";
     }
@@ -80,14 +180,37 @@ public class BudgetController {
 
         BudgetToolCode budget = getBudget(userId);
 
+        // One read of the running totals so all three numbers match each other
+        BudgetToolCode.Totals totals = budget.getTotals();
+
         Map<String, Double> summary = new HashMap<>();
-        summary.put("income", budget.getTotalIncome());
-        summary.put("expenses", budget.getTotalExpenses());
-        summary.put("net", budget.getNetMonthly());
+        summary.put("income", totals.getIncome());
+        summary.put("expenses", totals.getExpenses());
+        summary.put("net", totals.getNet());
 
         return summary;
     }
 
+    // Returns income and expense totals for each category the user has items in
+    @GetMapping("/categories")
+    public List<Map<String, Object>> categoryBreakdown(@RequestParam String userId) {
+
+        BudgetToolCode budget = getBudget(userId);
+        List<Map<String, Object>> result = new ArrayList<>();
+
+        for (Map.Entry<String, BudgetToolCode.CategoryTotal> e : budget.getTotals().getCategories().entrySet()) {
+            BudgetToolCode.CategoryTotal total = e.getValue();
+            Map<String, Object> row = new HashMap<>();
+            row.put("category", e.getKey());
+            row.put("income", total.getIncome());
+            row.put("expenses", total.getExpenses());
+            row.put("items", total.getCount());
+            result.add(row);
+        }
+
+        return result;
+    }
+
     // Calculates credit card payoff timeline (not stored — just calculated)
     @PostMapping("/credit-card")
     public Map<String, Object> creditCard(@RequestBody Map<String, Object> body) {
@@ -110,6 +233,67 @@ public class BudgetController {
         return response;
     }
 
+    // Calculates the payoff for every APR/payment combination in one request,
+    // so the UI can show "what if I paid more" without calling /credit-card in a loop.
+    // Body: { "balance": 5000, "aprs": [15.99, 19.99], "payments": [100, 150, 200] }
+    // months[i][j] and totalInterest[i][j] belong to aprs[i] and payments[j];
+    // a month count of -1 means that combination never pays the card off.
+    @PostMapping("/credit-card/sweep")
+    public ResponseEntity<Map<String, Object>> creditCardSweep(@RequestBody PayoffSweepRequest body) {
+
+        PayoffSweep sweep;
+        try {
+            sweep = new PayoffSweep(body.getBalance(), body.getAprs(), body.getPayments()).run();
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("balance", body.getBalance());
+        response.put("aprs", body.getAprs());
+        response.put("payments", body.getPayments());
+        response.put("months", sweep.months);
+        response.put("totalInterest", sweep.totalInterest);
+
+        return ResponseEntity.ok(response);
+    }
+
+    // Plans how to pay off several debts with one monthly budget (not stored).
+    // Body: { "debts": [ { "name": "Visa", "balance": 3200, "apr": 24.99, "minPayment": 90 }, ... ],
+    //         "monthlyBudget": 900, "strategy": "avalanche" | "snowball" | "custom",
+    //         "order": ["Visa", "Car"] }   <- only needed for "custom"
+    @PostMapping("/payoff-plan")
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<Map<String, Object>> payoffPlan(@RequestBody Map<String, Object> body) {
+
+        try {
+            List<DebtPayoffPlanner.Debt> debts = new ArrayList<>();
+            List<Map<String, Object>> rawDebts = (List<Map<String, Object>>) body.get("debts");
+            if (rawDebts != null) {
+                for (Map<String, Object> raw : rawDebts) {
+                    debts.add(new DebtPayoffPlanner.Debt(
+                            (String) raw.get("name"),
+                            ((Number) raw.get("balance")).doubleValue(),
+                            ((Number) raw.get("apr")).doubleValue(),
+                            ((Number) raw.get("minPayment")).doubleValue()));
+                }
+            }
+            double budget = ((Number) body.get("monthlyBudget")).doubleValue();
+            String strategy = (String) body.get("strategy");
+            List<String> order = (List<String>) body.get("order");
+
+            return ResponseEntity.ok(new DebtPayoffPlanner(debts, budget, strategy, order).plan());
+        } catch (IllegalArgumentException | NullPointerException | ClassCastException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e instanceof IllegalArgumentException
+                    ? e.getMessage()
+                    : "Each debt needs name, balance, apr and minPayment, plus a monthlyBudget.");
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     // Calculates student loan monthly payment (also not stored)
     @PostMapping("/student-loan")
     public Map<String, Object> studentLoan(@RequestBody Map<String, Object> body) {
@@ -128,21 +312,207 @@ public class BudgetController {
         return response;
     }
 
+    // Streams the month-by-month amortization schedule for a student loan.
+    // Body: { "principal": 30000, "apr": 5.5, "years": 10,
+    //         "extraPayment": 25, "extraFrequency": "weekly", "format": "csv" }
+    // extraPayment/extraFrequency ("monthly" or "weekly") and format ("json" or "csv") are optional.
+    // Each row is computed from the previous one and written out immediately,
+    // so even a 30-year schedule uses the same small amount of memory.
+    @PostMapping("/student-loan/schedule")
+    public ResponseEntity<StreamingResponseBody> studentLoanSchedule(@RequestBody Map<String, Object> body) {
+
+        double principal = ((Number) body.get("principal")).doubleValue();
+        double apr = ((Number) body.get("apr")).doubleValue();
+        int years = ((Number) body.get("years")).intValue();
+        double extra = body.get("extraPayment") == null ? 0 : ((Number) body.get("extraPayment")).doubleValue();
+        boolean weekly = "weekly".equalsIgnoreCase((String) body.get("extraFrequency"));
+        boolean csv = "csv".equalsIgnoreCase((String) body.get("format"));
+
+        // Validate up front so bad input gets a 400 instead of a half-written stream
+        try {
+            new AmortizationSchedule(principal, apr, years, extra, weekly);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody stream = out -> {
+            AmortizationSchedule schedule = new AmortizationSchedule(principal, apr, years, extra, weekly);
+            if (csv) {
+                writeScheduleCsv(schedule, out);
+            } else {
+                writeScheduleJson(schedule, out);
+            }
+        };
+
+        if (csv) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=loan_schedule.csv")
+                    .contentType(MediaType.parseMediaType("text/csv"))
+                    .body(stream);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(stream);
+    }
+
+    // Writes the schedule as { "monthlyPayment": ..., "rows": [...], "summary": {...} }
+    private void writeScheduleJson(AmortizationSchedule schedule, OutputStream out) throws IOException {
+        JsonGenerator json = JSON.createGenerator(out);
+        json.writeStartObject();
+        json.writeNumberField("monthlyPayment", schedule.getScheduledPayment());
+        json.writeArrayFieldStart("rows");
+        while (schedule.next()) {
+            json.writeStartObject();
+            json.writeNumberField("month", schedule.getMonth());
+            json.writeNumberField("payment", schedule.getPayment());
+            json.writeNumberField("principal", schedule.getPrincipal());
+            json.writeNumberField("interest", schedule.getInterest());
+            json.writeNumberField("extra", schedule.getExtra());
+            json.writeNumberField("balance", schedule.getBalance());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeObjectFieldStart("summary");
+        json.writeNumberField("months", schedule.getMonth());
+        json.writeNumberField("totalInterest", schedule.getTotalInterest());
+        json.writeNumberField("totalPaid", schedule.getTotalPaid());
+        json.writeEndObject();
+        json.writeEndObject();
+        json.flush();
+    }
+
+    // Writes the schedule as CSV rows: Month,Payment,Principal,Interest,Extra,Balance
+    private void writeScheduleCsv(AmortizationSchedule schedule, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setRecordSeparator('\n').build());
+        printer.printRecord("Month", "Payment", "Principal", "Interest", "Extra", "Balance");
+        while (schedule.next()) {
+            printer.print(schedule.getMonth());
+            printer.print(schedule.getPayment());
+            printer.print(schedule.getPrincipal());
+            printer.print(schedule.getInterest());
+            printer.print(schedule.getExtra());
+            printer.print(schedule.getBalance());
+            printer.println();
+        }
+        printer.flush();
+    }
+
     // Exports the user's budget data as a CSV file (credit card / loan removed)
+    // The CSV is written straight into the HTTP response as it is generated:
+    // no temp file on disk and no full copy in memory, so large ledgers start
+    // downloading right away.
     @GetMapping("/export")
-    public ResponseEntity<byte[]> exportCsv(@RequestParam String userId) throws Exception {
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestParam String userId) {
 
         BudgetToolCode budget = getBudget(userId);
 
-        // Generate CSV and get its path
-        Path csvFile = budget.exportCsv();
-
-        // Read file into byte array
-        byte[] data = Files.readAllBytes(csvFile);
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            budget.writeCsv(writer);
+            writer.flush();
+        };
 
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=budget_export.csv")
                 .contentType(MediaType.parseMediaType("text/csv"))
-                .body(data);
+                .body(body);
+    }
+
+    // ---------------------------------------------------------
+    // PERSISTENCE (see StateJournal)
+    // ---------------------------------------------------------
+
+    private static void writeItem(DataOutput out, BudgetToolCode.BudgetItem item) throws IOException {
+        out.writeUTF(item.getId());
+        out.writeUTF(item.getCategory());
+        out.writeLong(item.getAmountCents());
+        out.writeUTF(item.getType());
+    }
+
+    private static BudgetToolCode.BudgetItem readItem(BudgetToolCode budget, DataInput in) throws IOException {
+        String id = in.readUTF();
+        // categories repeat across millions of items, so share one copy of each
+        String category = in.readUTF().intern();
+        long cents = in.readLong();
+        String type = "income".equals(in.readUTF()) ? "income" : "expense";
+        return budget.new BudgetItem(id, category, cents, type);
+    }
+
+    // A whole budget: item count, then each item
+    private static class BudgetCodec implements UserStateCache.Codec<BudgetToolCode> {
+
+        @Override
+        public void write(BudgetToolCode budget, DataOutput out) throws IOException {
+            List<BudgetToolCode.BudgetItem> items = budget.getAllItems();
+            out.writeInt(items.size());
+            for (BudgetToolCode.BudgetItem item : items) {
+                writeItem(out, item);
+            }
+        }
+
+        @Override
+        public BudgetToolCode read(DataInput in) throws IOException {
+            BudgetToolCode budget = new BudgetToolCode();
+            int count = in.readInt();
+            List<BudgetToolCode.BudgetItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(readItem(budget, in));
+            }
+            budget.addItems(items);
+            return budget;
+        }
+    }
+
+    // Lets the journal save and restore every user's budget
+    private class BudgetState implements StateJournal.Participant {
+
+        private final BudgetCodec codec = new BudgetCodec();
+
+        @Override
+        public byte domain() {
+            return StateJournal.BUDGET;
+        }
+
+        @Override
+        public Map<String, BudgetToolCode> states() {
+            return userBudgets.live();
+        }
+
+        @Override
+        public void writeState(StateJournal.Journaled state, DataOutput out) throws IOException {
+            codec.write((BudgetToolCode) state, out);
+        }
+
+        @Override
+        public StateJournal.Journaled readState(String userId, DataInput in) throws IOException {
+            BudgetToolCode budget = codec.read(in);
+            userBudgets.restore(userId, budget);
+            return budget;
+        }
+
+        @Override
+        public Iterable<String> spilledUsers() {
+            return userBudgets.spilledUsers();
+        }
+
+        @Override
+        public byte[] spilledState(String userId) throws IOException {
+            return userBudgets.spilledState(userId);
+        }
+
+        @Override
+        public void snapshotWritten() {
+            userBudgets.snapshotWritten();
+        }
+
+        @Override
+        public StateJournal.Journaled replay(String userId, byte op, DataInput in) throws IOException {
+            BudgetToolCode budget = userBudgets.getOrCreate(userId);
+            if (op == ADD_ITEM) {
+                budget.addItems(List.of(readItem(budget, in)));
+            } else if (op == REMOVE_ITEM) {
+                budget.removeItem(in.readUTF());
+            }
+            return budget;
+        }
     }
 }
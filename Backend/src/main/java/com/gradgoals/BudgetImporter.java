@@ -0,0 +1,185 @@
+// This class reads many budget items at once for the bulk import endpoint.
+// It accepts either a CSV file (header: category,amount,type) or a JSON
+// array of {"category": ..., "amount": ..., "type": ...} objects.
+//
+// Both formats are parsed one row at a time straight from the request
+// stream, so the upload is never held in memory as a whole. Every row is
+// checked; good rows are collected and handed to the budget in one batch,
+// bad rows are reported back with their row number and what was wrong.
+
+package com.gradgoals;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+class BudgetImporter {
+
+    // Only the first errors are listed in the response; the rest are just counted
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreHeaderCase(true)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .build();
+
+    private final BudgetToolCode budget;
+    private final List<BudgetToolCode.BudgetItem> accepted = new ArrayList<>();
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+    private int rejected = 0;
+    private int row = 0;
+
+    BudgetImporter(BudgetToolCode budget) {
+        this.budget = budget;
+    }
+
+    // Parses without a user's budget yet; the rows go in with applyTo()
+    BudgetImporter() {
+        this(new BudgetToolCode());
+    }
+
+    // Reads CSV rows from the reader. The first line must be the header.
+    BudgetImporter readCsv(Reader in) throws IOException {
+        try (CSVParser parser = CSVParser.parse(in, CSV_FORMAT)) {
+            Map<String, Integer> header = parser.getHeaderMap();
+            for (String column : new String[] {"category", "amount", "type"}) {
+                if (header == null || !header.containsKey(column)) {
+                    throw new IllegalArgumentException("CSV header must include category, amount and type.");
+                }
+            }
+            for (CSVRecord record : parser) {
+                row++;
+                if (!record.isConsistent()) {
+                    reject("Expected " + header.size() + " columns but found " + record.size() + ".");
+                    continue;
+                }
+                accept(record.get("category"), record.get("amount"), record.get("type"));
+            }
+        }
+        return this;
+    }
+
+    // Reads a JSON array of item objects token by token
+    BudgetImporter readJson(InputStream in) throws IOException {
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("JSON body must be an array of items.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("JSON array is not closed.");
+                }
+                row++;
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    reject("Each item must be a JSON object.");
+                    continue;
+                }
+
+                String category = null;
+                String amount = null;
+                String type = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value.isStructStart()) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                    switch (field) {
+                        case "category": category = text; break;
+                        case "amount": amount = text; break;
+                        case "type": type = text; break;
+                        default: break; // unknown fields are ignored
+                    }
+                }
+                accept(category, amount, type);
+            }
+        }
+        return this;
+    }
+
+    // Checks one row and either keeps it or records why it was rejected
+    private void accept(String category, String amountText, String type) {
+        if (category == null || category.isBlank()) {
+            reject("Category is required.");
+            return;
+        }
+        if (type == null || !(type.equalsIgnoreCase("income") || type.equalsIgnoreCase("expense"))) {
+            reject("Type must be 'income' or 'expense'.");
+            return;
+        }
+        if (amountText == null || amountText.isBlank()) {
+            reject("Amount is required.");
+            return;
+        }
+
+        long cents;
+        try {
+            cents = Money.parse(amountText);
+        } catch (IllegalArgumentException e) {
+            reject("Amount is not a number: " + amountText);
+            return;
+        }
+        if (cents <= 0) {
+            reject("Amount must be a positive number.");
+            return;
+        }
+
+        accepted.add(budget.new BudgetItem(UUID.randomUUID().toString(), category.trim(), cents, type));
+    }
+
+    private void reject(String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            Map<String, Object> error = new LinkedHashMap<>();
+            error.put("row", row);
+            error.put("error", message);
+            errors.add(error);
+        }
+    }
+
+    // Adds every accepted row to the budget in one batch
+    void apply() {
+        applyTo(budget);
+    }
+
+    // Same, but into the given budget (the controller's copy may have been
+    // reloaded from disk while the upload was being read, see UserStateCache)
+    void applyTo(BudgetToolCode target) {
+        target.addItems(accepted);
+    }
+
+    // The rows that passed validation
+    List<BudgetToolCode.BudgetItem> accepted() {
+        return accepted;
+    }
+
+    // Summary sent back to the frontend
+    Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("imported", accepted.size());
+        report.put("rejected", rejected);
+        report.put("errors", errors);
+        return report;
+    }
+}
@@ -0,0 +1,221 @@
+// This class holds the budget items for one user.
+// Items are kept in the order they were added and are also indexed by id,
+// so adding, looking up and deleting an item are all O(1).
+//
+// Readers never lock and never copy: every write publishes a new Snapshot
+// (the item array, how many slots are in use, a version number, and the
+// running totals), and a reader just grabs the latest one. Deleting an item
+// only stamps it with the version it was removed in, so older snapshots that
+// are still being read keep seeing it. Once more than half of the array is
+// deleted items, the writer copies the live ones into a fresh array.
+
+package com.gradgoals;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+class BudgetItemStore {
+
+    // Compaction is skipped for tiny stores, the copy is not worth it there
+    private static final int MIN_COMPACT_SIZE = 64;
+
+    // id -> item, used for O(1) lookup and delete
+    private final Map<String, BudgetToolCode.BudgetItem> byId = new ConcurrentHashMap<>();
+
+    // Writers take this lock; readers only read the volatile snapshot
+    private final Object writeLock = new Object();
+
+    // The array writers append into. Slots below snapshot.count never change
+    // in a given array, which is what makes the lock-free reads safe.
+    private BudgetToolCode.BudgetItem[] slots = new BudgetToolCode.BudgetItem[16];
+
+    private volatile Snapshot snapshot = new Snapshot(slots, 0, 0, 0, BudgetToolCode.Totals.EMPTY);
+
+    // Adds an item at the end of the store
+    void add(BudgetToolCode.BudgetItem item) {
+        synchronized (writeLock) {
+            Snapshot s = snapshot;
+            if (byId.putIfAbsent(item.getId(), item) != null) {
+                throw new IllegalArgumentException("Duplicate budget item id: " + item.getId());
+            }
+            append(item, s.count);
+            snapshot = new Snapshot(slots, s.count + 1, s.version + 1, s.live + 1, s.totals.apply(item, 1));
+        }
+    }
+
+    // Adds a batch of items with a single snapshot publish, so readers see
+    // either none of the batch or all of it
+    void addAll(List<BudgetToolCode.BudgetItem> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Snapshot s = snapshot;
+            int count = s.count;
+            for (int i = 0; i < batch.size(); i++) {
+                BudgetToolCode.BudgetItem item = batch.get(i);
+                if (byId.putIfAbsent(item.getId(), item) != null) {
+                    // undo the ids we already claimed; the slots past s.count are not visible yet
+                    for (int j = 0; j < i; j++) {
+                        byId.remove(batch.get(j).getId());
+                    }
+                    throw new IllegalArgumentException("Duplicate budget item id: " + item.getId());
+                }
+                append(item, count++);
+            }
+            snapshot = new Snapshot(slots, count, s.version + 1, s.live + batch.size(), s.totals.applyAll(batch, 1));
+        }
+    }
+
+    // Removes an item by id; returns the removed item or null if it was not found
+    BudgetToolCode.BudgetItem remove(String id) {
+        synchronized (writeLock) {
+            BudgetToolCode.BudgetItem item = byId.remove(id);
+            if (item == null) {
+                return null;
+            }
+            Snapshot s = snapshot;
+            long version = s.version + 1;
+            item.removedIn = version;
+
+            int live = s.live - 1;
+            if (s.count >= MIN_COMPACT_SIZE && live < s.count / 2) {
+                compact(s, live, version, s.totals.apply(item, -1));
+            } else {
+                snapshot = new Snapshot(slots, s.count, version, live, s.totals.apply(item, -1));
+            }
+            return item;
+        }
+    }
+
+    // Looks up an item by id (null if it does not exist)
+    BudgetToolCode.BudgetItem get(String id) {
+        return byId.get(id);
+    }
+
+    // The current state of the store; safe to read from any thread
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // Writes an item into the next free slot, growing the array if needed.
+    // Growing makes a new array; snapshots that point at the old one are unaffected.
+    private void append(BudgetToolCode.BudgetItem item, int index) {
+        if (index == slots.length) {
+            BudgetToolCode.BudgetItem[] bigger = new BudgetToolCode.BudgetItem[slots.length * 2];
+            System.arraycopy(slots, 0, bigger, 0, index);
+            slots = bigger;
+        }
+        slots[index] = item;
+    }
+
+    // Copies the live items into a new array so deleted ones stop taking up space
+    private void compact(Snapshot s, int live, long version, BudgetToolCode.Totals totals) {
+        BudgetToolCode.BudgetItem[] fresh = new BudgetToolCode.BudgetItem[Math.max(16, live * 2)];
+        int n = 0;
+        for (int i = 0; i < s.count; i++) {
+            BudgetToolCode.BudgetItem item = s.items[i];
+            if (item.removedIn > version) {
+                fresh[n++] = item;
+            }
+        }
+        slots = fresh;
+        snapshot = new Snapshot(fresh, n, version, live, totals);
+    }
+
+    // A read-only, point-in-time view of the store. It works like a normal
+    // List so controllers can loop over it, but nothing is copied to build it.
+    static final class Snapshot extends AbstractList<BudgetToolCode.BudgetItem> {
+        private final BudgetToolCode.BudgetItem[] items;
+        private final int count;     // slots in use (live + deleted)
+        private final long version;
+        private final int live;      // items visible in this snapshot
+        private final BudgetToolCode.Totals totals;
+        // just the live items, copied out the first time get(int) needs them
+        private volatile BudgetToolCode.BudgetItem[] dense;
+
+        Snapshot(BudgetToolCode.BudgetItem[] items, int count, long version, int live, BudgetToolCode.Totals totals) {
+            this.items = items;
+            this.count = count;
+            this.version = version;
+            this.live = live;
+            this.totals = totals;
+        }
+
+        // Running totals that match exactly the items in this snapshot
+        BudgetToolCode.Totals getTotals() {
+            return totals;
+        }
+
+        private boolean visible(BudgetToolCode.BudgetItem item) {
+            return item.removedIn > version;
+        }
+
+        @Override
+        public int size() {
+            return live;
+        }
+
+        // O(1). When the snapshot has deleted slots, the first call copies
+        // the live items into their own array (once per snapshot), so a loop
+        // over get(i) stays O(n) instead of skipping deleted slots every time.
+        @Override
+        public BudgetToolCode.BudgetItem get(int index) {
+            if (index < 0 || index >= live) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + live);
+            }
+            if (live == count) {
+                return items[index];
+            }
+            BudgetToolCode.BudgetItem[] d = dense;
+            if (d == null) {
+                // two readers may both build it; they get the same items
+                d = new BudgetToolCode.BudgetItem[live];
+                int n = 0;
+                for (int i = 0; i < count; i++) {
+                    if (visible(items[i])) {
+                        d[n++] = items[i];
+                    }
+                }
+                if (n != live) {
+                    throw new IllegalStateException("Snapshot is inconsistent");
+                }
+                dense = d;
+            }
+            return d[index];
+        }
+
+        @Override
+        public Iterator<BudgetToolCode.BudgetItem> iterator() {
+            return new Iterator<>() {
+                private int next = advance(0);
+
+                private int advance(int from) {
+                    while (from < count && !visible(items[from])) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < count;
+                }
+
+                @Override
+                public BudgetToolCode.BudgetItem next() {
+                    if (next >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    BudgetToolCode.BudgetItem item = items[next];
+                    next = advance(next + 1);
+                    return item;
+                }
+            };
+        }
+    }
+}
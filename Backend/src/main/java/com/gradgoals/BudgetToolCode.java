@@ -3,18 +3,14 @@
 
 package com.gradgoals;
 
-// These imports allow the class to work with files, dates, lists, math operations, etc.
-import java.io.BufferedWriter;
+// These imports allow the class to write CSV, work with lists, math operations, etc.
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 
-public class BudgetToolCode {
+public class BudgetToolCode implements StateJournal.Journaled {
 
     // These small classes represent different types of financial data
     // that the budgeting tool needs to store.
@@ -22,25 +18,122 @@ public class BudgetToolCode {
     public class BudgetItem {
         private String id;
         private String category;
-        private double amount;
+        private long amountCents;   // stored as whole cents so totals add up exactly
         private String type;  // income or expense
 
+        // Store version this item was deleted in; snapshots older than that still see it
+        volatile long removedIn = Long.MAX_VALUE;
+
         // Creates a new budget entry for income or expense
         public BudgetItem(String category, double amount, String type) {
-            this.id = UUID.randomUUID().toString(); // unique identifier
+            this(UUID.randomUUID().toString(), category, Money.fromDollars(amount), type);
+        }
+
+        // Creates an entry with a known id and an amount already in cents
+        BudgetItem(String id, String category, long amountCents, String type) {
+            this.id = id;
             this.category = category;
-            this.amount = amount;
+            this.amountCents = amountCents;
             this.type = type.toLowerCase();
         }
 
         public String getId() { return id; }
         public String getCategory() { return category; }
-        public double getAmount() { return amount; }
+        public double getAmount() { return Money.toDollars(amountCents); }
+        public long getAmountCents() { return amountCents; }
         public String getType() { return type; }
     }
 
-    // Stores all income and expense items for the current user session
-    private final List<BudgetItem> items = new ArrayList<>();
+    // Stores all income and expense items for the current user session.
+    // The store keeps them in insertion order, indexed by id, and hands out
+    // lock-free snapshots. Each snapshot also carries the running totals
+    // (income, expenses, per-category), which the store updates on every
+    // add/remove so the summary endpoints never have to walk the items.
+    private final BudgetItemStore items = new BudgetItemStore();
+
+    // Immutable snapshot of the running totals
+    public static class Totals {
+        static final Totals EMPTY = new Totals(0, 0, CategoryTotals.EMPTY);
+
+        // all totals are in cents, so they never drift however many items come and go
+        private final long income;
+        private final long expenses;
+        private final CategoryTotals categories;
+
+        Totals(long income, long expenses, CategoryTotals categories) {
+            this.income = income;
+            this.expenses = expenses;
+            this.categories = categories;
+        }
+
+        public double getIncome() { return Money.toDollars(income); }
+        public double getExpenses() { return Money.toDollars(expenses); }
+        public double getNet() { return Money.toDollars(income - expenses); }
+        public long getIncomeCents() { return income; }
+        public long getExpensesCents() { return expenses; }
+        public Map<String, CategoryTotal> getCategories() { return categories; }
+
+        // Returns a new Totals with one item added (sign = 1) or taken away (sign = -1).
+        // Only the item's category is replaced; the others are shared (see CategoryTotals).
+        Totals apply(BudgetItem item, int sign) {
+            long delta = sign * item.getAmountCents();
+            boolean isIncome = item.getType().equals("income");
+            CategoryTotal current = categories.getOrDefault(item.getCategory(), CategoryTotal.ZERO);
+            CategoryTotal updated = current.plus(isIncome ? delta : 0, isIncome ? 0 : delta, sign);
+            return new Totals(isIncome ? income + delta : income, isIncome ? expenses : expenses + delta,
+                    categories.with(item.getCategory(), updated.getCount() == 0 ? null : updated));
+        }
+
+        // Same as apply, but for a whole batch of items at once (one copy of the category map)
+        Totals applyAll(List<BudgetItem> batch, int sign) {
+            long newIncome = income;
+            long newExpenses = expenses;
+            Map<String, CategoryTotal> next = new LinkedHashMap<>(categories);
+
+            for (BudgetItem item : batch) {
+                long delta = sign * item.getAmountCents();
+                boolean isIncome = item.getType().equals("income");
+                if (isIncome) {
+                    newIncome += delta;
+                } else {
+                    newExpenses += delta;
+                }
+
+                CategoryTotal current = next.getOrDefault(item.getCategory(), CategoryTotal.ZERO);
+                CategoryTotal updated = current.plus(isIncome ? delta : 0, isIncome ? 0 : delta, sign);
+                if (updated.getCount() == 0) {
+                    next.remove(item.getCategory());
+                } else {
+                    next.put(item.getCategory(), updated);
+                }
+            }
+
+            return new Totals(newIncome, newExpenses, CategoryTotals.of(next));
+        }
+    }
+
+    // Income and expense totals for a single category
+    public static class CategoryTotal {
+        static final CategoryTotal ZERO = new CategoryTotal(0, 0, 0);
+
+        private final long income;     // cents
+        private final long expenses;   // cents
+        private final int count; // how many items are in this category
+
+        CategoryTotal(long income, long expenses, int count) {
+            this.income = income;
+            this.expenses = expenses;
+            this.count = count;
+        }
+
+        public double getIncome() { return Money.toDollars(income); }
+        public double getExpenses() { return Money.toDollars(expenses); }
+        public int getCount() { return count; }
+
+        CategoryTotal plus(long incomeDelta, long expenseDelta, int countDelta) {
+            return new CategoryTotal(income + incomeDelta, expenses + expenseDelta, count + countDelta);
+        }
+    }
 
     // Adds a new income or expense to the budget
     public void addItem(String category, double amount, String type) {
@@ -50,80 +143,112 @@ public class BudgetToolCode {
         items.add(new BudgetItem(category, amount, type));
     }
 
-    // Removes an item using its ID
-    public void removeItem(String id) {
-        items.removeIf(i -> i.getId().equals(id));
+    // Same as addItem, but the amount is already in cents (used by the controller).
+    // Returns the new item so the controller can log it.
+    public BudgetItem addItemCents(String category, long amountCents, String type) {
+        if (!type.equalsIgnoreCase("income") && !type.equalsIgnoreCase("expense")) {
+            throw new IllegalArgumentException("Type must be 'income' or 'expense'.");
+        }
+        BudgetItem item = new BudgetItem(UUID.randomUUID().toString(), category, amountCents, type);
+        items.add(item);
+        return item;
     }
 
-    // Returns all budget items
-    public List<BudgetItem> getAllItems() {
-        return new ArrayList<>(items);
+    // Adds a batch of already-validated items in one step: readers see either
+    // none or all of them, and the totals are recomputed once for the batch
+    public void addItems(List<BudgetItem> batch) {
+        for (BudgetItem item : batch) {
+            if (!item.getType().equals("income") && !item.getType().equals("expense")) {
+                throw new IllegalArgumentException("Type must be 'income' or 'expense'.");
+            }
+        }
+        items.addAll(batch);
     }
 
-    // Adds up all income items
-    public double getTotalIncome() {
-        return items.stream()
-                .filter(i -> i.getType().equals("income"))
-                .mapToDouble(BudgetItem::getAmount)
-                .sum();
+    // Removes an item using its ID; returns false if there was no such item
+    public boolean removeItem(String id) {
+        return items.remove(id) != null;
     }
 
-    // Adds up all expense items
-    public double getTotalExpenses() {
-        return items.stream()
-                .filter(i -> i.getType().equals("expense"))
-                .mapToDouble(BudgetItem::getAmount)
-                .sum();
+    // Lock + last saved change for this budget (see StateJournal)
+    private final StateJournal.Stamp stamp = new StateJournal.Stamp();
+
+    @Override
+    public StateJournal.Stamp stamp() {
+        return stamp;
     }
 
-    // Money left after expenses
-    public double getNetMonthly() {
-        return round(getTotalIncome() - getTotalExpenses());
+    // Rough heap size of this budget, used by UserStateCache to stay under its
+    // memory ceiling: the store and stamp, plus an item with its UUID and strings
+    long estimatedBytes() {
+        return 400 + 200L * items.snapshot().size();
     }
 
-    // Prepares text so it is valid inside a CSV file
-    private String csvEscape(String s) {
-        if (s == null) return "";
-        boolean needQuotes = s.contains(",") || s.contains("\"") || s.contains("\n");
-        String escaped = s.replace("\"", "\"\"");
-        return needQuotes ? "\"" + escaped + "\"" : escaped;
+    // Looks up a single item by its ID (null if it doesn't exist)
+    public BudgetItem getItem(String id) {
+        return items.get(id);
     }
 
-    // Creates a CSV file containing all budget information,
-    // WITHOUT credit card or student loan sections
-    public Path exportCsv() throws IOException {
+    // Returns all budget items as a read-only snapshot; later changes to the
+    // budget do not show up in a list that was already returned
+    public List<BudgetItem> getAllItems() {
+        return items.snapshot();
+    }
 
-        // Generates a timestamped filename
-        String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        Path file = Path.of("budget_export_" + ts + ".csv");
+    // Returns the current running totals (income, expenses and per-category breakdown)
+    public Totals getTotals() {
+        return items.snapshot().getTotals();
+    }
 
-        // Writes all budget info into the CSV
-        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+    // Adds up all income items
+    public double getTotalIncome() {
+        return getTotals().getIncome();
+    }
 
-            w.write("Section,Item,Value,Notes\n");
+    // Adds up all expense items
+    public double getTotalExpenses() {
+        return getTotals().getExpenses();
+    }
 
-            // Basic budget totals
-            w.write("Income,Total Income," + getTotalIncome() + ",\n");
-            w.write("Expenses,Total Expenses," + getTotalExpenses() + ",\n");
-            w.write("Net,Net Monthly," + getNetMonthly() + ",\n");
+    // Money left after expenses
+    public double getNetMonthly() {
+        return getTotals().getNet();
+    }
 
-            // List of all budget items
-            w.write("\nDetails,Category,Amount,Type\n");
-            for (BudgetItem item : items) {
-                w.write("Item," +
-                        csvEscape(item.getCategory()) + "," +
-                        item.getAmount() + "," +
-                        item.getType() +
-                        "\n");
-            }
+    // CSV layout used by the export: plain "\n" line endings, quotes only when needed
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setRecordSeparator('\n')
+            .build();
+
+    // Writes all budget information as CSV straight into the given output,
+    // WITHOUT credit card or student loan sections.
+    // Nothing is written to disk and the items are streamed one row at a time,
+    // so memory use stays the same no matter how many items the user has.
+    public void writeCsv(Appendable out) throws IOException {
+
+        CSVPrinter csv = new CSVPrinter(out, CSV_FORMAT);
+        csv.printRecord("Section", "Item", "Value", "Notes");
+
+        // Basic budget totals (taken from the same snapshot as the items below)
+        BudgetItemStore.Snapshot snapshot = items.snapshot();
+        Totals t = snapshot.getTotals();
+        csv.printRecord("Income", "Total Income", t.getIncome(), "");
+        csv.printRecord("Expenses", "Total Expenses", t.getExpenses(), "");
+        csv.printRecord("Net", "Net Monthly", t.getNet(), "");
+
+        // List of all budget items
+        csv.println();
+        csv.printRecord("Details", "Category", "Amount", "Type");
+        for (BudgetItem item : snapshot) {
+            csv.printRecord("Item", item.getCategory(), item.getAmount(), item.getType());
         }
 
-        return file;
+        csv.flush();
     }
 
-    // Rounds numbers to two decimal places
-    private double round(double v) {
-        return new BigDecimal("" + v).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    // Rounds numbers to two decimal places (no objects created, see Money)
+    private static double round(double v) {
+        return Money.round(v);
     }
 
     // -----------------------------
@@ -150,7 +275,15 @@ public class BudgetToolCode {
         public double getFinalBalance() { return finalBalance; }
     }
 
-    // Runs a simulation on how long it takes to pay off a credit card
+    // Safety limit on how many months a payoff is followed for (300 years)
+    static final int MAX_MONTHS = 3600;
+
+    // Works out how long it takes to pay off a credit card.
+    // Instead of stepping through every month, this uses the amortization
+    // formula: the number of payments is n = -ln(1 - r*B/P) / ln(1 + r),
+    // and the balance after k payments is B(1+r)^k - P((1+r)^k - 1)/r.
+    // That makes it constant time no matter how long the payoff takes.
+    // The results match simulateCreditCardPayoffIterative to the cent.
     public CreditCardResult simulateCreditCardPayoff(double balance, double apr, double payment) {
 
         double monthlyRate = apr / 100.0 / 12.0;
@@ -161,10 +294,89 @@ public class BudgetToolCode {
             return new CreditCardResult(false, 0, 0, round(nextBalance));
         }
 
+        // Unusual inputs (negative APR, NaN/infinite values) keep using the month-by-month loop
+        if (monthlyRate < 0 || !Double.isFinite(balance) || !Double.isFinite(monthlyRate) || !Double.isFinite(payment)) {
+            return simulateCreditCardPayoffIterative(balance, apr, payment);
+        }
+
+        // Nothing owed: paid off before the first month
+        if (balance <= 0) {
+            return new CreditCardResult(true, 0, 0, round(balance));
+        }
+
+        // With 0% APR a payment of zero (or less) never pays anything off
+        if (payment <= 0) {
+            return new CreditCardResult(false, 0, 0, round(balance - payment));
+        }
+
+        int months = payoffMonths(balance, monthlyRate, payment);
+        if (months > MAX_MONTHS) {
+            double remaining = balanceAfter(balance, monthlyRate, payment, MAX_MONTHS);
+            double interest = remaining - balance + MAX_MONTHS * payment;
+            return new CreditCardResult(true, MAX_MONTHS, round(interest), round(remaining));
+        }
+
+        return new CreditCardResult(true, months, round(payoffInterest(balance, monthlyRate, payment, months)), 0.0);
+    }
+
+    // Number of monthly payments needed to clear the balance, or
+    // MAX_MONTHS + 1 if it takes longer than the safety limit.
+    // Assumes balance > 0, payment > 0 and payment > balance * monthlyRate.
+    static int payoffMonths(double balance, double monthlyRate, double payment) {
+        double n = monthlyRate == 0
+                ? balance / payment
+                : -Math.log1p(-monthlyRate * balance / payment) / Math.log1p(monthlyRate);
+        if (!(n <= MAX_MONTHS)) {
+            return MAX_MONTHS + 1;
+        }
+
+        // The logs are only accurate to a few ulps, so nudge the month count
+        // until it is the first month where the balance actually reaches zero
+        int months = Math.max(1, (int) Math.ceil(n));
+        while (months > 1 && balanceAfter(balance, monthlyRate, payment, months - 1) <= PAID_OFF) {
+            months--;
+        }
+        while (months <= MAX_MONTHS && balanceAfter(balance, monthlyRate, payment, months) > PAID_OFF) {
+            months++;
+        }
+        return months;
+    }
+
+    // Balances this close to zero count as paid off (well below a cent)
+    private static final double PAID_OFF = 1e-9;
+
+    // Balance left after k full payments (can go negative past the payoff month)
+    static double balanceAfter(double balance, double monthlyRate, double payment, int k) {
+        if (monthlyRate == 0) {
+            return balance - k * payment;
+        }
+        double growth = Math.pow(1 + monthlyRate, k);
+        return balance * growth - payment * (growth - 1) / monthlyRate;
+    }
+
+    // Total interest paid over a payoff that takes the given number of months.
+    // Every month but the last is a full payment; the last month still
+    // charges interest on whatever was left, and then the card is cleared.
+    static double payoffInterest(double balance, double monthlyRate, double payment, int months) {
+        double beforeLast = balanceAfter(balance, monthlyRate, payment, months - 1);
+        return (months - 1) * payment + beforeLast * (1 + monthlyRate) - balance;
+    }
+
+    // The original month-by-month simulation. It is no longer used by the
+    // endpoints; it stays as the reference the closed-form version is tested against.
+    CreditCardResult simulateCreditCardPayoffIterative(double balance, double apr, double payment) {
+
+        double monthlyRate = apr / 100.0 / 12.0;
+
+        double firstInterest = balance * monthlyRate;
+        if (payment <= firstInterest && monthlyRate > 0) {
+            double nextBalance = balance + firstInterest - payment;
+            return new CreditCardResult(false, 0, 0, round(nextBalance));
+        }
+
         double b = balance;
         double totalInterest = 0;
         int months = 0;
-        final int MAX_MONTHS = 3600; // safety limit
 
         while (b > 0 && months < MAX_MONTHS) {
             double interest = b * monthlyRate;
@@ -186,6 +398,11 @@ public class BudgetToolCode {
 
     // Calculates a student loan monthly payment using the standard formula
     public double studentLoanMonthlyPayment(double principal, double apr, int years) {
+        return loanPayment(principal, apr, years);
+    }
+
+    // Static version of the payment formula so the schedule generator can use it
+    static double loanPayment(double principal, double apr, int years) {
         if (principal <= 0) return 0;
 
         int n = years * 12;      // total payments
@@ -0,0 +1,179 @@
+// The per-category totals of one budget, as an immutable map that can hand
+// out a copy with one category changed without copying all the others.
+//
+// Every budget change makes a new Totals (see BudgetItemStore), and readers
+// may still hold the old one, so the map can never change in place. Copying
+// a LinkedHashMap on every add/remove costs O(categories) under the store's
+// write lock. Here the categories sit in fixed slots, 32 to a chunk:
+//   - changing one category copies its chunk and the small array of chunk
+//     pointers (1/32 of the categories), and shares every other chunk
+//   - a category keeps the slot it first got, so iterating the slots in
+//     order gives the categories in the order they first showed up. One
+//     that is emptied and comes back returns to its old spot.
+//
+// Finding a category's slot uses a name -> slot index that is shared by
+// every version made from the previous one, since it only ever grows. Only
+// the newest version may add to it (claimed with a compareAndSet on the
+// slot counter); making a version from an older one (EMPTY, for example,
+// is where every budget starts) copies the index first.
+//
+// When more than half the slots are empty the map is rebuilt, so a budget
+// that keeps renaming categories doesn't grow forever.
+
+package com.gradgoals;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class CategoryTotals extends AbstractMap<String, BudgetToolCode.CategoryTotal> {
+
+    private static final int SHIFT = 5;
+    private static final int CHUNK = 1 << SHIFT;
+
+    static final CategoryTotals EMPTY = new CategoryTotals(new ConcurrentHashMap<>(), new AtomicInteger(), new Slot[0][], 0, 0);
+
+    // name -> slot, for every slot handed out along this line of versions
+    private final Map<String, Integer> index;
+    // how many slots that line has handed out
+    private final AtomicInteger claimed;
+    private final Slot[][] chunks;
+    private final int slots; // slots this version uses, emptied ones included
+    private final int size;  // categories in this version
+
+    private CategoryTotals(Map<String, Integer> index, AtomicInteger claimed, Slot[][] chunks, int slots, int size) {
+        this.index = index;
+        this.claimed = claimed;
+        this.chunks = chunks;
+        this.slots = slots;
+        this.size = size;
+    }
+
+    // A fresh copy of 'totals' (in its iteration order)
+    static CategoryTotals of(Map<String, BudgetToolCode.CategoryTotal> totals) {
+        Map<String, Integer> index = new ConcurrentHashMap<>();
+        Slot[][] chunks = new Slot[(totals.size() + CHUNK - 1) >> SHIFT][];
+        int slot = 0;
+        for (Map.Entry<String, BudgetToolCode.CategoryTotal> e : totals.entrySet()) {
+            if (chunks[slot >> SHIFT] == null) {
+                chunks[slot >> SHIFT] = new Slot[CHUNK];
+            }
+            chunks[slot >> SHIFT][slot & (CHUNK - 1)] = new Slot(e.getKey(), e.getValue());
+            index.put(e.getKey(), slot);
+            slot++;
+        }
+        return new CategoryTotals(index, new AtomicInteger(slot), chunks, slot, slot);
+    }
+
+    // A copy with 'category' set to 'total', or taken out if 'total' is null
+    CategoryTotals with(String category, BudgetToolCode.CategoryTotal total) {
+        Map<String, Integer> index = this.index;
+        AtomicInteger claimed = this.claimed;
+        Integer at = index.get(category);
+        int slot;
+        if (at != null && at < slots) {
+            slot = at;
+        } else if (total == null) {
+            return this; // taking out a category we don't have
+        } else {
+            // A new slot at the end. If a newer version already took it,
+            // this one starts its own line with a copy of the index.
+            slot = slots;
+            if (!claimed.compareAndSet(slot, slot + 1)) {
+                index = new ConcurrentHashMap<>();
+                for (Map.Entry<String, BudgetToolCode.CategoryTotal> e : entrySet()) {
+                    index.put(e.getKey(), this.index.get(e.getKey()));
+                }
+                claimed = new AtomicInteger(slot + 1);
+            }
+            index.put(category, slot);
+        }
+
+        Slot old = slot < slots ? chunks[slot >> SHIFT][slot & (CHUNK - 1)] : null;
+        if (old == null && total == null) {
+            return this;
+        }
+        int newSlots = Math.max(slots, slot + 1);
+        int newSize = size + (old == null ? 1 : 0) - (total == null ? 1 : 0);
+
+        Slot[][] newChunks = Arrays.copyOf(chunks, (newSlots + CHUNK - 1) >> SHIFT);
+        Slot[] chunk = newChunks[slot >> SHIFT];
+        chunk = chunk == null ? new Slot[CHUNK] : chunk.clone();
+        chunk[slot & (CHUNK - 1)] = total == null ? null : new Slot(category, total);
+        newChunks[slot >> SHIFT] = chunk;
+
+        CategoryTotals next = new CategoryTotals(index, claimed, newChunks, newSlots, newSize);
+        return newSlots > CHUNK && newSize * 2 < newSlots ? of(next) : next;
+    }
+
+    @Override
+    public BudgetToolCode.CategoryTotal get(Object category) {
+        Integer at = category == null ? null : index.get(category);
+        if (at == null || at >= slots) {
+            return null;
+        }
+        Slot slot = chunks[at >> SHIFT][at & (CHUNK - 1)];
+        return slot != null && slot.getKey().equals(category) ? slot.getValue() : null;
+    }
+
+    @Override
+    public boolean containsKey(Object category) {
+        return get(category) != null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Map.Entry<String, BudgetToolCode.CategoryTotal>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, BudgetToolCode.CategoryTotal>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance(0);
+
+                    private int advance(int from) {
+                        while (from < slots && chunks[from >> SHIFT][from & (CHUNK - 1)] == null) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < slots;
+                    }
+
+                    @Override
+                    public Map.Entry<String, BudgetToolCode.CategoryTotal> next() {
+                        if (next >= slots) {
+                            throw new NoSuchElementException();
+                        }
+                        Slot slot = chunks[next >> SHIFT][next & (CHUNK - 1)];
+                        next = advance(next + 1);
+                        return slot;
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Slot extends AbstractMap.SimpleImmutableEntry<String, BudgetToolCode.CategoryTotal> {
+        Slot(String category, BudgetToolCode.CategoryTotal total) {
+            super(category, total);
+        }
+    }
+}
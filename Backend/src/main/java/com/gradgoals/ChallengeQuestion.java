@@ -28,7 +28,11 @@ public class ChallengeQuestion {
     // short explanation shown after the user submits their answer
     private String explanation;
 
-    // constructor — used when we create each question in the controller
+    // correctAnswer compiled once for grading (see AnswerMatcher).
+    // Not a getter, so it never shows up in the JSON.
+    private final AnswerMatcher matcher;
+
+    // constructor — used when the question bank file is loaded (see QuestionBank)
     public ChallengeQuestion(int id,
                              String categoryId,
                              String prompt,
@@ -39,6 +43,12 @@ public class ChallengeQuestion {
         this.prompt = prompt;
         this.correctAnswer = correctAnswer;
         this.explanation = explanation;
+        this.matcher = AnswerMatcher.compile(correctAnswer);
+    }
+
+    // true if the user's answer means the same as correctAnswer
+    boolean isCorrect(String answer) {
+        return matcher.matches(answer);
     }
 
     // getter — lets the backend/frontend read the question ID
@@ -0,0 +1,331 @@
+// This class keeps the contribution history for one savings goal, plus a
+// running estimate of how fast the user is saving.
+//
+// Each contribution is stored as a (time, cents) pair in two primitive arrays,
+// so a goal with hundreds of contributions is just two small arrays instead of
+// hundreds of objects. When the arrays fill up, the older half is compacted:
+// contributions made on the same day are merged, and if that isn't enough,
+// neighbouring entries are merged pairwise. Totals are never lost, only detail.
+//
+// The saving rate is an exponentially weighted moving average that is updated
+// every time money comes in: older contributions fade out with a time constant
+// of RATE_WINDOW_DAYS. Reading the rate (and so the projected completion date)
+// is O(1) and never replays the history.
+//
+// The log also holds the goal's saved amount, so adding money and recording
+// it are one step. The amount and the newest contributions sit in a chain of
+// small immutable nodes behind an AtomicReference: a contribution is one
+// compareAndSet that both moves the total and links its (time, cents) in
+// front, so concurrent contributions never wait on a lock and the history is
+// in exactly the order the amounts were applied. Anything that reads the
+// history (the rate, a snapshot) first folds the chain into the arrays under
+// a lock, oldest first; a writer that finds a long chain folds it too, but
+// only if nobody else is already doing it.
+//
+// Day boundaries (for merging and for the projected date) are in UTC.
+
+package com.gradgoals;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+class ContributionLog {
+
+    static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Contributions older than this (in days) count for about a third as much
+    static final double RATE_WINDOW_DAYS = 30.0;
+
+    // Most entries kept before the older half is compacted
+    static final int MAX_ENTRIES = 512;
+
+    // A writer folds the chain into the arrays once it is this long
+    private static final int FOLD_AT = 64;
+
+    // The saved total plus one contribution that isn't in the arrays yet
+    // (count == 0 marks the end of the chain)
+    private static final class Pending {
+        final long total;      // cents saved toward the goal, including this one
+        final long time;
+        final long cents;
+        final Pending older;
+        final int count;       // contributions in the chain from here down
+
+        Pending(long total) {
+            this(total, 0, 0, null, 0);
+        }
+
+        Pending(long total, long time, long cents, Pending older, int count) {
+            this.total = total;
+            this.time = time;
+            this.cents = cents;
+            this.older = older;
+            this.count = count;
+        }
+    }
+
+    private final AtomicReference<Pending> head = new AtomicReference<>(new Pending(0));
+
+    // Everything below is only touched while holding 'folding'
+    private final ReentrantLock folding = new ReentrantLock();
+
+    private long[] times = new long[16];   // epoch millis of each contribution
+    private long[] cents = new long[16];   // amount applied by each contribution
+    private int size = 0;
+
+    // EWMA state: decayed sum of contributions as of lastTime
+    private double decayedCents = 0;
+    private long firstTime = -1;
+    private long lastTime = -1;
+
+    // Cents saved toward the goal
+    long total() {
+        return head.get().total;
+    }
+
+    // Adds money without going past 'target' and records what was applied.
+    // Negative amounts (withdrawals) are applied as-is. Returns the applied cents.
+    long add(long amountCents, long target, long nowMillis) {
+        while (true) {
+            Pending h = head.get();
+            long next = h.total + amountCents;
+            if (next > target) {
+                next = target;
+            }
+            if (push(h, next, nowMillis, next - h.total)) {
+                return next - h.total;
+            }
+        }
+    }
+
+    // Records money that was already clamped when it was first applied
+    // (restoring saved state, and tests)
+    void record(long nowMillis, long appliedCents) {
+        while (true) {
+            Pending h = head.get();
+            if (push(h, h.total + appliedCents, nowMillis, appliedCents)) {
+                return;
+            }
+        }
+    }
+
+    // Sets the saved amount without recording a contribution
+    void setTotal(long total) {
+        while (true) {
+            Pending h = head.get();
+            if (head.compareAndSet(h, new Pending(total, h.time, h.cents, h.older, h.count))) {
+                return;
+            }
+        }
+    }
+
+    private boolean push(Pending h, long total, long nowMillis, long appliedCents) {
+        Pending next = new Pending(total, nowMillis, appliedCents, h, h.count + 1);
+        if (!head.compareAndSet(h, next)) {
+            return false;
+        }
+        if (next.count >= FOLD_AT && folding.tryLock()) {
+            try {
+                fold();
+            } finally {
+                folding.unlock();
+            }
+        }
+        return true;
+    }
+
+    // Takes the chain off the head (keeping the total) and appends its
+    // contributions to the arrays, oldest first. Caller holds 'folding'.
+    private void fold() {
+        Pending h;
+        do {
+            h = head.get();
+            if (h.count == 0) {
+                return;
+            }
+        } while (!head.compareAndSet(h, new Pending(h.total)));
+
+        long[] t = new long[h.count];
+        long[] c = new long[h.count];
+        for (Pending p = h; p.count > 0; p = p.older) {
+            t[p.count - 1] = p.time;
+            c[p.count - 1] = p.cents;
+        }
+        for (int i = 0; i < t.length; i++) {
+            append(t[i], c[i]);
+        }
+    }
+
+    private void append(long nowMillis, long appliedCents) {
+        if (firstTime < 0) {
+            firstTime = nowMillis;
+            lastTime = nowMillis;
+        }
+        // requests can finish slightly out of order; treat that as "same moment"
+        long elapsed = Math.max(0, nowMillis - lastTime);
+        decayedCents = decayedCents * Math.exp(-elapsed / (RATE_WINDOW_DAYS * DAY_MILLIS)) + appliedCents;
+        lastTime = Math.max(lastTime, nowMillis);
+
+        if (size == times.length) {
+            if (size >= MAX_ENTRIES) {
+                compact();
+            } else {
+                times = Arrays.copyOf(times, size * 2);
+                cents = Arrays.copyOf(cents, size * 2);
+            }
+        }
+        times[size] = nowMillis;
+        cents[size] = appliedCents;
+        size++;
+    }
+
+    // Saving rate in cents per day as of nowMillis
+    double ratePerDay(long nowMillis) {
+        folding.lock();
+        try {
+            fold();
+            if (firstTime < 0) {
+                return 0;
+            }
+            double window = RATE_WINDOW_DAYS * DAY_MILLIS;
+            double decayed = decayedCents * Math.exp(-Math.max(0, nowMillis - lastTime) / window);
+            // A young goal hasn't had a full window yet, so divide by the time it has had
+            // (otherwise the first deposit would look like a 30 day average)
+            double age = Math.max(nowMillis - firstTime, DAY_MILLIS);
+            double effectiveDays = RATE_WINDOW_DAYS * (1 - Math.exp(-age / window));
+            return decayed / effectiveDays;
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    // Date (UTC) the goal should be reached at the current rate, or null if it never will be
+    LocalDate projectedCompletion(long remainingCents, long nowMillis) {
+        LocalDate today = Instant.ofEpochMilli(nowMillis).atZone(ZoneOffset.UTC).toLocalDate();
+        if (remainingCents <= 0) {
+            return today;
+        }
+        double rate = ratePerDay(nowMillis);
+        if (!(rate > 0)) {
+            return null;
+        }
+        double days = Math.ceil(remainingCents / rate);
+        if (days > 365.0 * 200) {
+            return null; // effectively never
+        }
+        return today.plusDays((long) days);
+    }
+
+    int size() {
+        folding.lock();
+        try {
+            fold();
+            return size;
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    // Copies of the history for tests and exports: { times, cents }
+    long[][] entries() {
+        folding.lock();
+        try {
+            fold();
+            return new long[][] { Arrays.copyOf(times, size), Arrays.copyOf(cents, size) };
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    // Saves the log and the rate state (used by StateJournal snapshots).
+    // The total is saved by the goal itself.
+    void writeTo(DataOutput out) throws IOException {
+        folding.lock();
+        try {
+            fold();
+            out.writeDouble(decayedCents);
+            out.writeLong(firstTime);
+            out.writeLong(lastTime);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeLong(times[i]);
+                out.writeLong(cents[i]);
+            }
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        folding.lock();
+        try {
+            decayedCents = in.readDouble();
+            firstTime = in.readLong();
+            lastTime = in.readLong();
+            size = in.readInt();
+            int capacity = 16;
+            while (capacity < size) {
+                capacity <<= 1;
+            }
+            times = new long[capacity];
+            cents = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                times[i] = in.readLong();
+                cents[i] = in.readLong();
+            }
+        } finally {
+            folding.unlock();
+        }
+    }
+
+    // Merges the older half of the log so there is room again
+    private void compact() {
+        int half = size / 2;
+        int kept = mergeSameDay(half);
+        if (kept == half) {
+            kept = mergePairs(half);
+        }
+        int removed = half - kept;
+        System.arraycopy(times, half, times, kept, size - half);
+        System.arraycopy(cents, half, cents, kept, size - half);
+        size -= removed;
+    }
+
+    // Merges neighbouring entries from the same day within [0, end); returns the new length
+    private int mergeSameDay(int end) {
+        int out = 0;
+        for (int i = 0; i < end; i++) {
+            if (out > 0 && times[i] / DAY_MILLIS == times[out - 1] / DAY_MILLIS) {
+                cents[out - 1] += cents[i];
+            } else {
+                times[out] = times[i];
+                cents[out] = cents[i];
+                out++;
+            }
+        }
+        return out;
+    }
+
+    // Merges entries two at a time within [0, end), keeping the later timestamp
+    private int mergePairs(int end) {
+        int out = 0;
+        for (int i = 0; i < end; i += 2) {
+            if (i + 1 < end) {
+                times[out] = times[i + 1];
+                cents[out] = cents[i] + cents[i + 1];
+            } else {
+                times[out] = times[i];
+                cents[out] = cents[i];
+            }
+            out++;
+        }
+        return out;
+    }
+}
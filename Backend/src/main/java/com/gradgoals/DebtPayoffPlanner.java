@@ -0,0 +1,308 @@
+// This class plans how to pay off several debts at once with a fixed monthly budget.
+//
+// Every debt gets its minimum payment each month, and whatever is left of the
+// budget goes to one "target" debt. Which debt is the target depends on the strategy:
+//   - avalanche: highest APR first (pays the least interest)
+//   - snowball:  smallest balance first (quick wins)
+//   - custom:    the order the user picked
+// When a debt is paid off, its payment rolls over to the next target.
+//
+// Between two payoffs nobody's payment changes, so each debt's balance follows
+// the same closed-form amortization formula used for the credit card calculator.
+// Instead of stepping month by month, a priority queue holds the month each
+// debt will be paid off, and the planner jumps straight from one payoff to the
+// next. A payoff only changes the target's payment, so only that one debt has
+// to be rescheduled. Planning takes O(n log n) for n debts, no matter how many
+// months the plan covers.
+
+package com.gradgoals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+class DebtPayoffPlanner {
+
+    // Plans are followed for at most 50 years
+    static final int MAX_MONTHS = 600;
+
+    // Most debts one plan accepts
+    static final int MAX_DEBTS = 100;
+
+    // One debt in the plan
+    static final class Debt {
+        final String name;
+        final double startBalance;
+        final double monthlyRate;
+        final double minPayment;
+
+        // state as of month 'since'
+        double balance;
+        int since = 0;
+        double payment;
+        double interestPaid = 0;
+        int paidOffMonth = -1;
+        int version = 0;   // bumped whenever the scheduled payoff month is recomputed
+
+        Debt(String name, double balance, double apr, double minPayment) {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Every debt needs a name.");
+            }
+            if (!(balance >= 0) || !(apr >= 0) || !(minPayment >= 0)
+                    || !Double.isFinite(balance) || !Double.isFinite(apr) || !Double.isFinite(minPayment)) {
+                throw new IllegalArgumentException("Balance, APR and minimum payment for '" + name + "' must be zero or more.");
+            }
+            this.name = name;
+            this.startBalance = balance;
+            this.balance = balance;
+            this.monthlyRate = apr / 100.0 / 12.0;
+            this.minPayment = minPayment;
+        }
+
+        // Balance at month t, given the payment in effect since 'since'
+        double balanceAt(int t) {
+            return BudgetToolCode.balanceAfter(balance, monthlyRate, payment, t - since);
+        }
+
+        // Moves the state forward to month t (t must not be past the payoff)
+        void advanceTo(int t) {
+            double next = balanceAt(t);
+            interestPaid += next - balance + (t - since) * payment;
+            balance = next;
+            since = t;
+        }
+
+        // Month this debt will be paid off with its current payment, or
+        // Integer.MAX_VALUE if the payment never gets ahead of the interest
+        int payoffMonth() {
+            if (balance <= 0) {
+                return since;
+            }
+            if (payment <= 0 || payment <= balance * monthlyRate) {
+                return Integer.MAX_VALUE;
+            }
+            int months = BudgetToolCode.payoffMonths(balance, monthlyRate, payment);
+            return months > MAX_MONTHS ? Integer.MAX_VALUE : since + months;
+        }
+    }
+
+    // A scheduled payoff waiting in the queue; stale if the debt's version moved on
+    private static final class Event {
+        final int month;
+        final int debt;
+        final int version;
+
+        Event(int month, int debt, int version) {
+            this.month = month;
+            this.debt = debt;
+            this.version = version;
+        }
+    }
+
+    private final Debt[] debts;
+    private final double monthlyBudget;
+    private final String strategy;
+    private final int[] priority;          // debt indexes, target first
+    private int nextTarget = 0;            // position in priority of the current target
+    private final List<Map<String, Object>> timeline = new ArrayList<>();
+
+    DebtPayoffPlanner(List<Debt> debts, double monthlyBudget, String strategy, List<String> customOrder) {
+        if (debts == null || debts.isEmpty()) {
+            throw new IllegalArgumentException("Add at least one debt.");
+        }
+        if (debts.size() > MAX_DEBTS) {
+            throw new IllegalArgumentException("A plan can have at most " + MAX_DEBTS + " debts.");
+        }
+        this.debts = debts.toArray(new Debt[0]);
+        this.monthlyBudget = monthlyBudget;
+        this.strategy = strategy == null ? "avalanche" : strategy.toLowerCase();
+        this.priority = order(customOrder);
+
+        double minimums = 0;
+        for (Debt d : this.debts) {
+            minimums += d.minPayment;
+        }
+        if (!(monthlyBudget >= minimums) || !Double.isFinite(monthlyBudget)) {
+            throw new IllegalArgumentException("Monthly budget must cover the minimum payments (" + minimums + ").");
+        }
+    }
+
+    // Works out the order debts are targeted in
+    private int[] order(List<String> customOrder) {
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < debts.length; i++) {
+            indexes.add(i);
+        }
+
+        switch (strategy) {
+            case "avalanche":
+                indexes.sort(Comparator.<Integer>comparingDouble(i -> -debts[i].monthlyRate)
+                        .thenComparingDouble(i -> debts[i].startBalance));
+                break;
+            case "snowball":
+                indexes.sort(Comparator.<Integer>comparingDouble(i -> debts[i].startBalance)
+                        .thenComparingDouble(i -> -debts[i].monthlyRate));
+                break;
+            case "custom":
+                if (customOrder == null) {
+                    throw new IllegalArgumentException("Custom strategy needs an 'order' list of debt names.");
+                }
+                // debts named in the order list come first, the rest keep their input order
+                List<Integer> ordered = new ArrayList<>();
+                for (String name : customOrder) {
+                    for (int i = 0; i < debts.length; i++) {
+                        if (debts[i].name.equals(name) && !ordered.contains(i)) {
+                            ordered.add(i);
+                            break;
+                        }
+                    }
+                }
+                for (int i : indexes) {
+                    if (!ordered.contains(i)) {
+                        ordered.add(i);
+                    }
+                }
+                indexes = ordered;
+                break;
+            default:
+                throw new IllegalArgumentException("Strategy must be avalanche, snowball or custom.");
+        }
+
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+
+    // Index of the first debt in priority order that still has a balance, or -1
+    private int currentTarget() {
+        while (nextTarget < priority.length && debts[priority[nextTarget]].paidOffMonth >= 0) {
+            nextTarget++;
+        }
+        return nextTarget < priority.length ? priority[nextTarget] : -1;
+    }
+
+    // Runs the plan and returns the response sent to the frontend
+    Map<String, Object> plan() {
+        PriorityQueue<Event> queue = new PriorityQueue<>(Comparator
+                .comparingInt((Event e) -> e.month)
+                .thenComparingInt(e -> e.debt));
+
+        // Month 0: everyone pays the minimum, the target also gets the leftover budget
+        double extra = monthlyBudget;
+        for (Debt d : debts) {
+            d.payment = d.minPayment;
+            extra -= d.minPayment;
+        }
+        for (int i = 0; i < debts.length; i++) {
+            if (debts[i].balance <= 0) {
+                debts[i].paidOffMonth = 0;
+                extra += debts[i].payment;
+                debts[i].payment = 0;
+            }
+        }
+        int target = currentTarget();
+        if (target >= 0) {
+            debts[target].payment += extra;
+        }
+        for (int i = 0; i < debts.length; i++) {
+            if (debts[i].paidOffMonth < 0) {
+                schedule(queue, i);
+            }
+        }
+
+        int lastPayoff = 0;
+        int remaining = 0;
+        for (Debt d : debts) {
+            if (d.paidOffMonth < 0) remaining++;
+        }
+
+        while (!queue.isEmpty()) {
+            Event event = queue.poll();
+            Debt done = debts[event.debt];
+            if (event.version != done.version || done.paidOffMonth >= 0) {
+                continue; // this debt was rescheduled after the event was queued
+            }
+            if (event.month > MAX_MONTHS) {
+                break;
+            }
+
+            // Retire the debt: interest for its final stretch, then free its payment
+            int months = event.month - done.since;
+            done.interestPaid += BudgetToolCode.payoffInterest(done.balance, done.monthlyRate, done.payment, months);
+            done.balance = 0;
+            done.since = event.month;
+            done.paidOffMonth = event.month;
+            double freed = done.payment;
+            done.payment = 0;
+            remaining--;
+            lastPayoff = event.month;
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("month", event.month);
+            row.put("paidOff", done.name);
+            row.put("interestPaid", Money.round(done.interestPaid));
+            row.put("debtsRemaining", remaining);
+            timeline.add(row);
+
+            // Roll the freed payment into the next target; only that debt changes
+            int next = currentTarget();
+            if (next >= 0) {
+                Debt d = debts[next];
+                d.advanceTo(event.month);
+                d.payment += freed;
+                d.version++;
+                schedule(queue, next);
+            }
+        }
+
+        return report(remaining == 0 ? lastPayoff : -1, remaining);
+    }
+
+    private void schedule(PriorityQueue<Event> queue, int index) {
+        int month = debts[index].payoffMonth();
+        if (month != Integer.MAX_VALUE) {
+            queue.add(new Event(month, index, debts[index].version));
+        }
+    }
+
+    private Map<String, Object> report(int debtFreeMonth, int remaining) {
+        double totalInterest = 0;
+        double totalBalance = 0;
+        List<Map<String, Object>> perDebt = new ArrayList<>();
+        for (Debt d : debts) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("name", d.name);
+            row.put("paidOffMonth", d.paidOffMonth);
+            if (d.paidOffMonth < 0) {
+                // still owing at the end of the horizon
+                d.advanceTo(MAX_MONTHS);
+                totalBalance += d.balance;
+            }
+            row.put("interestPaid", Money.round(d.interestPaid));
+            row.put("remainingBalance", Money.round(Math.max(0, d.balance)));
+            totalInterest += d.interestPaid;
+            perDebt.add(row);
+        }
+
+        List<String> order = new ArrayList<>();
+        for (int i : priority) {
+            order.add(debts[i].name);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("strategy", strategy);
+        result.put("order", order);
+        result.put("debtFree", remaining == 0);
+        result.put("months", debtFreeMonth);
+        result.put("totalInterest", Money.round(totalInterest));
+        result.put("remainingBalance", Money.round(totalBalance));
+        result.put("timeline", timeline);
+        result.put("debts", perDebt);
+        return result;
+    }
+}
@@ -0,0 +1,45 @@
+// Times every request that reaches a controller and records it in the
+// endpoint's LatencyHistogram (see Metrics).
+//
+// Requests are grouped by method and URL pattern ("GET /api/questions/{id}"),
+// not the real URL, so there is one histogram per endpoint instead of one
+// per question id. The clock starts before the controller runs and stops
+// when the response is done, including streamed responses.
+
+package com.gradgoals;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+class EndpointTimer implements HandlerInterceptor {
+
+    private static final String STARTED = EndpointTimer.class.getName() + ".started";
+
+    private final Metrics metrics;
+
+    EndpointTimer(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // a streamed response comes through here twice; keep the first start time
+        if (request.getAttribute(STARTED) == null) {
+            request.setAttribute(STARTED, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object started = request.getAttribute(STARTED);
+        if (!(started instanceof Long)) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "unmatched" : pattern.toString();
+        metrics.endpoint(request.getMethod(), uri).record(System.nanoTime() - (Long) started);
+    }
+}
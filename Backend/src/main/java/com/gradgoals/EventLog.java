@@ -0,0 +1,103 @@
+// Structured log lines for things worth a look (an answer checked, progress
+// reset, ...), without slowing down the request that has them.
+//
+// The old System.out.println("DEBUG: ...") calls built a String on every
+// request and then waited for stdout. Here:
+//   - only 1 in 'sampleEvery' events is kept (decided with one random number,
+//     before anything is built); 1 keeps all of them, 0 turns logging off
+//   - a kept event becomes one "key=value" message on the
+//     com.gradgoals.EventLog logger (SLF4J). logback-spring.xml sends that
+//     logger through an AsyncAppender that drops lines instead of blocking
+//     when its queue is full (stdout is stuck), so the request never waits
+//
+// A message looks like:
+//   event=check_answer user=ana questionId=3 correct=true
+
+package com.gradgoals;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+final class EventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(EventLog.class);
+
+    private final int sampleEvery;
+    private final LongAdder logged = new LongAdder();
+
+    EventLog(int sampleEvery) {
+        this.sampleEvery = Math.max(0, sampleEvery);
+    }
+
+    // Whether to log this one. Check this first so a skipped event costs nothing:
+    //   if (events.sampled()) events.log("reset_progress", "user", userId);
+    boolean sampled() {
+        return sampleEvery == 1 || (sampleEvery > 1 && ThreadLocalRandom.current().nextInt(sampleEvery) == 0);
+    }
+
+    // 'fields' are key, value, key, value, ...
+    void log(String event, Object... fields) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        log.info("{}", new Event(event, fields)); // turned into text by the logger
+        logged.increment();
+    }
+
+    // Events handed to the logger
+    long logged() {
+        return logged.sum();
+    }
+
+    private static final class Event {
+        private final String name;
+        private final Object[] fields;
+
+        Event(String name, Object[] fields) {
+            this.name = name;
+            this.fields = fields;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder(128);
+            line.append("event=").append(name);
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                line.append(' ').append(fields[i]).append('=');
+                appendValue(line, String.valueOf(fields[i + 1]));
+            }
+            return line.toString();
+        }
+
+        // Quotes values with spaces, quotes or '=' in them (user ids come from
+        // the request), so every line still splits back into the same fields
+        private static void appendValue(StringBuilder line, String value) {
+            boolean plain = !value.isEmpty();
+            for (int i = 0; i < value.length() && plain; i++) {
+                char c = value.charAt(i);
+                plain = c > ' ' && c != '"' && c != '=' && c != '\\';
+            }
+            if (plain) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    line.append('\\').append(c);
+                } else if (c == '\n') {
+                    line.append("\\n");
+                } else if (c < ' ') {
+                    line.append(' ');
+                } else {
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+    }
+}
@@ -1,17 +1,30 @@
 package com.gradgoals;
 
 // This class manages savings goals: creating them, updating progress, returning all goals, and deleting goals.
+//
+// Goals are kept in a ConcurrentHashMap by id, so finding a goal is O(1) and
+// requests for the same user can run at the same time safely. A second,
+// sorted map keeps the goals in the order they were created for /goals/all.
+// Contributions update the saved amount with compare-and-set instead of a lock
+// (see ContributionLog, which keeps the amount and its history together), so
+// two /goals/add calls at the same moment can never lose each other's money.
+import java.time.LocalDate;
 import java.util.*;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class GoalChecker {
+public class GoalChecker implements StateJournal.Journaled {
 
     // Represents a single savings goal created by the user
     public class SavingsGoal {
         private String id;             // unique ID for the goal
         private String name;           // description/name of the goal
-        private double targetAmount;   // total amount the user wants to save
-        private double currentAmount;  // how much the user has saved so far
+        private volatile long targetCents;  // total amount the user wants to save (in cents)
+        private long sequence;         // creation order, used to list goals in order
+        // how much the user has saved so far (in cents), when it came in, and how fast
+        private final ContributionLog history = new ContributionLog();
 
         // Default constructor automatically generates a unique ID
         public SavingsGoal() {
@@ -22,56 +35,137 @@ public class GoalChecker {
         public SavingsGoal(String name, double targetAmount) {
             this.id = UUID.randomUUID().toString(); // unique ID per goal
             this.name = name;
-            this.targetAmount = targetAmount;
-            this.currentAmount = 0;                // starting at zero saved
+            this.targetCents = Money.fromDollars(targetAmount);
+            // starts at zero saved
         }
 
         // Getters & Setters for accessing and updating fields
         public String getId() { return id; }
         public String getName() { return name; }
         public void setName(String name) { this.name = name; }
-        public double getTargetAmount() { return targetAmount; }
-        public void setTargetAmount(double targetAmount) { this.targetAmount = targetAmount; }
-        public double getCurrentAmount() { return currentAmount; }
-        public void setCurrentAmount(double currentAmount) { this.currentAmount = currentAmount; }
+        public double getTargetAmount() { return Money.toDollars(targetCents); }
+        public void setTargetAmount(double targetAmount) { this.targetCents = Money.fromDollars(targetAmount); }
+        public double getCurrentAmount() { return Money.toDollars(history.total()); }
+        public void setCurrentAmount(double currentAmount) { history.setTotal(Money.fromDollars(currentAmount)); }
+
+        // Amounts in cents, for code that does math on them
+        long targetCents() { return targetCents; }
+        long currentCents() { return history.total(); }
+
+        // Saving rate (dollars per month) based on recent contributions
+        public double getMonthlyContributionRate() {
+            return Money.round(history.ratePerDay(System.currentTimeMillis()) * 30 / 100.0);
+        }
+
+        // When the goal should be reached at the current saving rate ("2026-03-14"),
+        // or null if the user isn't saving toward it right now
+        public String getProjectedCompletionDate() {
+            LocalDate date = history.projectedCompletion(targetCents - history.total(), System.currentTimeMillis());
+            return date == null ? null : date.toString();
+        }
+
+        ContributionLog history() { return history; }
 
         // Adds money to the goal while preventing the amount from exceeding the target
         public void addAmount(double amount) {
-            this.currentAmount += amount;
-            if (this.currentAmount > targetAmount) {
-                this.currentAmount = targetAmount;
-            }
+            addCents(Money.fromDollars(amount), System.currentTimeMillis());
+        }
+
+        // Same as addAmount, with the time of the contribution passed in (for tests)
+        void addAmount(double amount, long nowMillis) {
+            addCents(Money.fromDollars(amount), nowMillis);
+        }
+
+        // Compare-and-set loop (in ContributionLog.add): if another request changed
+        // the amount between our read and our write, the CAS fails and we retry
+        // with the fresh value. The same CAS records the contribution.
+        // Negative amounts (withdrawals) are applied as-is.
+        // Returns how much was actually applied after clamping.
+        long addCents(long cents, long nowMillis) {
+            return history.add(cents, targetCents, nowMillis);
+        }
+
+        // Re-applies a contribution that was already clamped when it was first made
+        // (used when restoring saved state, see StateJournal)
+        void restoreContribution(long appliedCents, long nowMillis) {
+            history.record(nowMillis, appliedCents);
+        }
+
+        void restoreAmount(long cents) {
+            history.setTotal(cents);
         }
     }
 
-    // Stores all savings goals created in this session
-    private final List<SavingsGoal> goals = new ArrayList<>();
+    // All goals for this user by ID, plus the same goals in creation order
+    private final Map<String, SavingsGoal> goals = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, SavingsGoal> ordered = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextSequence = new AtomicLong();
 
-    // Returns a copy of all current goals
+    // Returns a copy of all current goals, oldest first
     public List<SavingsGoal> getAllGoals() {
-        return new ArrayList<>(goals);
+        return new ArrayList<>(ordered.values());
     }
 
-    // Creates a new goal and adds it to the list
+    // Creates a new goal and adds it to the store
     public SavingsGoal createGoal(String name, double targetAmount) {
         SavingsGoal goal = new SavingsGoal(name, targetAmount);
-        goals.add(goal);
+        goal.sequence = nextSequence.getAndIncrement();
+        goals.put(goal.getId(), goal);
+        ordered.put(goal.sequence, goal);
         return goal;
     }
 
+    // Puts back a goal with a known ID (used when restoring saved state)
+    SavingsGoal restoreGoal(String id, String name, long targetCents) {
+        SavingsGoal goal = new SavingsGoal(name, 0);
+        goal.id = id;
+        goal.targetCents = targetCents;
+        goal.sequence = nextSequence.getAndIncrement();
+        goals.put(id, goal);
+        ordered.put(goal.sequence, goal);
+        return goal;
+    }
+
+    // Lock + last saved change for this user's goals (see StateJournal)
+    private final StateJournal.Stamp stamp = new StateJournal.Stamp();
+
+    @Override
+    public StateJournal.Stamp stamp() {
+        return stamp;
+    }
+
+    // Rough heap size of these goals, used by UserStateCache to stay under its
+    // memory ceiling: the maps and stamp, each goal, and its contribution log
+    long estimatedBytes() {
+        long bytes = 300;
+        for (SavingsGoal goal : goals.values()) {
+            bytes += 300 + 16L * goal.history().size();
+        }
+        return bytes;
+    }
+
+    // Finds a goal by ID (null if there is no such goal)
+    public SavingsGoal getGoal(String id) {
+        return id == null ? null : goals.get(id);
+    }
+
     // Adds an amount to a specific goal by ID and returns the updated goal
     public SavingsGoal addToGoal(String id, double amount) {
-        for (SavingsGoal goal : goals) {
-            if (goal.getId().equals(id)) {
-                goal.addAmount(amount);
-                return goal;
-            }
+        SavingsGoal goal = getGoal(id);
+        if (goal == null) {
+            return null; // If no matching goal is found
         }
-        return null; // If no matching goal is found
+        goal.addAmount(amount);
+        return goal;
     }
 
-    // Removes a goal from the list by ID
+    // Removes a goal by ID
     public boolean removeGoal(String id) {
-        return goals.removeIf(g -> g.getId().equals(id));
+        SavingsGoal goal = id == null ? null : goals.remove(id);
+        if (goal == null) {
+            return false;
+        }
+        ordered.remove(goal.sequence);
+        return true;
     }
 }
@@ -2,9 +2,14 @@ package com.gradgoals;
 
 // This controller handles all REST API requests for creating, viewing, updating, and deleting savings goals for each user.
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 @RestController                           // Marks this class as a REST API controller
 @RequestMapping("/goals")                 // All routes here start with /goals
@@ -13,13 +18,45 @@ public class GoalController {
 
     // Stores each user's goals separately.
     // KEY = userId, VALUE = that user's personal GoalChecker instance (their list of goals).
-    private final Map<String, GoalChecker> userGoals = new ConcurrentHashMap<>();
+    // Users who have been idle for a while are moved to disk and loaded back when needed (see UserStateCache).
+    private final UserStateCache.Region<GoalChecker> userGoals;
 
-    // Retrieves the GoalChecker for a user, creating one if it doesn't already exist.
+    // What read requests see for a user with no goals (never written to)
+    private static final GoalChecker NO_GOALS = new GoalChecker();
+
+    // Saves every change so goals survive a restart (disabled when created with new)
+    private final StateJournal journal;
+
+    // Kinds of changes written to the journal
+    private static final byte CREATE_GOAL = 1;
+    private static final byte ADD_TO_GOAL = 2;
+    private static final byte REMOVE_GOAL = 3;
+
+    public GoalController() {
+        this(StateJournal.disabled());
+    }
+
+    public GoalController(StateJournal journal) {
+        this(journal, UserStateCache.unbounded(journal));
+    }
+
+    @Autowired
+    public GoalController(StateJournal journal, UserStateCache cache) {
+        this.journal = journal;
+        this.userGoals = cache.region("goals", GoalChecker::new, new GoalCodec(), GoalChecker::estimatedBytes);
+        journal.register(new GoalState());
+    }
+
+    // Retrieves the GoalChecker for a user for reading. Users without goals get
+    // an empty one and nothing is stored for them.
     // If userId is missing, a "guest" userId is used.
     private GoalChecker getGoalChecker(String userId) {
-        if (userId == null || userId.isEmpty()) userId = "guest";
-        return userGoals.computeIfAbsent(userId, k -> new GoalChecker());
+        GoalChecker checker = userGoals.peek(userKey(userId));
+        return checker == null ? NO_GOALS : checker;
+    }
+
+    private static String userKey(String userId) {
+        return userId == null || userId.isEmpty() ? "guest" : userId;
     }
 
     // 1. Returns ALL goals for a specific user.
@@ -33,29 +70,210 @@ public class GoalController {
     // userId, name, and targetAmount must be included in the request body.
     @PostMapping("/create")
     public GoalChecker.SavingsGoal createGoal(@RequestBody Map<String, Object> body) {
-        String userId = (String) body.get("userId");
+        String userId = userKey((String) body.get("userId"));
         String name = (String) body.get("name");
-        double targetAmount = ((Number) body.get("targetAmount")).doubleValue();
-        
-        return getGoalChecker(userId).createGoal(name, targetAmount);
+        double targetAmount = Money.toDollars(Money.parse(body.get("targetAmount")));
+
+        // creates the user's goal list if this is their first goal
+        GoalChecker checker = userGoals.acquire(userId);
+        try {
+            GoalChecker.SavingsGoal goal = checker.createGoal(name, targetAmount);
+            journal.append(checker.stamp(), StateJournal.GOALS, CREATE_GOAL, userId, out -> {
+                out.writeUTF(goal.getId());
+                out.writeUTF(name == null ? "" : name);
+                out.writeLong(goal.targetCents());
+            });
+            return goal;
+        } finally {
+            checker.stamp().exit();
+        }
     }
 
     // 3. Adds money to a user's goal.
     // Body must include userId, goal id, and the amount to add.
     @PostMapping("/add")
     public GoalChecker.SavingsGoal addToGoal(@RequestBody Map<String, Object> body) {
+        String userId = userKey((String) body.get("userId"));
+        String id = (String) body.get("id");
+        long amountCents = Money.parse(body.get("amount"));
+
+        if (userGoals.peek(userId) == null) {
+            return null; // no goals at all, so no such goal
+        }
+        GoalChecker checker = userGoals.acquire(userId);
+        try {
+            GoalChecker.SavingsGoal goal = checker.getGoal(id);
+            if (goal == null) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            long applied = goal.addCents(amountCents, now);
+            journal.append(checker.stamp(), StateJournal.GOALS, ADD_TO_GOAL, userId, out -> {
+                out.writeUTF(id);
+                out.writeLong(applied);
+                out.writeLong(now);
+            });
+            return goal;
+        } finally {
+            checker.stamp().exit();
+        }
+    }
+
+    // 4. Estimates when a goal will be reached with a Monte Carlo simulation.
+    // Body: userId, goal id, monthlyContribution, and optionally
+    // contributionStdDev, annualReturn and annualVolatility (percent),
+    // months (horizon, default 120), paths (default 100,000, max 1,000,000) and seed.
+    // Returns the chance of reaching the goal within the horizon and the
+    // P10/P50/P90 months/dates by which it is reached.
+    @PostMapping("/projection")
+    public ResponseEntity<Map<String, Object>> projection(@RequestBody Map<String, Object> body) {
         String userId = (String) body.get("userId");
         String id = (String) body.get("id");
-        double amount = ((Number) body.get("amount")).doubleValue();
-        
-        return getGoalChecker(userId).addToGoal(id, amount);
+
+        GoalChecker.SavingsGoal goal = getGoalChecker(userId).getGoal(id);
+        if (goal == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            GoalProjection projection = new GoalProjection(
+                    goal.getCurrentAmount(),
+                    goal.getTargetAmount(),
+                    number(body, "monthlyContribution", 0),
+                    number(body, "contributionStdDev", 0),
+                    number(body, "annualReturn", 0),
+                    number(body, "annualVolatility", 0),
+                    (int) number(body, "months", GoalProjection.DEFAULT_MONTHS),
+                    (int) number(body, "paths", GoalProjection.DEFAULT_PATHS),
+                    (long) number(body, "seed", System.nanoTime()));
+
+            Map<String, Object> result = projection.report(LocalDate.now());
+            result.put("goalId", goal.getId());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    // Reads an optional number from the request body
+    private static double number(Map<String, Object> body, String key, double fallback) {
+        Object value = body.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
     }
 
-    // 4. Deletes a goal based on its ID.
+    // 5. Deletes a goal based on its ID.
     // Requires both goal id in the URL and userId in the query.
     @DeleteMapping("/delete/{id}")
     public String deleteGoal(@PathVariable String id, @RequestParam String userId) {
-        boolean removed = getGoalChecker(userId).removeGoal(id);
+        if (userGoals.peek(userKey(userId)) == null) {
+            return "Goal not found";
+        }
+        GoalChecker checker = userGoals.acquire(userKey(userId));
+        boolean removed;
+        try {
+            removed = checker.removeGoal(id);
+            if (removed) {
+                journal.append(checker.stamp(), StateJournal.GOALS, REMOVE_GOAL, userKey(userId), out -> out.writeUTF(id));
+            }
+        } finally {
+            checker.stamp().exit();
+        }
         return removed ? "Goal removed" : "Goal not found";
     }
+
+    // ---------------------------------------------------------
+    // PERSISTENCE (see StateJournal)
+    // ---------------------------------------------------------
+
+    // All of a user's goals: count, then each goal with its contribution history
+    private static class GoalCodec implements UserStateCache.Codec<GoalChecker> {
+
+        @Override
+        public void write(GoalChecker checker, DataOutput out) throws IOException {
+            List<GoalChecker.SavingsGoal> goals = checker.getAllGoals();
+            out.writeInt(goals.size());
+            for (GoalChecker.SavingsGoal goal : goals) {
+                out.writeUTF(goal.getId());
+                out.writeUTF(goal.getName() == null ? "" : goal.getName());
+                out.writeLong(goal.targetCents());
+                out.writeLong(goal.currentCents());
+                goal.history().writeTo(out);
+            }
+        }
+
+        @Override
+        public GoalChecker read(DataInput in) throws IOException {
+            GoalChecker checker = new GoalChecker();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                GoalChecker.SavingsGoal goal = checker.restoreGoal(in.readUTF(), in.readUTF(), in.readLong());
+                goal.restoreAmount(in.readLong());
+                goal.history().readFrom(in);
+            }
+            return checker;
+        }
+    }
+
+    // Lets the journal save and restore every user's goals
+    private class GoalState implements StateJournal.Participant {
+
+        private final GoalCodec codec = new GoalCodec();
+
+        @Override
+        public byte domain() {
+            return StateJournal.GOALS;
+        }
+
+        @Override
+        public Map<String, GoalChecker> states() {
+            return userGoals.live();
+        }
+
+        @Override
+        public void writeState(StateJournal.Journaled state, DataOutput out) throws IOException {
+            codec.write((GoalChecker) state, out);
+        }
+
+        @Override
+        public StateJournal.Journaled readState(String userId, DataInput in) throws IOException {
+            GoalChecker checker = codec.read(in);
+            userGoals.restore(userId, checker);
+            return checker;
+        }
+
+        @Override
+        public Iterable<String> spilledUsers() {
+            return userGoals.spilledUsers();
+        }
+
+        @Override
+        public byte[] spilledState(String userId) throws IOException {
+            return userGoals.spilledState(userId);
+        }
+
+        @Override
+        public void snapshotWritten() {
+            userGoals.snapshotWritten();
+        }
+
+        @Override
+        public StateJournal.Journaled replay(String userId, byte op, DataInput in) throws IOException {
+            GoalChecker checker = userGoals.getOrCreate(userId);
+            if (op == CREATE_GOAL) {
+                checker.restoreGoal(in.readUTF(), in.readUTF(), in.readLong());
+            } else if (op == ADD_TO_GOAL) {
+                GoalChecker.SavingsGoal goal = checker.getGoal(in.readUTF());
+                long applied = in.readLong();
+                long time = in.readLong();
+                if (goal != null) {
+                    goal.restoreContribution(applied, time);
+                }
+            } else if (op == REMOVE_GOAL) {
+                checker.removeGoal(in.readUTF());
+            }
+            return checker;
+        }
+    }
 }
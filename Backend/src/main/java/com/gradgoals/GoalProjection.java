@@ -0,0 +1,193 @@
+// This class estimates when a savings goal will be reached using a Monte Carlo
+// simulation: it plays out many possible futures ("paths") where both the
+// monthly contribution and the market return vary randomly, and records the
+// month each path first hits the target.
+//
+// Paths are split into chunks that run on parallel streams. Each chunk gets its
+// own SplittableRandom (split off one seeded root, so results are repeatable
+// for a given seed) and its own histogram row of "paths that finished in month m".
+// The inner loop only touches primitives, so simulating a path allocates nothing.
+// Percentiles are read straight off the merged histogram instead of sorting
+// a million results.
+//
+// A request also has a time budget: chunks that haven't started when it runs
+// out are skipped, and the answer is based on the paths that did run (the
+// response says how many). The step cap below keeps the normal worst case
+// well inside it; the budget covers a slow or busy machine.
+
+package com.gradgoals;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+class GoalProjection {
+
+    static final int DEFAULT_PATHS = 100_000;
+    static final int MAX_PATHS = 1_000_000;
+    static final int DEFAULT_MONTHS = 120;
+    static final int MAX_MONTHS = 600;
+
+    // Upper bound on simulated path-months for one request; keeps a worst-case
+    // request (1M paths that never finish, 50 years each) from tying up the CPU.
+    // Larger requests are run with fewer paths.
+    static final long MAX_STEPS = 250_000_000L;
+
+    // Wall-clock budget for one request's simulation
+    static final long TIME_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    // Paths per parallel chunk
+    private static final int CHUNK = 4096;
+
+    private final double startAmount;
+    private final double targetAmount;
+    private final double contribution;
+    private final double contributionStdDev;
+    private final double monthlyReturn;
+    private final double monthlyVolatility;
+    private final int months;
+    private final int paths;
+    private final long seed;
+
+    GoalProjection(double startAmount, double targetAmount,
+                   double monthlyContribution, double contributionStdDev,
+                   double annualReturnPercent, double annualVolatilityPercent,
+                   int months, int paths, long seed) {
+        if (!(targetAmount > 0)) {
+            throw new IllegalArgumentException("Goal target must be more than zero.");
+        }
+        if (months <= 0 || months > MAX_MONTHS) {
+            throw new IllegalArgumentException("Months must be between 1 and " + MAX_MONTHS + ".");
+        }
+        if (paths <= 0 || paths > MAX_PATHS) {
+            throw new IllegalArgumentException("Paths must be between 1 and " + MAX_PATHS + ".");
+        }
+        if (contributionStdDev < 0 || annualVolatilityPercent < 0) {
+            throw new IllegalArgumentException("Standard deviation and volatility can't be negative.");
+        }
+        this.startAmount = startAmount;
+        this.targetAmount = targetAmount;
+        this.contribution = monthlyContribution;
+        this.contributionStdDev = contributionStdDev;
+        this.monthlyReturn = annualReturnPercent / 100.0 / 12.0;
+        this.monthlyVolatility = annualVolatilityPercent / 100.0 / Math.sqrt(12.0);
+        this.months = months;
+        this.paths = (int) Math.min(paths, Math.max(1, MAX_STEPS / months));
+        this.seed = seed;
+    }
+
+    int getPaths() {
+        return paths;
+    }
+
+    // Runs every path and returns finished[m] = number of paths that first
+    // reached the target in month m (index 0 = already there, months + 1 = never)
+    long[] run() {
+        return run(TIME_BUDGET_NANOS);
+    }
+
+    // Same, but chunks that would start after budgetNanos are skipped, so the
+    // histogram can add up to fewer than getPaths() paths. The first chunk
+    // always runs.
+    long[] run(long budgetNanos) {
+        long started = System.nanoTime();
+        int chunks = (paths + CHUNK - 1) / CHUNK;
+
+        // Split the generators up front so each chunk's stream doesn't depend on scheduling
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) {
+            randoms[c] = root.split();
+        }
+
+        long[][] histograms = new long[chunks][months + 2];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            if (c > 0 && System.nanoTime() - started > budgetNanos) {
+                return; // out of time
+            }
+            int from = c * CHUNK;
+            int count = Math.min(CHUNK, paths - from);
+            simulateChunk(randoms[c], count, histograms[c]);
+        });
+
+        long[] merged = new long[months + 2];
+        for (long[] h : histograms) {
+            for (int m = 0; m < merged.length; m++) {
+                merged[m] += h[m];
+            }
+        }
+        return merged;
+    }
+
+    // The hot loop: primitives only, nothing allocated per path or per month
+    private void simulateChunk(SplittableRandom random, int count, long[] finished) {
+        for (int p = 0; p < count; p++) {
+            double balance = startAmount;
+            int month = 0;
+            while (balance < targetAmount && month < months) {
+                month++;
+                double r = monthlyReturn + monthlyVolatility * random.nextGaussian();
+                double deposit = contribution + contributionStdDev * random.nextGaussian();
+                balance = balance * (1 + r) + (deposit > 0 ? deposit : 0);
+            }
+            finished[balance >= targetAmount ? month : months + 1]++;
+        }
+    }
+
+    // First month by which at least the given share of paths have finished, or -1
+    static int percentile(long[] finished, int totalPaths, double share) {
+        long needed = (long) Math.ceil(share * totalPaths);
+        long seen = 0;
+        for (int m = 0; m < finished.length - 1; m++) {
+            seen += finished[m];
+            if (seen >= needed) {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    // Runs the simulation and builds the response for the frontend
+    Map<String, Object> report(LocalDate today) {
+        return report(today, TIME_BUDGET_NANOS);
+    }
+
+    Map<String, Object> report(LocalDate today, long budgetNanos) {
+        long started = System.nanoTime();
+        long[] finished = run(budgetNanos);
+        long elapsedMicros = (System.nanoTime() - started) / 1000;
+
+        long reached = 0;
+        long simulated = 0;
+        for (int m = 0; m < finished.length; m++) {
+            if (m <= months) {
+                reached += finished[m];
+            }
+            simulated += finished[m];
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("paths", (int) simulated);
+        result.put("outOfTime", simulated < paths);
+        result.put("months", months);
+        result.put("probability", reached / (double) simulated);
+        result.put("p10", percentileRow(finished, (int) simulated, 0.10, today));
+        result.put("p50", percentileRow(finished, (int) simulated, 0.50, today));
+        result.put("p90", percentileRow(finished, (int) simulated, 0.90, today));
+        result.put("elapsedMillis", elapsedMicros / 1000.0);
+        return result;
+    }
+
+    // { "months": 37, "date": "2029-11-18" }, or nulls if that share of paths
+    // doesn't reach the goal within the horizon
+    private Map<String, Object> percentileRow(long[] finished, int simulated, double share, LocalDate today) {
+        int m = percentile(finished, simulated, share);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("months", m < 0 ? null : m);
+        row.put("date", m < 0 ? null : today.plusMonths(m).toString());
+        return row;
+    }
+}
@@ -0,0 +1,95 @@
+// Counts how long something took, in nanoseconds, without any locks.
+//
+// It works like an HdrHistogram: values below 16 get a bucket each, and above
+// that every power of two is split into 16 equal buckets. So a bucket is never
+// wider than 1/16 of the values in it, and any percentile read back is off by
+// at most ~6%, whether it's 40 microseconds or 4 seconds. That is 592 buckets
+// (one AtomicLongArray) for everything up to ~18 minutes; anything longer is
+// counted in the last bucket.
+//
+// Recording is one increment on the bucket plus one add to the total, so many
+// requests can record at once. Reading walks the buckets once. The numbers
+// are since startup (they are never reset).
+
+package com.gradgoals;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;   // buckets per power of two
+    private static final int MAX_BITS = 40;         // 2^40 ns is about 18 minutes
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+
+    void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.getAndIncrement(bucket(value));
+        sum.add(value);
+    }
+
+    // Which bucket a value goes in
+    static int bucket(long value) {
+        if (value < SUB) {
+            return (int) value;
+        }
+        int highBit = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (highBit - SUB_BITS)) & (SUB - 1);
+        return (highBit - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // The largest value that lands in a bucket
+    static long highestIn(int bucket) {
+        if (bucket < SUB) {
+            return bucket;
+        }
+        int shift = bucket / SUB - 1;
+        long lowest = (long) (SUB + bucket % SUB) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    // The counts at one moment, so the percentiles and the count match up
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, sum.sum());
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        final long count;
+        final long sumNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+        }
+
+        // Nanoseconds that 'quantile' (0.0 - 1.0) of the values were at or under.
+        // 0 when nothing was recorded.
+        long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestIn(i);
+                }
+            }
+            return MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+// This class keeps the challenge leaderboards: one for every category, plus
+// a global one that adds up all of a user's categories.
+//
+// Users are ranked by correct answers, then by accuracy (see RankTree for the
+// exact order). Each board is a RankTree, so after every answer moving the
+// user to their new spot costs O(log n), and /api/leaderboard can send the
+// top K plus "you are #1234" without looking at everyone else.
+//
+// The counts themselves still live in ProgressMatrix. Each board takes the
+// user's current counts from there while it holds its lock, instead of
+// trusting numbers handed to it. That way two answers from the same user
+// racing each other can't leave an older score on the board.
+//
+// Moving users is kept off the answer path: answered() only marks the user
+// (and the category) as changed in a ConcurrentHashMap, which doesn't make
+// different users wait for each other. One "leaderboard-updater" thread
+// moves everyone marked, so only it takes the boards' write locks, and the
+// busy global board isn't a lock every answer queues on. It sleeps (parked)
+// until an answer wakes it; answers that come in while it is busy are picked
+// up in its next batch without waking it again. Reading a board first applies whatever is still marked, so a user
+// always sees their own answers on it.
+//
+// Standard library concurrent maps (ConcurrentSkipListMap etc.) keep things
+// sorted, but they can only count "how many are ahead of me" by walking
+// them, so each board is a RankTree behind a read/write lock instead: many
+// readers at once, one answer at a time.
+//
+// The boards are only in memory. On startup they are rebuilt from the
+// progress file, which is one pass over every row.
+
+package com.gradgoals;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class Leaderboards implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(Leaderboards.class);
+
+    static final String GLOBAL = "global";
+    static final int MAX_LIMIT = 100;
+
+    private final ProgressMatrix progress;
+    private final Board global = new Board(GLOBAL, -1);
+    private final Map<String, Board> byCategory = new ConcurrentHashMap<>();
+
+    // userId -> category slots answered since the boards last moved them (one bit each)
+    private final Map<String, Integer> changed = new ConcurrentHashMap<>();
+    // held while moving the marked users, so a reader can wait for a batch in progress
+    private final ReentrantLock updating = new ReentrantLock();
+    private volatile Thread updater;
+    // set when a user is marked, cleared by the updater before each batch
+    private volatile boolean pending;
+    private volatile boolean stopped;
+
+    @Autowired
+    public Leaderboards(ProgressMatrix progress) {
+        this.progress = progress;
+        // rebuild from the progress that was already saved
+        for (Map.Entry<String, Integer> user : progress.rowsByUser().entrySet()) {
+            refreshAll(user.getKey(), user.getValue());
+        }
+    }
+
+    // Called after ProgressMatrix counted an answer. Only marks the user;
+    // the updater thread (or the next read) moves them on the boards.
+    void answered(String userId, String categoryId) {
+        int slot = progress.slot(categoryId);
+        if (slot < 0) {
+            return;
+        }
+        changed.merge(userId, 1 << slot, (a, b) -> a | b);
+        if (!pending) {
+            pending = true;
+            Thread t = updater;
+            if (t == null) {
+                startUpdater();
+            } else {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+
+    // Moves every marked user to where their current counts belong
+    void update() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        updating.lock();
+        try {
+            for (String userId : changed.keySet()) {
+                Integer slots = changed.remove(userId);
+                int row = progress.row(userId);
+                if (slots == null || row < 0) {
+                    continue;
+                }
+                for (int bits = slots; bits != 0; bits &= bits - 1) {
+                    int slot = Integer.numberOfTrailingZeros(bits);
+                    board(progress.categoryAt(slot), slot).refresh(userId, row);
+                }
+                global.refresh(userId, row);
+            }
+        } finally {
+            updating.unlock();
+        }
+    }
+
+    private synchronized void startUpdater() {
+        if (updater != null || stopped) {
+            return;
+        }
+        Thread t = new Thread(() -> {
+            while (!stopped) {
+                // Cleared before the batch: a user marked after this point
+                // either makes it into the batch or sets it again
+                pending = false;
+                try {
+                    update();
+                } catch (RuntimeException e) {
+                    log.error("Leaderboard update failed", e);
+                }
+                while (!pending && !stopped) {
+                    LockSupport.park(this);
+                }
+            }
+        }, "leaderboard-updater");
+        t.setDaemon(true);
+        t.start();
+        updater = t;
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+        Thread t = updater;
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    // Puts the user where their current counts belong on every board
+    private void refreshAll(String userId, int row) {
+        for (int slot = 0; slot < progress.slotCount(); slot++) {
+            board(progress.categoryAt(slot), slot).refresh(userId, row);
+        }
+        global.refresh(userId, row);
+    }
+
+    // Called after a user's progress was reset (drops them from every board)
+    void reset(String userId) {
+        int row = progress.row(userId);
+        if (row >= 0) {
+            refreshAll(userId, row);
+        }
+    }
+
+    // The top 'limit' users of a board plus where 'userId' stands.
+    // 'categoryId' is null for the global board. An unknown category has an
+    // empty board.
+    Map<String, Object> standings(String categoryId, String userId, int limit) {
+        update();
+        Board board = categoryId == null ? global : byCategory.get(categoryId);
+        if (board == null) {
+            board = new Board(categoryId, -1); // nobody has answered here yet
+        }
+        return board.standings(userId, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    // How many users are on the global board
+    int users() {
+        update();
+        return global.size();
+    }
+
+    private Board board(String categoryId, int slot) {
+        Board board = byCategory.get(categoryId);
+        return board != null ? board : byCategory.computeIfAbsent(categoryId, c -> new Board(c, slot));
+    }
+
+    // One leaderboard
+    private final class Board {
+        private final String name;
+        private final int slot;  // category slot in ProgressMatrix, -1 = all of them
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final RankTree tree = new RankTree();
+        private final Map<String, RankTree.Entry> entries = new HashMap<>();
+
+        Board(String name, int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        // Moves the user to where their current counts put them
+        void refresh(String userId, int row) {
+            lock.writeLock().lock();
+            try {
+                long counts = slot < 0 ? progress.totals(row) : progress.counts(row, slot);
+                int attempts = ProgressMatrix.attemptsOf(counts);
+                int correct = ProgressMatrix.correctOf(counts);
+                RankTree.Entry old = entries.get(userId);
+                if (old != null) {
+                    if (old.attempts == attempts && old.correct == correct) {
+                        return;
+                    }
+                    tree.remove(old);
+                }
+                if (attempts == 0) {
+                    entries.remove(userId); // reset (or never played here)
+                    return;
+                }
+                RankTree.Entry entry = new RankTree.Entry(correct, attempts, userId);
+                tree.add(entry);
+                entries.put(userId, entry);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return tree.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Map<String, Object> standings(String userId, int limit) {
+            List<Map<String, Object>> top = new ArrayList<>(limit);
+            Map<String, Object> you = null;
+            int users;
+
+            lock.readLock().lock();
+            try {
+                users = tree.size();
+                RankTree.Entry previous = null;
+                int rank = 0;
+                List<RankTree.Entry> leaders = tree.top(limit);
+                for (int i = 0; i < leaders.size(); i++) {
+                    RankTree.Entry entry = leaders.get(i);
+                    // tied users share a rank (1, 2, 2, 4, ...)
+                    if (previous == null || !entry.sameScore(previous)) {
+                        rank = i + 1;
+                    }
+                    top.add(row(rank, entry));
+                    previous = entry;
+                }
+                RankTree.Entry mine = userId == null ? null : entries.get(userId);
+                if (mine != null) {
+                    you = row(1 + tree.countBetter(mine.correct, mine.attempts), mine);
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("board", name);
+            result.put("users", users);
+            result.put("top", top);
+            result.put("you", you);
+            return result;
+        }
+    }
+
+    private static Map<String, Object> row(int rank, RankTree.Entry entry) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("rank", rank);
+        row.put("userId", entry.userId);
+        row.put("correct", entry.correct);
+        row.put("attempts", entry.attempts);
+        // percent with one decimal, e.g. 87.5
+        row.put("accuracy", Math.round(entry.correct * 1000.0 / entry.attempts) / 10.0);
+        return row;
+    }
+}
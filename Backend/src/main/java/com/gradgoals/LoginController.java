@@ -3,6 +3,7 @@ package com.gradgoals;
 
 
 // Imports for Spring Boot web handling (controllers, REST annotations, HTTP responses)
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
@@ -23,9 +24,19 @@ public class LoginController {
     // Dependency: The client used to interact with your Supabase database
     private final SupabaseClient supabaseClient;
 
-    // Constructor Injection: Spring Boot automatically injects the configured SupabaseClient here.
+    // Counts password checks (see /api/metrics)
+    private final Metrics metrics;
+
+    // Without Spring (tests): counts into its own Metrics
     public LoginController(SupabaseClient supabaseClient) {
+        this(supabaseClient, new Metrics());
+    }
+
+    // Constructor Injection: Spring Boot automatically injects the configured SupabaseClient here.
+    @Autowired
+    public LoginController(SupabaseClient supabaseClient, Metrics metrics) {
         this.supabaseClient = supabaseClient;
+        this.metrics = metrics;
     }
 
     /**
@@ -56,7 +67,10 @@ public class LoginController {
 
         // 3. Password Verification: Use BCrypt to compare the raw input password against the stored hash.
         // checkpw() handles the salting and hashing logic securely.
-        if (BCrypt.checkpw(inputPassword, storedPasswordHash)) {
+        boolean matches = BCrypt.checkpw(inputPassword, storedPasswordHash);
+        metrics.counter("gradgoals_bcrypt_verifications_total", "BCrypt password checks at login",
+                matches ? "result=\"match\"" : "result=\"mismatch\"").increment();
+        if (matches) {
             // Success: Password matches
             response.put("message", "Login successful!");
             response.put("username", inputUsername); // Send username back so frontend can store it in localStorage
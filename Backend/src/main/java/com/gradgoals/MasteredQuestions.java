@@ -0,0 +1,186 @@
+// This class remembers which questions each user has already mastered
+// (answered correctly), so /api/challenge/next can hand out only the ones
+// they still need to learn.
+//
+// The frontend used to keep this list itself and just ask /api/challenge
+// again whenever it got a mastered question back. The better the student
+// got, the more round trips that took.
+//
+// For each user and category there is one bit per question in that
+// category's pool (1 = mastered). Picking a question:
+//   - while at least half of the pool is still unmastered, pick a random
+//     spot and try again if it is mastered. That takes fewer than 2 tries
+//     on average.
+//   - once most of it is mastered, pick a random number k below the
+//     unmastered count and jump straight to the k-th 0 bit, counting 64
+//     questions at a time with Long.bitCount.
+// Either way no retries go back to the browser.
+//
+// Random numbers come from ThreadLocalRandom, so request threads don't all
+// fight over one shared Random.
+//
+// The pools come from the current QuestionIndex. When the question bank is
+// reloaded (see QuestionBank) the pool arrays change, and the bits are moved
+// over to the new positions by question id the next time the user shows up.
+//
+// Unlike the progress counts (ProgressMatrix keeps those in a file) the bits
+// only live in memory, so a restart forgets them: afterwards a user can get
+// questions they had already mastered until they answer them again. The
+// bits are cleared with the user's progress.
+
+package com.gradgoals;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class MasteredQuestions {
+
+    // userId -> (lowercase category id -> that category's bits)
+    private final Map<String, Map<String, Category>> users = new ConcurrentHashMap<>();
+
+    // A random question from 'category' that the user hasn't mastered yet,
+    // or null if they have mastered all of them (or the category is empty)
+    ChallengeQuestion next(String userId, QuestionIndex index, String category) {
+        ChallengeQuestion[] pool = index.pool(category);
+        if (pool.length == 0) {
+            return null;
+        }
+        Map<String, Category> categories = users.get(userId);
+        Category mastered = categories == null ? null : categories.get(key(category));
+        if (mastered == null) {
+            // nothing mastered here yet, so any question will do
+            return pool[ThreadLocalRandom.current().nextInt(pool.length)];
+        }
+        return mastered.pick(index, pool);
+    }
+
+    // Marks a question as mastered
+    void master(String userId, QuestionIndex index, ChallengeQuestion question) {
+        String category = key(question.getCategoryId());
+        ChallengeQuestion[] pool = index.pool(category);
+        if (pool.length == 0) {
+            return;
+        }
+        users.computeIfAbsent(userId, u -> new ConcurrentHashMap<>())
+             .computeIfAbsent(category, c -> new Category(pool))
+             .master(index, pool, question.getId());
+    }
+
+    // How many questions in the category the user has mastered
+    int masteredCount(String userId, QuestionIndex index, String category) {
+        Map<String, Category> categories = users.get(userId);
+        Category mastered = categories == null ? null : categories.get(key(category));
+        return mastered == null ? 0 : mastered.count(index, index.pool(category));
+    }
+
+    // Forgets everything the user mastered (used when progress is reset)
+    void reset(String userId) {
+        users.remove(userId);
+    }
+
+    // How many users have mastered something
+    int users() {
+        return users.size();
+    }
+
+    private static String key(String category) {
+        return category.toLowerCase(Locale.ROOT);
+    }
+
+    // One user's bits for one category. A user rarely sends two requests at
+    // once, so a plain lock per category is plenty.
+    private static final class Category {
+        private ChallengeQuestion[] pool;  // the pool the bits were built for
+        private long[] bits;
+        private int mastered;
+
+        Category(ChallengeQuestion[] pool) {
+            this.pool = pool;
+            this.bits = emptyBits(pool.length);
+        }
+
+        synchronized ChallengeQuestion pick(QuestionIndex index, ChallengeQuestion[] current) {
+            follow(index, current);
+            int left = pool.length - mastered;
+            if (left == 0) {
+                return null;
+            }
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (left * 2 >= pool.length) {
+                while (true) {
+                    int i = random.nextInt(pool.length);
+                    if ((bits[i >>> 6] & (1L << i)) == 0) {
+                        return pool[i];
+                    }
+                }
+            }
+            // mostly mastered: find the k-th unmastered question directly
+            int k = random.nextInt(left);
+            for (int w = 0; ; w++) {
+                long open = ~bits[w];
+                int n = Long.bitCount(open);
+                if (k < n) {
+                    for (; k > 0; k--) {
+                        open &= open - 1; // drop the lowest open bit
+                    }
+                    return pool[(w << 6) + Long.numberOfTrailingZeros(open)];
+                }
+                k -= n;
+            }
+        }
+
+        synchronized void master(QuestionIndex index, ChallengeQuestion[] current, int questionId) {
+            follow(index, current);
+            int i = index.poolPosition(questionId);
+            if (i >= 0 && i < pool.length && pool[i].getId() == questionId
+                    && (bits[i >>> 6] & (1L << i)) == 0) {
+                bits[i >>> 6] |= 1L << i;
+                mastered++;
+            }
+        }
+
+        synchronized int count(QuestionIndex index, ChallengeQuestion[] current) {
+            if (current.length == 0) {
+                return 0; // the category is gone from the bank
+            }
+            follow(index, current);
+            return mastered;
+        }
+
+        // If the bank was reloaded, move the bits over to the new pool by question id
+        private void follow(QuestionIndex index, ChallengeQuestion[] current) {
+            if (current == pool) {
+                return;
+            }
+            long[] moved = emptyBits(current.length);
+            int count = 0;
+            for (int i = 0; i < pool.length; i++) {
+                if ((bits[i >>> 6] & (1L << i)) == 0) {
+                    continue;
+                }
+                int id = pool[i].getId();
+                int at = index.poolPosition(id);
+                // the question may be gone, or have moved to another category
+                if (at >= 0 && at < current.length && current[at].getId() == id) {
+                    moved[at >>> 6] |= 1L << at;
+                    count++;
+                }
+            }
+            pool = current;
+            bits = moved;
+            mastered = count;
+        }
+
+        // All 0s, except the unused bits at the end of the last word, which are
+        // set so they never look like an unmastered question
+        private static long[] emptyBits(int length) {
+            long[] bits = new long[(length + 63) >>> 6];
+            if ((length & 63) != 0) {
+                bits[bits.length - 1] = -1L << (length & 63);
+            }
+            return bits;
+        }
+    }
+}
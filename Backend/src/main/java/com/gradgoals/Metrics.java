@@ -0,0 +1,177 @@
+// This class holds the app's numbers for monitoring, and writes them out in
+// the Prometheus text format for GET /api/metrics (see MetricsController).
+//
+// There are three kinds:
+//   - latency per endpoint: a LatencyHistogram for every method + URL
+//     pattern, filled in by EndpointTimer. Written out as a "summary" with the
+//     50th/90th/99th/99.9th percentiles, since startup.
+//   - counters: things that only go up (Supabase calls, BCrypt checks).
+//     Each one is a LongAdder, so counting never waits on a lock.
+//   - gauges: numbers read when /api/metrics is asked (how many users each
+//     per-user map holds). The class that owns the map registers a function
+//     that reads its size.
+//
+// Every series is a metric name plus its labels, e.g.
+//   gradgoals_supabase_calls_total{operation="get_password",outcome="ok"} 12
+// Labels are passed in already written out (operation="get_password",...).
+//
+// It also owns the EventLog the controllers use instead of printing DEBUG
+// lines, and reports how many lines it logged.
+
+package com.gradgoals;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+@Component
+public class Metrics {
+
+    static final String LATENCY = "gradgoals_http_server_requests_seconds";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // name -> family, sorted so the output is always in the same order
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    // "GET /api/progress" -> its histogram (labels are kept next to it)
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final EventLog events;
+
+    // Used by classes created with new (tests): logs 1 in 100 events
+    public Metrics() {
+        this(100);
+    }
+
+    @Autowired
+    public Metrics(@Value("${gradgoals.metrics.log-sample:100}") int logSampleEvery) {
+        this.events = new EventLog(logSampleEvery);
+        counter("gradgoals_event_log_lines_total", "Event log lines logged", "", events::logged);
+    }
+
+    EventLog events() {
+        return events;
+    }
+
+    // ---------------------------------------------------------
+    // LATENCY
+    // ---------------------------------------------------------
+
+    // The histogram for one endpoint (made the first time it's asked for)
+    LatencyHistogram endpoint(String method, String uri) {
+        Endpoint endpoint = endpoints.get(method + " " + uri);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(method + " " + uri, k -> new Endpoint(
+                    "method=\"" + escape(method) + "\",uri=\"" + escape(uri) + "\""));
+        }
+        return endpoint.histogram;
+    }
+
+    private static final class Endpoint {
+        final String labels;
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        Endpoint(String labels) {
+            this.labels = labels;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // COUNTERS AND GAUGES
+    // ---------------------------------------------------------
+
+    // The counter for a name + labels (made the first time it's asked for).
+    // Callers just do metrics.counter(...).increment().
+    LongAdder counter(String name, String help, String labels) {
+        Family family = family(name, help, "counter");
+        LongAdder adder = family.adders.get(labels);
+        if (adder == null) {
+            adder = family.adders.computeIfAbsent(labels, l -> {
+                LongAdder made = new LongAdder();
+                family.series.put(l, made::sum);
+                return made;
+            });
+        }
+        return adder;
+    }
+
+    // A counter someone else keeps; 'value' is read on every scrape
+    void counter(String name, String help, String labels, LongSupplier value) {
+        family(name, help, "counter").series.put(labels, value);
+    }
+
+    // A gauge; 'value' is read on every scrape. Registering the same name +
+    // labels again replaces the old one.
+    void gauge(String name, String help, String labels, LongSupplier value) {
+        family(name, help, "gauge").series.put(labels, value);
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.get(name);
+        return family != null ? family : families.computeIfAbsent(name, n -> new Family(help, type));
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        final Map<String, LongSupplier> series = new ConcurrentSkipListMap<>();
+        final Map<String, LongAdder> adders = new ConcurrentHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // PROMETHEUS TEXT
+    // ---------------------------------------------------------
+
+    String prometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> f : families.entrySet()) {
+            Family family = f.getValue();
+            header(out, f.getKey(), family.help, family.type);
+            for (Map.Entry<String, LongSupplier> s : family.series.entrySet()) {
+                sample(out, f.getKey(), s.getKey(), Long.toString(s.getValue().getAsLong()));
+            }
+        }
+
+        header(out, LATENCY, "Time spent handling requests, per endpoint, since startup", "summary");
+        for (Endpoint endpoint : new ConcurrentSkipListMap<>(endpoints).values()) {
+            LatencyHistogram.Snapshot snap = endpoint.histogram.snapshot();
+            for (double q : QUANTILES) {
+                sample(out, LATENCY, endpoint.labels + ",quantile=\"" + q + "\"", seconds(snap.valueAt(q)));
+            }
+            sample(out, LATENCY + "_sum", endpoint.labels, seconds(snap.sumNanos));
+            sample(out, LATENCY + "_count", endpoint.labels, Long.toString(snap.count));
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    // Label values can't have a raw quote, backslash or newline in them
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
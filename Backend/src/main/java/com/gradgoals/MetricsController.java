@@ -0,0 +1,20 @@
+package com.gradgoals;
+
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+public class MetricsController {
+
+    private final Metrics metrics;
+
+    public MetricsController(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Latency per endpoint, Supabase and BCrypt counters, and how many users
+    // each per-user map holds, in the Prometheus text format (for a scraper)
+    @GetMapping(value = "/api/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String metrics() {
+        return metrics.prometheus();
+    }
+}
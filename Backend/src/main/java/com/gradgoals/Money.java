@@ -0,0 +1,140 @@
+// Helpers for working with money as a whole number of cents (a long).
+//
+// Budget items, totals and savings goals store their amounts as long cents,
+// so adding and subtracting them is exact: no floating point drift, and no
+// BigDecimal or String objects created just to round a number. The JSON the
+// frontend sees is unchanged, because getters convert back to dollars as a
+// double (which is always the closest double to the exact cents value).
+//
+// Java has no value types, so "money" stays a plain long instead of an object;
+// these static methods do the conversions, parsing and rounding without
+// allocating anything.
+
+package com.gradgoals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+
+    // Largest amount we accept, in dollars (keeps every cents value well inside a long
+    // and keeps doubles exact to the cent)
+    static final double MAX_DOLLARS = 1e13;
+
+    private Money() {}
+
+    // Converts dollars to cents, rounding half away from zero like the old
+    // BigDecimal rounding did ("1.005" -> 101 cents, "-2.345" -> -235 cents)
+    public static long fromDollars(double dollars) {
+        if (!Double.isFinite(dollars) || Math.abs(dollars) > MAX_DOLLARS) {
+            throw new IllegalArgumentException("Amount is not a valid number of dollars: " + dollars);
+        }
+        double scaled = Math.abs(dollars) * 100.0;
+        // A few ulps of slack so values like 1.005 (stored as 1.00499999...) round
+        // the way they are written, which is what new BigDecimal("" + v) did
+        long cents = (long) Math.floor(scaled + 0.5 + 8 * Math.ulp(scaled));
+        return dollars < 0 ? -cents : cents;
+    }
+
+    // Converts cents back to dollars for JSON and display
+    public static double toDollars(long cents) {
+        return cents / 100.0;
+    }
+
+    // Rounds a dollar amount to two decimal places without allocating
+    public static double round(double dollars) {
+        if (!Double.isFinite(dollars) || Math.abs(dollars) > MAX_DOLLARS) {
+            return dollars;
+        }
+        return toDollars(fromDollars(dollars));
+    }
+
+    // Reads an amount from a JSON request body value: a number or a numeric string
+    public static long parse(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Amount is required.");
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            long dollars = ((Number) value).longValue();
+            if (Math.abs(dollars) > MAX_DOLLARS) {
+                throw new IllegalArgumentException("Amount is too large: " + dollars);
+            }
+            return dollars * 100;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        }
+        if (value instanceof Number) {
+            return fromDollars(((Number) value).doubleValue());
+        }
+        return parse(value.toString());
+    }
+
+    // Parses a plain decimal like "1200", "-45.5" or "19.999" straight into
+    // cents, digit by digit (anything past the cents is rounded half up).
+    // Falls back to Double.parseDouble for unusual forms such as "1e3".
+    public static long parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+        if (start == end) {
+            throw new IllegalArgumentException("Amount is required.");
+        }
+
+        boolean negative = false;
+        int i = start;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long cents = 0;
+        int digits = 0;
+        int decimals = -1;  // -1 until we see the decimal point
+        boolean roundUp = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (decimals < 0) {
+                    cents = cents * 10 + (c - '0');
+                    if (cents > MAX_DOLLARS) {
+                        throw new IllegalArgumentException("Amount is too large: " + text);
+                    }
+                } else if (decimals < 2) {
+                    cents = cents * 10 + (c - '0');
+                    decimals++;
+                } else if (decimals == 2) {
+                    roundUp = c >= '5';
+                    decimals++;
+                }
+            } else {
+                return fallback(text);
+            }
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Amount is not a number: " + text);
+        }
+
+        // scale up to exactly two decimal places
+        for (int d = Math.max(decimals, 0); d < 2; d++) {
+            cents *= 10;
+        }
+        if (roundUp) {
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+
+    private static long fallback(CharSequence text) {
+        try {
+            return fromDollars(Double.parseDouble(text.toString().trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Amount is not a number: " + text);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+// This class evaluates the credit card payoff for a whole grid of APRs and
+// monthly payments at once ("what if I paid $X more?").
+//
+// The grid is split into blocks with fork/join so every core works on it,
+// and each point uses the closed-form payoff from BudgetToolCode. Results go
+// straight into primitive arrays (one row per APR, one column per payment);
+// no CreditCardResult or boxed number is created per point.
+
+package com.gradgoals;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+class PayoffSweep {
+
+    // Largest grid one request may ask for
+    static final int MAX_POINTS = 1_000_000;
+
+    // Grid points handled by one fork/join task before it stops splitting
+    private static final int LEAF_SIZE = 2048;
+
+    // months[i][j] for aprs[i] and payments[j]; -1 means the card is never
+    // paid off (payment doesn't cover the interest, or it would take longer
+    // than BudgetToolCode.MAX_MONTHS)
+    final int[][] months;
+
+    // total interest paid in cents-rounded dollars; 0 where months is -1
+    final double[][] totalInterest;
+
+    private final double balance;
+    private final double[] aprs;
+    private final double[] payments;
+
+    PayoffSweep(double balance, double[] aprs, double[] payments) {
+        if (aprs == null || payments == null || aprs.length == 0 || payments.length == 0) {
+            throw new IllegalArgumentException("aprs and payments must both have at least one value.");
+        }
+        if ((long) aprs.length * payments.length > MAX_POINTS) {
+            throw new IllegalArgumentException("Grid is too large (max " + MAX_POINTS + " points).");
+        }
+        this.balance = balance;
+        this.aprs = aprs;
+        this.payments = payments;
+        this.months = new int[aprs.length][payments.length];
+        this.totalInterest = new double[aprs.length][payments.length];
+    }
+
+    // Fills in the whole grid using the given pool and returns this sweep
+    PayoffSweep run(ForkJoinPool pool) {
+        pool.invoke(new Block(0, aprs.length * payments.length));
+        return this;
+    }
+
+    PayoffSweep run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    // Works out one grid point and writes it into the result arrays
+    private void evaluate(int row, int col) {
+        double monthlyRate = aprs[row] / 100.0 / 12.0;
+        double payment = payments[col];
+
+        if (balance <= 0) {
+            months[row][col] = 0;
+            totalInterest[row][col] = 0;
+            return;
+        }
+        if (payment <= 0 || payment <= balance * monthlyRate || monthlyRate < 0) {
+            months[row][col] = -1;
+            totalInterest[row][col] = 0;
+            return;
+        }
+
+        int m = BudgetToolCode.payoffMonths(balance, monthlyRate, payment);
+        if (m > BudgetToolCode.MAX_MONTHS) {
+            months[row][col] = -1;
+            totalInterest[row][col] = 0;
+            return;
+        }
+        months[row][col] = m;
+        double interest = BudgetToolCode.payoffInterest(balance, monthlyRate, payment, m);
+        totalInterest[row][col] = Money.round(interest);
+    }
+
+    // A contiguous range of grid points [from, to) in row-major order
+    private final class Block extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // ForkJoinTask is Serializable; never actually serialized
+
+        private final int from;
+        private final int to;
+
+        Block(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                int cols = payments.length;
+                for (int i = from; i < to; i++) {
+                    evaluate(i / cols, i % cols);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Block(from, mid), new Block(mid, to));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.gradgoals;
+
+// This class represents the body of a credit card "what if" sweep request.
+// The frontend sends one balance plus a list of APRs and a list of monthly
+// payments; the backend works out the payoff for every APR/payment pair.
+// The lists come in as primitive arrays so Spring doesn't box every number.
+public class PayoffSweepRequest {
+
+    // the card balance every grid point starts from
+    private double balance;
+
+    // APRs to try, in percent (e.g. 19.99)
+    private double[] aprs;
+
+    // monthly payments to try
+    private double[] payments;
+
+    // Empty constructor needed by Spring so it can build this object from JSON
+    public PayoffSweepRequest() {
+    }
+
+    // Constructor used when creating a request manually (tests, benchmarks)
+    public PayoffSweepRequest(double balance, double[] aprs, double[] payments) {
+        this.balance = balance;
+        this.aprs = aprs;
+        this.payments = payments;
+    }
+
+    public double getBalance() {
+        return balance;
+    }
+
+    public void setBalance(double balance) {
+        this.balance = balance;
+    }
+
+    public double[] getAprs() {
+        return aprs;
+    }
+
+    public void setAprs(double[] aprs) {
+        this.aprs = aprs;
+    }
+
+    public double[] getPayments() {
+        return payments;
+    }
+
+    public void setPayments(double[] payments) {
+        this.payments = payments;
+    }
+}
@@ -0,0 +1,480 @@
+// This class stores challenge progress (attempts + correct answers for every
+// user and category) in a memory-mapped file.
+//
+// The file is a simple fixed-width table:
+//
+//   header (4 KB)   magic, version, sizes, row count, and the category table
+//                   (slot number -> category id, e.g. slot 0 = "budgeting")
+//   row 0           [userId][attempts, correct][attempts, correct]... one pair per category slot
+//   row 1           ...
+//
+// Every user gets one row, and every category gets one fixed slot in each row,
+// so finding a counter is just arithmetic: row * ROW_BYTES + slot * 8.
+//
+// A slot's two counters sit next to each other in one 8-byte word (attempts
+// in the low half, correct in the high half, little-endian), and an answer
+// updates both with a single atomic getAndAdd on that word. So:
+//   - answers from many threads never lose a count, there is no retry loop
+//     (it is one locked add, not a compare-and-swap), and nothing is allocated
+//   - reading the word once gives a matching pair, so a reader can never see
+//     the correct count ahead of the attempts (correct <= attempts always)
+// Two separate counters (or two LongAdders) can't promise that last part,
+// because a reader can land between the two updates.
+//
+// Changes that touch several slots at once (a batch of answers, a reset)
+// also bump a small version number for the row (a "seqlock", kept in
+// memory only): odd while the change is being made, even again once it is
+// done. snapshot() and totals() read the row and try again if the version
+// moved, so they see the whole batch or none of it. Single answers don't
+// need it, since they only touch one word.
+//
+// An in-memory map from userId to row number is rebuilt from the file at
+// startup by reading the row ids; there is no log to replay.
+//
+// Because the counters live in the mapping, a crash or redeploy of the
+// process keeps everything the OS has already been handed (which is every
+// completed update). force() asks the OS to write dirty pages to disk; it runs
+// on shutdown.
+//
+// Without a data directory the same layout lives in direct ByteBuffers, so
+// tests and local runs behave the same way without touching disk.
+
+package com.gradgoals;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class ProgressMatrix implements DisposableBean {
+
+    private static final int MAGIC = 0x47475031;     // "GGP1"
+    private static final int VERSION = 1;
+
+    static final int CATEGORY_SLOTS = 32;           // most categories the file can hold
+    static final int USER_ID_BYTES = 128;           // 2 byte length + up to 126 bytes of UTF-8
+    private static final int CATEGORY_ID_BYTES = 32;
+    static final int MAX_USER_ID_BYTES = USER_ID_BYTES - 2;          // longest user id, in UTF-8 bytes
+    static final int MAX_CATEGORY_ID_BYTES = CATEGORY_ID_BYTES - 2;  // longest category id, in UTF-8 bytes
+    private static final int HEADER_BYTES = 4096;
+    static final int ROW_BYTES = USER_ID_BYTES + CATEGORY_SLOTS * 8;
+    private static final int SEGMENT_ROWS = 4096;   // rows are mapped in chunks of this many
+    private static final int SEGMENT_BYTES = SEGMENT_ROWS * ROW_BYTES;
+
+    // header offsets
+    private static final int H_ROWS = 16;
+    private static final int H_CATEGORIES = 20;
+    private static final int H_CATEGORY_TABLE = 24;
+
+    // Atomic access straight on the (mapped or direct) buffers. Rows start at
+    // multiples of 8 bytes, so every slot word is 8-byte aligned as atomics need.
+    private static final VarHandle LONG =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // What one answer adds to a slot word
+    private static final long ONE_ATTEMPT = 1L;
+    private static final long ONE_CORRECT = 1L << 32;
+
+    // Seqlock versions; rows share them round-robin (row % ROW_LOCKS)
+    private static final int ROW_LOCKS = 256;
+    private final AtomicLongArray versions = new AtomicLongArray(ROW_LOCKS);
+
+    private final FileChannel channel;              // null when running in memory
+    private final ByteBuffer header;
+    private volatile ByteBuffer[] segments = new ByteBuffer[0];
+
+    private final Map<String, Integer> rows = new ConcurrentHashMap<>();
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private volatile String[] slotNames = new String[0];
+    private int rowCount;                           // guarded by 'this'
+
+    // In-memory matrix (tests, or no data directory configured)
+    ProgressMatrix() {
+        this.channel = null;
+        this.header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        writeNewHeader();
+    }
+
+    @Autowired
+    public ProgressMatrix(@Value("${gradgoals.data-dir:}") String dataDir) throws IOException {
+        this(dataDir == null || dataDir.isBlank() ? null : Paths.get(dataDir).resolve("progress.dat"));
+    }
+
+    ProgressMatrix(Path file) throws IOException {
+        if (file == null) {
+            this.channel = null;
+            this.header = ByteBuffer.allocateDirect(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            writeNewHeader();
+            return;
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() == 0;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (fresh) {
+            writeNewHeader();
+        } else {
+            load();
+        }
+    }
+
+    private void writeNewHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, CATEGORY_SLOTS);
+        header.putInt(12, USER_ID_BYTES);
+        header.putInt(H_ROWS, 0);
+        header.putInt(H_CATEGORIES, 0);
+    }
+
+    // Rebuilds the userId -> row and category -> slot maps from the file
+    private void load() throws IOException {
+        if (header.getInt(0) != MAGIC || header.getInt(8) != CATEGORY_SLOTS || header.getInt(12) != USER_ID_BYTES) {
+            throw new IOException("progress.dat has an unknown format");
+        }
+        int categories = header.getInt(H_CATEGORIES);
+        String[] names = new String[categories];
+        for (int s = 0; s < categories; s++) {
+            names[s] = readString(header, H_CATEGORY_TABLE + s * CATEGORY_ID_BYTES);
+            slots.put(names[s], s);
+        }
+        slotNames = names;
+
+        rowCount = header.getInt(H_ROWS);
+        ensureSegments(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.put(readString(segment(row), offset(row)), row);
+        }
+    }
+
+    // ---------------------------------------------------------
+    // ROWS AND SLOTS
+    // ---------------------------------------------------------
+
+    // Row for a user, or -1 if the user has never answered anything
+    int row(String userId) {
+        Integer row = rows.get(userId);
+        return row == null ? -1 : row;
+    }
+
+    // Row for a user, giving them a new one if needed
+    private int rowFor(String userId) {
+        Integer row = rows.get(userId);
+        if (row != null) {
+            return row;
+        }
+        byte[] id = userId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_USER_ID_BYTES) {
+            throw new IllegalArgumentException("User id is too long (at most " + MAX_USER_ID_BYTES + " bytes).");
+        }
+        synchronized (this) {
+            row = rows.get(userId);
+            if (row != null) {
+                return row;
+            }
+            int next = rowCount;
+            ensureSegments(next + 1);
+            ByteBuffer seg = segment(next);
+            int at = offset(next);
+            writeString(seg, at, id);
+            // the row only counts once the header says so
+            rowCount = next + 1;
+            header.putInt(H_ROWS, rowCount);
+            rows.put(userId, next);
+            return next;
+        }
+    }
+
+    // Slot for a category, or -1 if it has none yet
+    int slot(String categoryId) {
+        Integer slot = slots.get(categoryId);
+        return slot == null ? -1 : slot;
+    }
+
+    private int slotFor(String categoryId) {
+        Integer slot = slots.get(categoryId);
+        if (slot != null) {
+            return slot;
+        }
+        byte[] id = categoryId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_CATEGORY_ID_BYTES) {
+            throw new IllegalArgumentException("Category id is too long: " + categoryId);
+        }
+        synchronized (this) {
+            slot = slots.get(categoryId);
+            if (slot != null) {
+                return slot;
+            }
+            int next = header.getInt(H_CATEGORIES);
+            if (next >= CATEGORY_SLOTS) {
+                throw new IllegalStateException("No room for another challenge category.");
+            }
+            writeString(header, H_CATEGORY_TABLE + next * CATEGORY_ID_BYTES, id);
+            header.putInt(H_CATEGORIES, next + 1);
+            String[] names = Arrays.copyOf(slotNames, next + 1);
+            names[next] = categoryId;
+            slotNames = names;
+            slots.put(categoryId, next);
+            return next;
+        }
+    }
+
+    // Category id stored in a slot
+    String categoryAt(int slot) {
+        return slotNames[slot];
+    }
+
+    int slotCount() {
+        return slotNames.length;
+    }
+
+    // ---------------------------------------------------------
+    // COUNTERS
+    // ---------------------------------------------------------
+
+    // Counts one answer; safe to call from many threads at once.
+    // Returns the slot's counts right after this answer (see attemptsOf / correctOf).
+    long record(String userId, String categoryId, boolean correct) {
+        int row = rowFor(userId);
+        int slot = slotFor(categoryId);
+        long add = correct ? ONE_ATTEMPT + ONE_CORRECT : ONE_ATTEMPT;
+        return (long) LONG.getAndAdd(segment(row), wordAt(row, slot), add) + add;
+    }
+
+    // Adds several categories' answers for one user at once, e.g. a batch of
+    // answers. 'countsByCategory' holds pack(attempts, correct) per category.
+    // snapshot() and totals() see all of it or none of it.
+    void recordAll(String userId, Map<String, Long> countsByCategory) {
+        if (countsByCategory.isEmpty()) {
+            return;
+        }
+        int row = rowFor(userId);
+        int[] slotsToAdd = new int[countsByCategory.size()];
+        long[] adds = new long[slotsToAdd.length];
+        int n = 0;
+        for (Map.Entry<String, Long> e : countsByCategory.entrySet()) {
+            slotsToAdd[n] = slotFor(e.getKey()); // may take the lock for a new category, so do it first
+            adds[n++] = e.getValue();
+        }
+        ByteBuffer seg = segment(row);
+        long version = lockRow(row);
+        try {
+            for (int i = 0; i < n; i++) {
+                LONG.getAndAdd(seg, wordAt(row, slotsToAdd[i]), adds[i]);
+            }
+        } finally {
+            unlockRow(row, version);
+        }
+    }
+
+    static long pack(int attempts, int correct) {
+        return (attempts & 0xFFFFFFFFL) + ((long) correct << 32);
+    }
+
+    // Both counters of one slot, read together (see attemptsOf / correctOf)
+    long counts(int row, int slot) {
+        return (long) LONG.getVolatile(segment(row), wordAt(row, slot));
+    }
+
+    // Every slot of a user's row, each read once. Index = slot.
+    // Never shows half of a batch or a reset (see recordAll).
+    long[] snapshot(int row) {
+        ByteBuffer seg = segment(row);
+        int slotsUsed = slotCount();
+        long[] counts = new long[slotsUsed];
+        for (int spins = 0; ; spins++) {
+            long version = versions.get(row % ROW_LOCKS);
+            if ((version & 1) == 0) {
+                for (int slot = 0; slot < slotsUsed; slot++) {
+                    counts[slot] = (long) LONG.getVolatile(seg, wordAt(row, slot));
+                }
+                if (versions.get(row % ROW_LOCKS) == version) {
+                    return counts;
+                }
+            }
+            backOff(spins);
+        }
+    }
+
+    // All of a user's categories added up, as one attempts/correct pair.
+    // Adding the packed words adds both halves at once (no carry as long as
+    // a user stays under 4 billion attempts).
+    long totals(int row) {
+        ByteBuffer seg = segment(row);
+        int slotsUsed = slotCount();
+        for (int spins = 0; ; spins++) {
+            long version = versions.get(row % ROW_LOCKS);
+            if ((version & 1) == 0) {
+                long sum = 0;
+                for (int slot = 0; slot < slotsUsed; slot++) {
+                    sum += (long) LONG.getVolatile(seg, wordAt(row, slot));
+                }
+                if (versions.get(row % ROW_LOCKS) == version) {
+                    return sum;
+                }
+            }
+            backOff(spins);
+        }
+    }
+
+    static int attemptsOf(long counts) {
+        return (int) counts;
+    }
+
+    static int correctOf(long counts) {
+        return (int) (counts >>> 32);
+    }
+
+    int attempts(int row, int slot) {
+        return attemptsOf(counts(row, slot));
+    }
+
+    int correct(int row, int slot) {
+        return correctOf(counts(row, slot));
+    }
+
+    // Sets every counter in the user's row back to zero (the row itself is kept).
+    // snapshot() sees the old row or an all-zero one, never a mix.
+    void reset(String userId) {
+        int row = row(userId);
+        if (row < 0) {
+            return;
+        }
+        ByteBuffer seg = segment(row);
+        long version = lockRow(row);
+        try {
+            for (int slot = 0; slot < CATEGORY_SLOTS; slot++) {
+                LONG.setVolatile(seg, wordAt(row, slot), 0L);
+            }
+        } finally {
+            unlockRow(row, version);
+        }
+    }
+
+    // Makes the row's version odd (waiting for any other multi-slot change to
+    // finish first) and returns the even version it started from
+    private long lockRow(int row) {
+        int at = row % ROW_LOCKS;
+        for (int spins = 0; ; spins++) {
+            long version = versions.get(at);
+            if ((version & 1) == 0 && versions.compareAndSet(at, version, version + 1)) {
+                return version;
+            }
+            backOff(spins);
+        }
+    }
+
+    private void unlockRow(int row, long version) {
+        versions.set(row % ROW_LOCKS, version + 2);
+    }
+
+    // The changes guarded by the version are a few writes long, so spin
+    // first, then let the writer's thread run if it got descheduled
+    private static void backOff(int spins) {
+        if (spins < 100) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    int users() {
+        return rows.size();
+    }
+
+    // userId -> row for everyone in the file (read-only view)
+    Map<String, Integer> rowsByUser() {
+        return Collections.unmodifiableMap(rows);
+    }
+
+    // ---------------------------------------------------------
+    // STORAGE
+    // ---------------------------------------------------------
+
+    private ByteBuffer segment(int row) {
+        return segments[row / SEGMENT_ROWS];
+    }
+
+    private static int offset(int row) {
+        return (row % SEGMENT_ROWS) * ROW_BYTES;
+    }
+
+    private static int wordAt(int row, int slot) {
+        return offset(row) + USER_ID_BYTES + slot * 8;
+    }
+
+    // Maps (or allocates) enough segments to hold this many rows
+    private synchronized void ensureSegments(int rowsNeeded) {
+        int needed = (rowsNeeded + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+        ByteBuffer[] current = segments;
+        if (current.length >= needed) {
+            return;
+        }
+        ByteBuffer[] grown = Arrays.copyOf(current, needed);
+        for (int s = current.length; s < needed; s++) {
+            try {
+                grown[s] = channel == null
+                        ? ByteBuffer.allocateDirect(SEGMENT_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + (long) s * SEGMENT_BYTES, SEGMENT_BYTES)
+                                 .order(ByteOrder.LITTLE_ENDIAN);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not grow progress.dat", e);
+            }
+        }
+        segments = grown;
+    }
+
+    private static void writeString(ByteBuffer buf, int at, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            buf.put(at + 2 + i, bytes[i]);
+        }
+        buf.putShort(at, (short) bytes.length);
+    }
+
+    private static String readString(ByteBuffer buf, int at) {
+        byte[] bytes = new byte[buf.getShort(at)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(at + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Asks the OS to write the mapped pages to disk
+    void force() {
+        if (channel == null) {
+            return;
+        }
+        ((MappedByteBuffer) header).force();
+        for (ByteBuffer seg : segments) {
+            ((MappedByteBuffer) seg).force();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        force();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
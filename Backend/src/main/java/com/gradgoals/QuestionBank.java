@@ -0,0 +1,328 @@
+// This class loads the challenge categories and questions from a JSON file
+// instead of having them hardcoded in ChallengeController.
+//
+// The file looks like:
+//   {
+//     "categories": [ { "id": "budgeting", "name": "...", "blurb": "..." }, ... ],
+//     "questions":  [ { "id": 1, "categoryId": "budgeting", "prompt": "...",
+//                       "correctAnswer": "1200", "explanation": "..." }, ... ]
+//   }
+//
+// It is read with Jackson's streaming parser, one field at a time, so a big
+// bank (tens of thousands of questions) never sits in memory twice as a tree
+// of JSON nodes and then again as our objects.
+//
+// Where the file comes from:
+//   - gradgoals.question-bank empty (the default): the question-bank.json
+//     that ships inside the jar. It can't change, so nothing is watched.
+//   - gradgoals.question-bank=/some/path.json: that file. A background thread
+//     watches its folder, and when the file is saved it builds a brand new
+//     QuestionIndex off to the side and then swaps it in with one write.
+//
+// Request threads only ever read the current index (one volatile read), so
+// they never wait for a reload. A request that started on the old index
+// finishes on the old index. If the new file is broken, the old bank stays.
+
+package com.gradgoals;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class QuestionBank implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionBank.class);
+
+    // The bank that ships with the app
+    static final String BUILT_IN = "/question-bank.json";
+
+    // Editors often save a file in a few steps (truncate, write, rename), so
+    // we wait for the events to settle before reading it
+    private static final long SETTLE_MILLIS = 200;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private volatile QuestionIndex current;
+
+    private final Path file;              // null for the built-in bank
+    private final WatchService watcher;   // null when not watching
+    private Thread watchThread;
+
+    // How many times the file was reloaded (or failed to), for tests and logs
+    private volatile int reloads;
+    private volatile int failedReloads;
+
+    // The built-in bank, not watched (tests and new ChallengeController())
+    public QuestionBank() {
+        this.file = null;
+        this.watcher = null;
+        this.current = loadBuiltIn();
+    }
+
+    @Autowired
+    public QuestionBank(@Value("${gradgoals.question-bank:}") String path) throws IOException {
+        this(path == null || path.isBlank() ? null : Paths.get(path), true);
+    }
+
+    // Loads 'file' (or the built-in bank if null), and watches it if 'watch' is set
+    QuestionBank(Path file, boolean watch) throws IOException {
+        this.file = file;
+        if (file == null) {
+            this.watcher = null;
+            this.current = loadBuiltIn();
+            return;
+        }
+        // a bad file at startup should stop the app, not quietly serve nothing
+        this.current = load(file);
+        if (!watch) {
+            this.watcher = null;
+            return;
+        }
+        Path dir = file.toAbsolutePath().getParent();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        dir.register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        watchThread = new Thread(this::watchLoop, "question-bank-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    // The bank as it is right now. Callers should read this once per request
+    // and use that same index for the whole request.
+    QuestionIndex index() {
+        return current;
+    }
+
+    int reloads() {
+        return reloads;
+    }
+
+    int failedReloads() {
+        return failedReloads;
+    }
+
+    // Re-reads the file and swaps the new index in. If the file can't be
+    // read or parsed, the old index is kept and false is returned.
+    boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        try {
+            QuestionIndex fresh = load(file);
+            current = fresh; // the swap: later requests see the new bank
+            reloads++;
+            log.info("Question bank reloaded: {} questions from {}", fresh.size(), file);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failedReloads++;
+            log.warn("Question bank reload failed, keeping the old one: {}", e.toString());
+            return false;
+        }
+    }
+
+    private void watchLoop() {
+        Path name = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean ours = changed(key, name);
+                // let the rest of the save land, and swallow the events it makes
+                while (true) {
+                    key.reset();
+                    key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key == null) {
+                        break;
+                    }
+                    ours |= changed(key, name);
+                }
+                if (ours) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    // Did this batch of events touch our file?
+    private static boolean changed(WatchKey key, Path name) {
+        boolean ours = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context())) {
+                ours = true;
+            }
+        }
+        return ours;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+    }
+
+    // ---------------------------------------------------------
+    // LOADING
+    // ---------------------------------------------------------
+
+    private static QuestionIndex loadBuiltIn() {
+        try (InputStream in = QuestionBank.class.getResourceAsStream(BUILT_IN)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing " + BUILT_IN + " on the classpath");
+            }
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static QuestionIndex load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    // Streams through the JSON and builds the index. Unknown fields are
+    // skipped so the file can carry extra notes for whoever edits it.
+    // Anything else that isn't where it should be (a number in the question
+    // list, a file cut off halfway) throws, so a bad reload keeps the old bank
+    // instead of swapping in part of the new one.
+    static QuestionIndex read(InputStream in) throws IOException {
+        List<ChallengeCategory> categories = new ArrayList<>();
+        List<ChallengeQuestion> questions = new ArrayList<>();
+
+        try (JsonParser p = JSON.createParser(in)) {
+            expect(p, p.nextToken(), JsonToken.START_OBJECT);
+            JsonToken token;
+            while ((token = p.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                JsonToken value = p.nextToken();
+                if ("categories".equals(field)) {
+                    expect(p, value, JsonToken.START_ARRAY);
+                    JsonToken item;
+                    while ((item = p.nextToken()) == JsonToken.START_OBJECT) {
+                        categories.add(readCategory(p));
+                    }
+                    expect(p, item, JsonToken.END_ARRAY);
+                } else if ("questions".equals(field)) {
+                    expect(p, value, JsonToken.START_ARRAY);
+                    JsonToken item;
+                    while ((item = p.nextToken()) == JsonToken.START_OBJECT) {
+                        questions.add(readQuestion(p));
+                    }
+                    expect(p, item, JsonToken.END_ARRAY);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            expect(p, token, JsonToken.END_OBJECT);
+        }
+        checkFitsProgress(categories, questions);
+        return new QuestionIndex(categories, questions);
+    }
+
+    // ProgressMatrix has a fixed number of category slots and a fixed length
+    // for category ids, so a bank that wouldn't fit is refused here (and a
+    // reload keeps the old bank) instead of failing later when someone answers
+    private static void checkFitsProgress(List<ChallengeCategory> categories, List<ChallengeQuestion> questions)
+            throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (ChallengeCategory c : categories) {
+            ids.add(c.getId());
+        }
+        for (ChallengeQuestion q : questions) {
+            ids.add(q.getCategoryId());
+        }
+        if (ids.size() > ProgressMatrix.CATEGORY_SLOTS) {
+            throw new IOException("The bank has " + ids.size() + " categories; progress can hold at most "
+                    + ProgressMatrix.CATEGORY_SLOTS);
+        }
+        for (String id : ids) {
+            if (id.getBytes(StandardCharsets.UTF_8).length > ProgressMatrix.MAX_CATEGORY_ID_BYTES) {
+                throw new IOException("Category id is longer than " + ProgressMatrix.MAX_CATEGORY_ID_BYTES
+                        + " bytes: " + id);
+            }
+        }
+    }
+
+    private static ChallengeCategory readCategory(JsonParser p) throws IOException {
+        String id = null, name = null, blurb = null;
+        JsonToken token;
+        while ((token = p.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = p.getValueAsString();
+                case "name" -> name = p.getValueAsString();
+                case "blurb" -> blurb = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        expect(p, token, JsonToken.END_OBJECT);
+        if (id == null || id.isEmpty()) {
+            throw new JsonParseException(p, "Category without an id");
+        }
+        return new ChallengeCategory(id, name, blurb);
+    }
+
+    private static ChallengeQuestion readQuestion(JsonParser p) throws IOException {
+        int id = -1;
+        String categoryId = null, prompt = null, correctAnswer = null, explanation = null;
+        JsonToken token;
+        while ((token = p.nextToken()) == JsonToken.FIELD_NAME) {
+            String field = p.getCurrentName();
+            p.nextToken();
+            switch (field) {
+                case "id" -> id = p.getValueAsInt(-1);
+                case "categoryId" -> categoryId = p.getValueAsString();
+                case "prompt" -> prompt = p.getValueAsString();
+                case "correctAnswer" -> correctAnswer = p.getValueAsString();
+                case "explanation" -> explanation = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+        expect(p, token, JsonToken.END_OBJECT);
+        if (id < 0 || categoryId == null || correctAnswer == null) {
+            throw new JsonParseException(p, "Question needs an id, categoryId and correctAnswer");
+        }
+        return new ChallengeQuestion(id, categoryId, prompt, correctAnswer, explanation);
+    }
+
+    private static void expect(JsonParser p, JsonToken actual, JsonToken wanted) throws IOException {
+        if (actual != wanted) {
+            throw new JsonParseException(p, "Expected " + wanted + " but found " + actual);
+        }
+    }
+}
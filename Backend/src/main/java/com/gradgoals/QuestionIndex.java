@@ -0,0 +1,186 @@
+// This class is a read-only index over the challenge question bank, built
+// once so the challenge endpoints never have to scan the whole list.
+//
+// It holds:
+//   - id -> question: a plain array indexed by id when the ids are reasonably
+//     dense (they are: 1, 2, 3, 10, 11, ...), otherwise a sorted id array
+//     searched with binary search
+//   - category -> question pool: one array per category, keyed by the
+//     lowercase category id (interned, so the common lowercase request hits
+//     the map without making a new String), and for each question where it
+//     sits in its pool (used by MasteredQuestions)
+//   - the rows /api/categories returns, with question counts already filled in
+//   - the same rows, and each question, rendered to JSON + gzip bytes with an
+//     ETag (see RenderedJson). The category list is rendered up front; a
+//     question is rendered the first time someone asks for it, so a big bank
+//     doesn't pay for questions nobody opens.
+//
+// Apart from that render cache filling in, nothing in here changes after it
+// is built, so any number of request threads can read it without locking.
+
+package com.gradgoals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+final class QuestionIndex {
+
+    private static final ChallengeQuestion[] NO_QUESTIONS = new ChallengeQuestion[0];
+
+    // Dense lookup (byIdArray[id]) when it costs at most this many slots per question
+    private static final int MAX_SLOTS_PER_QUESTION = 4;
+
+    private final ChallengeQuestion[] byIdArray;   // dense table, or null
+    private final int[] sortedIds;                  // sparse fallback, or null
+    private final ChallengeQuestion[] sortedQuestions;
+
+    private final Map<String, ChallengeQuestion[]> pools;
+    private final List<Map<String, Object>> categoryRows;
+    private final RenderedJson categoriesJson;
+    private final RenderedJson[] renderedQuestions;  // same slots as byIdArray / sortedQuestions
+    private final int[] poolPositions;               // same slots too
+    private final int size;
+
+    QuestionIndex(List<ChallengeCategory> categories, List<ChallengeQuestion> questions) {
+        this.size = questions.size();
+
+        // --- id lookup ---
+        int maxId = -1;
+        for (ChallengeQuestion q : questions) {
+            if (q.getId() < 0) {
+                throw new IllegalArgumentException("Question ids must not be negative: " + q.getId());
+            }
+            maxId = Math.max(maxId, q.getId());
+        }
+        if ((long) maxId + 1 <= (long) MAX_SLOTS_PER_QUESTION * questions.size() + 1024) {
+            byIdArray = new ChallengeQuestion[maxId + 1];
+            for (ChallengeQuestion q : questions) {
+                if (byIdArray[q.getId()] != null) {
+                    throw new IllegalArgumentException("Duplicate question id: " + q.getId());
+                }
+                byIdArray[q.getId()] = q;
+            }
+            sortedIds = null;
+            sortedQuestions = null;
+        } else {
+            ChallengeQuestion[] sorted = questions.toArray(NO_QUESTIONS);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+            int[] ids = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                ids[i] = sorted[i].getId();
+                if (i > 0 && ids[i] == ids[i - 1]) {
+                    throw new IllegalArgumentException("Duplicate question id: " + ids[i]);
+                }
+            }
+            byIdArray = null;
+            sortedIds = ids;
+            sortedQuestions = sorted;
+        }
+
+        // --- category pools (in bank order, like the old filtered list) ---
+        Map<String, List<ChallengeQuestion>> grouped = new LinkedHashMap<>();
+        for (ChallengeQuestion q : questions) {
+            grouped.computeIfAbsent(key(q.getCategoryId()), k -> new ArrayList<>()).add(q);
+        }
+        Map<String, ChallengeQuestion[]> built = new HashMap<>();
+        int[] positions = new int[byIdArray != null ? byIdArray.length : sortedQuestions.length];
+        for (Map.Entry<String, List<ChallengeQuestion>> e : grouped.entrySet()) {
+            ChallengeQuestion[] pool = e.getValue().toArray(NO_QUESTIONS);
+            for (int i = 0; i < pool.length; i++) {
+                positions[slot(pool[i].getId())] = i;
+            }
+            built.put(e.getKey(), pool);
+        }
+        this.pools = Collections.unmodifiableMap(built);
+        this.poolPositions = positions;
+
+        // --- /api/categories rows ---
+        List<Map<String, Object>> rows = new ArrayList<>(categories.size());
+        for (ChallengeCategory cat : categories) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", cat.getId());
+            row.put("name", cat.getName());
+            row.put("blurb", cat.getBlurb());
+            row.put("questionCount", (long) pool(cat.getId()).length);
+            rows.add(Collections.unmodifiableMap(row));
+        }
+        this.categoryRows = Collections.unmodifiableList(rows);
+        this.categoriesJson = RenderedJson.of(categoryRows);
+        this.renderedQuestions = new RenderedJson[byIdArray != null ? byIdArray.length : sortedQuestions.length];
+    }
+
+    // Category ids are matched ignoring case; lowercase + interned is the map key
+    private static String key(String categoryId) {
+        return categoryId.toLowerCase(Locale.ROOT).intern();
+    }
+
+    // The question with this id, or null
+    ChallengeQuestion byId(int id) {
+        int slot = slot(id);
+        return slot < 0 ? null : byIdArray != null ? byIdArray[slot] : sortedQuestions[slot];
+    }
+
+    // Where the question with this id lives (-1 if there is none)
+    private int slot(int id) {
+        if (byIdArray != null) {
+            return id >= 0 && id < byIdArray.length && byIdArray[id] != null ? id : -1;
+        }
+        int at = Arrays.binarySearch(sortedIds, id);
+        return at >= 0 ? at : -1;
+    }
+
+    // Where the question with this id sits in pool(its category), or -1
+    int poolPosition(int id) {
+        int slot = slot(id);
+        return slot < 0 ? -1 : poolPositions[slot];
+    }
+
+    // The question with this id as pre-rendered JSON, or null
+    RenderedJson renderedQuestion(int id) {
+        int slot = slot(id);
+        if (slot < 0) {
+            return null;
+        }
+        RenderedJson rendered = renderedQuestions[slot];
+        if (rendered == null) {
+            // two threads may both render it; they produce the same bytes, so either copy is fine
+            rendered = RenderedJson.of(byId(id));
+            renderedQuestions[slot] = rendered;
+        }
+        return rendered;
+    }
+
+    // The /api/categories rows as pre-rendered JSON
+    RenderedJson renderedCategories() {
+        return categoriesJson;
+    }
+
+    // Every question in a category (empty if the category is unknown).
+    // The array is shared, so callers must not change it.
+    ChallengeQuestion[] pool(String categoryId) {
+        if (categoryId == null) {
+            return NO_QUESTIONS;
+        }
+        ChallengeQuestion[] pool = pools.get(categoryId);
+        if (pool == null) {
+            // only mixed/upper case requests pay for the lowercase copy
+            pool = pools.get(categoryId.toLowerCase(Locale.ROOT));
+        }
+        return pool == null ? NO_QUESTIONS : pool;
+    }
+
+    // The rows /api/categories sends back (read-only)
+    List<Map<String, Object>> categoryRows() {
+        return categoryRows;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,216 @@
+// A sorted set of leaderboard entries that can also say how many entries
+// come before a given one, without walking through them.
+//
+// It's a treap: a binary search tree where every node also gets a random
+// priority, and parents always have a higher priority than their children.
+// The random priorities keep the tree about 2-3 * log2(n) deep no matter in
+// what order users show up, so adding, removing and ranking all cost
+// O(log n) (about 40-60 steps for a million users).
+//
+// Every node also remembers the size of its subtree. That is what makes
+// ranking cheap: going down the tree towards an entry, each time we go
+// right we add the size of the left side plus one.
+//
+// Entries are ordered best first:
+//   1. more correct answers
+//   2. then fewer attempts (with the same correct count, that is the
+//      better accuracy)
+//   3. then userId, so two users never compare equal
+//
+// Not thread-safe on its own; Leaderboards guards each tree with a lock.
+
+package com.gradgoals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+final class RankTree {
+
+    // One user's place on a board
+    static final class Entry implements Comparable<Entry> {
+        final int correct;
+        final int attempts;
+        final String userId;
+
+        Entry(int correct, int attempts, String userId) {
+            this.correct = correct;
+            this.attempts = attempts;
+            this.userId = userId;
+        }
+
+        // Same score as the other entry (ties share a rank)
+        boolean sameScore(Entry other) {
+            return correct == other.correct && attempts == other.attempts;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (correct != other.correct) {
+                return correct > other.correct ? -1 : 1;
+            }
+            if (attempts != other.attempts) {
+                return attempts < other.attempts ? -1 : 1;
+            }
+            return userId.compareTo(other.userId);
+        }
+    }
+
+    private static final class Node {
+        final Entry entry;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        int size = 1;
+        Node left;
+        Node right;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+    }
+
+    private Node root;
+
+    int size() {
+        return size(root);
+    }
+
+    void add(Entry entry) {
+        root = insert(root, new Node(entry));
+    }
+
+    void remove(Entry entry) {
+        root = delete(root, entry);
+    }
+
+    // How many entries sort before this one (0 = first place).
+    // The entry doesn't have to be in the tree.
+    int countBefore(Entry entry) {
+        int before = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = entry.compareTo(node.entry);
+            if (cmp <= 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return before;
+    }
+
+    // How many entries have a strictly better score (so 1 + this is the
+    // rank, with tied users sharing it)
+    int countBetter(int correct, int attempts) {
+        // "" sorts before every real userId, so only better scores count
+        return countBefore(new Entry(correct, attempts, ""));
+    }
+
+    // The first 'limit' entries, best first
+    List<Entry> top(int limit) {
+        List<Entry> out = new ArrayList<>(Math.min(limit, size()));
+        Node[] stack = new Node[128];
+        int depth = 0;
+        Node node = root;
+        while ((node != null || depth > 0) && out.size() < limit) {
+            while (node != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = node.left;
+            }
+            node = stack[--depth];
+            out.add(node.entry);
+            node = node.right;
+        }
+        return out;
+    }
+
+    // ---------------------------------------------------------
+    // TREAP HELPERS
+    // ---------------------------------------------------------
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void fix(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    // Normal BST insert, then rotate the new node up while it has a higher
+    // priority than its parent
+    private static Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.entry.compareTo(tree.entry) < 0) {
+            tree.left = insert(tree.left, node);
+            if (tree.left.priority > tree.priority) {
+                return rotateRight(tree);
+            }
+        } else {
+            tree.right = insert(tree.right, node);
+            if (tree.right.priority > tree.priority) {
+                return rotateLeft(tree);
+            }
+        }
+        fix(tree);
+        return tree;
+    }
+
+    private static Node rotateRight(Node tree) {
+        Node up = tree.left;
+        tree.left = up.right;
+        fix(tree);
+        up.right = tree;
+        fix(up);
+        return up;
+    }
+
+    private static Node rotateLeft(Node tree) {
+        Node up = tree.right;
+        tree.right = up.left;
+        fix(tree);
+        up.left = tree;
+        fix(up);
+        return up;
+    }
+
+    private static Node delete(Node tree, Entry entry) {
+        if (tree == null) {
+            return null;
+        }
+        int cmp = entry.compareTo(tree.entry);
+        if (cmp == 0) {
+            return merge(tree.left, tree.right);
+        }
+        if (cmp < 0) {
+            tree.left = delete(tree.left, entry);
+        } else {
+            tree.right = delete(tree.right, entry);
+        }
+        fix(tree);
+        return tree;
+    }
+
+    // Joins two trees where everything in 'a' sorts before everything in 'b'
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            fix(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        fix(b);
+        return b;
+    }
+}
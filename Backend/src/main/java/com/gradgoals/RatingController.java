@@ -1,7 +1,12 @@
 package com.gradgoals;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @CrossOrigin(origins = "*")
 @RestController
 public class RatingController {
@@ -9,11 +14,29 @@ public class RatingController {
     // The Controller holds this instance, keeping the data alive.
     private final RatingService ratingService = new RatingService();
 
+    // Without Spring (tests)
+    public RatingController() {
+        this(new Metrics());
+    }
+
+    @Autowired
+    public RatingController(Metrics metrics) {
+        // how many ratings are held (see /api/metrics)
+        metrics.gauge("gradgoals_ratings", "Ratings held across all resources", "", ratingService::count);
+    }
+
     // 1. SAVE RATING
+    // Stars must be 1 - 5; anything else gets a 400 with a message
     @PostMapping("/ratings")
-    public String addRating(@RequestBody Rating rating) {
-        ratingService.addRating(rating);
-        return "Rating saved.";
+    public ResponseEntity<?> addRating(@RequestBody Rating rating) {
+        try {
+            ratingService.addRating(rating);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ResponseEntity.ok("Rating saved.");
     }
 
     // 2. GET AVERAGE (For the number displayed next to stars)
@@ -30,4 +53,10 @@ public class RatingController {
     ) {
         return ratingService.getUserRating(resourceId, userId);
     }
-}
\ No newline at end of file
+
+    // 4. GET SUMMARY (average, how many ratings, and how many of each star)
+    @GetMapping("/ratings/summary")
+    public Map<String, Object> getSummary(@RequestParam String resourceId) {
+        return ratingService.getSummary(resourceId);
+    }
+}
@@ -1,59 +1,128 @@
 package com.gradgoals;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+// Keeps the star ratings for the resources page.
+//
+// Each resource has:
+//   - a map of userId -> stars, so finding (or changing) one user's rating
+//     doesn't scan everyone who voted
+//   - a running total: the sum of the stars and the number of ratings packed
+//     into one AtomicLong (sum in the high 32 bits, count in the low 32), so
+//     the average is one read, and it never mixes a sum from one moment with
+//     a count from another
+//   - how many ratings of each star value there are
+//
+// A new rating adds its stars and 1 to the total; changing a rating adds the
+// difference (e.g. 2 -> 5 adds 3 to the sum) and moves one vote between the
+// star counts. The map's compute() runs one user's change at a time, so two
+// clicks from the same user can't both be counted, while different users'
+// votes go through at the same time.
 public class RatingService {
 
-    // INSTANCE VARIABLE (Not Static): 
+    static final int MIN_STARS = 1;
+    static final int MAX_STARS = 5;
+
+    private static final long ONE_RATING = 1L;
+    private static final long ONE_STAR = 1L << 32;
+
+    // INSTANCE VARIABLE (Not Static):
     // This Map lives only as long as this specific RatingService object lives.
-    private final Map<String, List<Rating>> ratings = new ConcurrentHashMap<>();
+    private final Map<String, Ratings> ratings = new ConcurrentHashMap<>();
 
     public void addRating(Rating rating) {
-        // Ensure the list exists for this resource
-        ratings.putIfAbsent(rating.getResourceId(), new ArrayList<>());
-        
-        List<Rating> list = ratings.get(rating.getResourceId());
-
-        // Check if this user already rated it; if so, update their stars
-        for (Rating r : list) {
-            if (r.getUserId().equals(rating.getUserId())) {
-                r.setStars(rating.getStars());
-                return;
-            }
+        if (rating.getStars() < MIN_STARS || rating.getStars() > MAX_STARS) {
+            throw new IllegalArgumentException("Stars must be between " + MIN_STARS + " and " + MAX_STARS + ".");
         }
-
-        // If not found, add the new rating
-        list.add(rating);
+        if (rating.getResourceId() == null || rating.getUserId() == null) {
+            throw new IllegalArgumentException("resourceId and userId are required.");
+        }
+        Ratings resource = ratings.get(rating.getResourceId());
+        if (resource == null) {
+            resource = ratings.computeIfAbsent(rating.getResourceId(), id -> new Ratings());
+        }
+        resource.rate(rating.getUserId(), rating.getStars());
     }
 
     public double getAverage(String resourceId) {
-        List<Rating> list = ratings.get(resourceId);
-        
-        // Avoid division by zero
-        if (list == null || list.isEmpty()) {
+        Ratings resource = ratings.get(resourceId);
+
+        // Nobody rated it yet
+        if (resource == null) {
             return 0.0;
         }
+        return resource.average();
+    }
+
+    public Rating getUserRating(String resourceId, String userId) {
+        Ratings resource = ratings.get(resourceId);
+        Integer stars = resource == null ? null : resource.byUser.get(userId);
+        return stars == null ? null : new Rating(resourceId, userId, stars);
+    }
 
-        int total = 0;
-        for (Rating r : list) {
-            total += r.getStars();
+    // Average, number of ratings, and how many of each star value (index 0 = 1 star).
+    // Average and count always belong together; the star counts can be a vote
+    // ahead or behind them while people are voting.
+    public Map<String, Object> getSummary(String resourceId) {
+        long now = 0;
+        long[] starCounts = new long[MAX_STARS - MIN_STARS + 1];
+        Ratings resource = ratings.get(resourceId);
+        if (resource != null) {
+            now = resource.total.get();
+            for (int i = 0; i < starCounts.length; i++) {
+                starCounts[i] = resource.starCounts.get(i);
+            }
         }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("resourceId", resourceId);
+        summary.put("average", average(now));
+        summary.put("count", now & 0xFFFFFFFFL);
+        summary.put("starCounts", starCounts);
+        return summary;
+    }
 
-        return total / (double) list.size();
+    // How many ratings there are across every resource
+    long count() {
+        long count = 0;
+        for (Ratings resource : ratings.values()) {
+            count += resource.byUser.size();
+        }
+        return count;
     }
 
-    public Rating getUserRating(String resourceId, String userId) {
-        List<Rating> list = ratings.get(resourceId);
-        if (list == null) return null;
+    // All the ratings of one resource
+    private static final class Ratings {
+        private final Map<String, Integer> byUser = new ConcurrentHashMap<>();
+        private final AtomicLong total = new AtomicLong();   // sum << 32 | count
+        private final AtomicLongArray starCounts = new AtomicLongArray(MAX_STARS - MIN_STARS + 1);
 
-        for (Rating r : list) {
-            if (r.getUserId().equals(userId)) {
-                return r;
-            }
+        void rate(String userId, int stars) {
+            byUser.compute(userId, (user, old) -> {
+                if (old == null) {
+                    total.getAndAdd(stars * ONE_STAR + ONE_RATING);
+                } else if (old != stars) {
+                    total.getAndAdd((stars - old) * ONE_STAR);
+                    starCounts.getAndDecrement(old - MIN_STARS);
+                } else {
+                    return old; // same stars again, nothing changes
+                }
+                starCounts.getAndIncrement(stars - MIN_STARS);
+                return stars;
+            });
+        }
+
+        double average() {
+            return RatingService.average(total.get());
         }
-        return null;
     }
-}
\ No newline at end of file
+
+    // Average out of a packed total
+    private static double average(long total) {
+        long count = total & 0xFFFFFFFFL;
+        return count == 0 ? 0.0 : (total >> 32) / (double) count;
+    }
+}
@@ -0,0 +1,162 @@
+// This class holds a JSON response that was rendered ahead of time.
+//
+// Some responses are the same for every user and only change when the
+// question bank changes (the category list, a question by id). Instead of
+// letting Spring turn the same objects into JSON on every request, we render
+// the bytes once, gzip them once, and hash them into an ETag. A request then
+// just gets one of the two byte arrays written straight to the socket, or a
+// 304 with no body if the browser already has that version.
+//
+// The ETag is strong (it is a hash of the exact bytes), and the gzip copy has
+// its own ETag since it is different bytes.
+
+package com.gradgoals;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+final class RenderedJson {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    private RenderedJson(byte[] json) {
+        this.json = json;
+        this.gzip = gzip(json);
+        String hash = hash(json);
+        this.etag = "\"" + hash + "\"";
+        this.gzipEtag = "\"" + hash + "-gz\"";
+    }
+
+    // Renders any object the same way Spring would
+    static RenderedJson of(Object value) {
+        try {
+            return new RenderedJson(MAPPER.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    byte[] json() {
+        return json;
+    }
+
+    byte[] gzip() {
+        return gzip;
+    }
+
+    String etag() {
+        return etag;
+    }
+
+    // Builds the response for a request: 304 if the client's copy is current,
+    // otherwise the gzip bytes (if accepted) or the plain JSON.
+    // 'ifNoneMatch' and 'acceptEncoding' are the raw request headers (may be null).
+    ResponseEntity<byte[]> serve(String ifNoneMatch, String acceptEncoding, CacheControl cache) {
+        boolean useGzip = acceptsGzip(acceptEncoding);
+        String tag = useGzip ? gzipEtag : etag;
+
+        if (ifNoneMatch != null && matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(tag)
+                    .cacheControl(cache)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(tag)
+                .cacheControl(cache)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(gzip.length)
+                    .body(gzip);
+        }
+        return response.contentLength(json.length).body(json);
+    }
+
+    // Accept-Encoding is a comma separated list of codings, each with an
+    // optional weight: "gzip, br;q=0.8", "*;q=0.5". A weight of 0 means "not
+    // this one". gzip is used if it is listed with a weight above 0, or if it
+    // isn't listed and "*" is. Other names that contain "gzip" don't count.
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean any = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            double weight = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        weight = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        weight = 0; // can't tell, so don't risk it
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip")) {
+                gzip = weight > 0;
+            } else if (coding.equals("*")) {
+                any = weight > 0;
+            }
+        }
+        return gzip != null ? gzip : any;
+    }
+
+    // If-None-Match can be "*", one tag, or a comma separated list (weak tags count too)
+    private boolean matches(String ifNoneMatch) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (GZIPOutputStream zip = new GZIPOutputStream(out)) {
+            zip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory, can't happen
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+    }
+}
@@ -0,0 +1,839 @@
+// This class makes the in-memory user state (budgets and goals) survive a
+// restart or redeploy. (Challenge progress lives in ProgressMatrix instead.)
+//
+// How it works:
+//   1. Write-ahead log (WAL). Every change a controller makes is also encoded
+//      as a small binary record and appended to an in-memory buffer. Each
+//      record gets a log sequence number (LSN). A background writer thread
+//      wakes up every few milliseconds, writes everything buffered so far to
+//      the current log file in one go and fsyncs it ("group commit"). The
+//      request thread never waits for the disk, so logging a change only
+//      costs the time to encode a few dozen bytes.
+//   2. Snapshots. Every few minutes the full state is written out as compact
+//      binary files, one per shard, in parallel. Before a snapshot starts the
+//      log is rotated to a new file, so once the snapshot is done every older
+//      log file can be deleted.
+//   3. Recovery. On startup the newest snapshot is loaded (shards in parallel),
+//      then the remaining log records are replayed, split by user so different
+//      users replay in parallel while each user's records keep their order.
+//
+// Each user's state carries a Stamp: a lock plus the LSN of the last change
+// applied to it. A change holds the lock while it updates the state and logs
+// the record, so one user's changes get their LSNs in the order they were
+// applied and replay does them in that same order (two requests for the same
+// user can't, say, log a delete before the add it removed). The snapshot
+// takes the same lock for a moment while it copies that one user. That way
+// the snapshot of a user always contains exactly the records up to its saved
+// LSN, and replay can skip everything at or before it. Different users never
+// wait for each other.
+//
+// A crash can lose the last few milliseconds of changes that were still in
+// the buffer. If the disk itself fails (a write or fsync throws), the journal
+// stops: every later append() and flush() throws instead of pretending the
+// change was saved. If no data directory is configured, the journal is
+// disabled and everything stays in memory like before.
+
+package com.gradgoals;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Component
+public class StateJournal implements SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StateJournal.class);
+
+    // Domains (which controller a record belongs to)
+    static final byte BUDGET = 1;
+    static final byte GOALS = 2;
+
+    private static final int SNAPSHOT_MAGIC = 0x47475331; // "GGS1"
+    private static final int FLUSH_MILLIS = 5;            // group commit window
+    private static final int FLUSH_BYTES = 256 * 1024;    // flush early once this much is buffered
+
+    // Per-user lock + last applied LSN (see the comment at the top).
+    // There is one of these for every user, so it is kept small: a StampedLock
+    // instead of a ReentrantReadWriteLock, and a plain volatile long for the LSN.
+    static final class Stamp {
+        private static final VarHandle LAST_LSN;
+        static {
+            try {
+                LAST_LSN = MethodHandles.lookup().findVarHandle(Stamp.class, "lastLsn", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final StampedLock lock = new StampedLock();
+        private volatile long lastLsn;
+        private volatile long lastUsed;    // for UserStateCache's idle eviction
+        private volatile boolean retired;  // evicted from memory; this copy must not change
+
+        // Call before changing the user's state, and exit() afterwards (in a finally).
+        // Takes the exclusive side: the change and its append() happen as one
+        // step, so this user's LSNs follow the order the changes were made.
+        // Returns false if the state was evicted in the meantime; the caller then
+        // has to look the user up again (UserStateCache.acquire does this).
+        boolean enter() {
+            lock.writeLock();
+            if (retired) {
+                lock.tryUnlockWrite();
+                return false;
+            }
+            return true;
+        }
+
+        void exit() { lock.tryUnlockWrite(); }
+
+        long lastLsn() { return lastLsn; }
+
+        long lastUsed() { return lastUsed; }
+
+        void touch(long now) {
+            // skip the write when nothing changed, hot users are touched a lot
+            if (now - lastUsed > 1000) {
+                lastUsed = now;
+            }
+        }
+
+        boolean isRetired() { return retired; }
+
+        // Eviction: takes the exclusive side if nobody is using the state right now (0 if busy)
+        long tryRetire() { return lock.tryWriteLock(); }
+
+        // Finishes what tryRetire started; 'evicted' says whether the state really left memory
+        void endRetire(long held, boolean evicted) {
+            retired = evicted;
+            lock.unlockWrite(held);
+        }
+
+        void applied(long lsn) {
+            long current;
+            while ((current = lastLsn) < lsn && !LAST_LSN.compareAndSet(this, current, lsn)) {
+                // another thread moved it; check again
+            }
+        }
+    }
+
+    // Anything with a Stamp that the journal can snapshot
+    interface Journaled {
+        Stamp stamp();
+    }
+
+    // Writes a record's fields
+    interface Body {
+        void write(DataOutput out) throws IOException;
+    }
+
+    // A controller whose state is saved by the journal
+    interface Participant {
+        byte domain();
+
+        // userId -> that user's state
+        Map<String, ? extends Journaled> states();
+
+        // Writes one user's state (called while holding the user's exclusive lock)
+        void writeState(Journaled state, DataOutput out) throws IOException;
+
+        // Reads back what writeState wrote and puts it in place for that user
+        Journaled readState(String userId, DataInput in) throws IOException;
+
+        // Applies one logged change during recovery; returns the state it changed
+        Journaled replay(String userId, byte op, DataInput in) throws IOException;
+
+        // Users whose state was moved out of states() onto disk (see UserStateCache)
+        default Iterable<String> spilledUsers() {
+            return List.of();
+        }
+
+        // A spilled user's last LSN followed by writeState's bytes (null if it is gone)
+        default byte[] spilledState(String userId) throws IOException {
+            return null;
+        }
+
+        // Called after a snapshot is complete
+        default void snapshotWritten() {
+        }
+    }
+
+    // Buffer that lets us patch the length/checksum in front of a record
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer(int size) { super(size); }
+
+        void putInt(int at, int v) {
+            buf[at] = (byte) (v >>> 24);
+            buf[at + 1] = (byte) (v >>> 16);
+            buf[at + 2] = (byte) (v >>> 8);
+            buf[at + 3] = (byte) v;
+        }
+
+        byte[] array() { return buf; }
+    }
+
+    private final Path dir;
+    private final int shards;
+    private final long snapshotSeconds;
+    private final List<Participant> participants = new ArrayList<>();
+
+    // Append side (guarded by 'this')
+    private RecordBuffer pending = new RecordBuffer(64 * 1024);
+    private DataOutputStream pendingOut = new DataOutputStream(pending);
+    private RecordBuffer spare = new RecordBuffer(64 * 1024);
+    private long lsn = 0;              // last LSN handed out
+    private long rotateAfter = -1;     // >= 0 when the writer should start a new file...
+    private int rotateOffset = -1;     // ...after writing this many bytes of 'pending'
+    private long flushedLsn = 0;       // everything up to here is on disk
+    private volatile boolean closed = false;
+    private volatile IOException failure; // set when a write or fsync failed; the journal is stopped
+    private long snapshotLsn = 0;      // LSN of the newest complete snapshot
+
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;       // only touched by the writer thread (and startup/shutdown)
+    private Thread writer;
+    private ScheduledExecutorService snapshotter;
+    private volatile boolean started = false;
+
+    // Disabled journal used when no data directory is configured (and in tests)
+    static StateJournal disabled() {
+        return new StateJournal((Path) null, 1, 0);
+    }
+
+    @Autowired
+    public StateJournal(@Value("${gradgoals.data-dir:}") String dataDir,
+                        @Value("${gradgoals.snapshot-shards:8}") int shards,
+                        @Value("${gradgoals.snapshot-interval-seconds:300}") long snapshotSeconds) {
+        this(dataDir == null || dataDir.isBlank() ? null : Paths.get(dataDir), shards, snapshotSeconds);
+    }
+
+    StateJournal(Path dir, int shards, long snapshotSeconds) {
+        this.dir = dir;
+        this.shards = Math.max(1, shards);
+        this.snapshotSeconds = snapshotSeconds;
+    }
+
+    boolean isEnabled() {
+        return dir != null;
+    }
+
+    // True once recovery is done (or there was nothing to recover)
+    boolean isStarted() {
+        return started;
+    }
+
+    // Controllers register themselves when they are created
+    synchronized void register(Participant participant) {
+        if (started) {
+            throw new IllegalStateException("Journal already started");
+        }
+        participants.add(participant);
+    }
+
+    // Spring calls this once every bean exists, before the web server starts
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover saved state from " + dir, e);
+        }
+    }
+
+    // Recovers the saved state, then starts logging new changes
+    synchronized void start() throws IOException {
+        if (started || dir == null) {
+            started = true;
+            return;
+        }
+        Files.createDirectories(dir);
+        lsn = recover();
+        flushedLsn = lsn;
+        channel = openSegment(lsn + 1);
+
+        writer = new Thread(this::writeLoop, "state-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        if (snapshotSeconds > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "state-journal-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.error("State snapshot failed", e);
+                }
+            }, snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+        }
+        started = true;
+    }
+
+    // ---------------------------------------------------------
+    // WRITING
+    // ---------------------------------------------------------
+
+    // Throws if a change can't be logged (the journal is closed, or stopped
+    // after a failed write). UserStateCache.acquire calls it before anything
+    // is changed, so a refused request leaves the user's state as it was.
+    // Only a write failing during the change itself can still leave that one
+    // change unlogged, just like a change still in the buffer when it failed.
+    void checkWritable() {
+        if (dir == null) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        IOException failed = failure;
+        if (failed != null) {
+            throw new UncheckedIOException("State journal stopped after a failed write", failed);
+        }
+    }
+
+    // Logs one change. The caller must be between stamp.enter() and stamp.exit()
+    // and must already have applied the change. Returns the record's LSN.
+    long append(Stamp stamp, byte domain, byte op, String userId, Body body) {
+        if (dir == null) {
+            return 0;
+        }
+        long recordLsn;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("State journal stopped after a failed write", failure);
+            }
+            recordLsn = ++lsn;
+            int start = pending.size();
+            try {
+                pendingOut.writeInt(0);   // length, patched below
+                pendingOut.writeInt(0);   // checksum, patched below
+                pendingOut.writeLong(recordLsn);
+                pendingOut.writeByte(domain);
+                pendingOut.writeByte(op);
+                pendingOut.writeUTF(userId);
+                body.write(pendingOut);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // can't happen with an in-memory buffer
+            }
+            int length = pending.size() - start - 8;
+            crc.reset();
+            crc.update(pending.array(), start + 8, length);
+            pending.putInt(start, length);
+            pending.putInt(start + 4, (int) crc.getValue());
+            if (pending.size() >= FLUSH_BYTES) {
+                notifyAll();
+            }
+        }
+        stamp.applied(recordLsn);
+        return recordLsn;
+    }
+
+    // Blocks until everything logged so far is on disk.
+    // Throws if the writer failed, since then it never will be.
+    void flush() {
+        if (dir == null) {
+            return;
+        }
+        synchronized (this) {
+            long target = lsn;
+            notifyAll();
+            while ((flushedLsn < target || rotateAfter >= 0) && !closed && failure == null) {
+                try {
+                    wait(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("State journal stopped after a failed write", failure);
+            }
+        }
+    }
+
+    // The writer thread: swap buffers, write, fsync, repeat
+    private void writeLoop() {
+        while (true) {
+            RecordBuffer batch;
+            long batchLsn;
+            long rotate;
+            int split;
+            boolean stop;
+            synchronized (this) {
+                while (pending.size() == 0 && rotateAfter < 0 && !closed) {
+                    try {
+                        wait(FLUSH_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                pendingOut = new DataOutputStream(pending);
+                batchLsn = lsn;
+                rotate = rotateAfter;
+                split = rotateOffset;
+                stop = closed;
+            }
+
+            try {
+                if (rotate >= 0) {
+                    // records up to the rotation point finish the old file, the rest start the new one
+                    write(batch, 0, split);
+                    channel.close();
+                    channel = openSegment(rotate + 1);
+                    write(batch, split, batch.size());
+                } else {
+                    write(batch, 0, batch.size());
+                }
+            } catch (IOException e) {
+                // flushedLsn stays where it was: these records are not on disk,
+                // and append()/flush() throw from now on instead of losing more
+                log.error("State journal write failed; the journal is stopped", e);
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            batch.reset();
+            synchronized (this) {
+                spare = batch;
+                flushedLsn = Math.max(flushedLsn, batchLsn);
+                if (rotate >= 0) {
+                    rotateAfter = -1;
+                    rotateOffset = -1;
+                }
+                notifyAll();
+            }
+            if (stop) {
+                return;
+            }
+
+            // give other requests a few milliseconds to pile up into the next group
+            try {
+                Thread.sleep(FLUSH_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void write(RecordBuffer batch, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(batch.array(), from, to - from);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        return FileChannel.open(dir.resolve(segmentName(firstLsn)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String segmentName(long firstLsn) {
+        return String.format("wal-%019d.log", firstLsn);
+    }
+
+    // ---------------------------------------------------------
+    // SNAPSHOTS
+    // ---------------------------------------------------------
+
+    // Writes a full snapshot and deletes the log files it replaces
+    void snapshot() throws IOException {
+        if (dir == null || !started) {
+            return;
+        }
+        // Start a new log file; everything up to 'upTo' is in the old ones
+        long upTo;
+        synchronized (this) {
+            upTo = lsn;
+            if (upTo == snapshotLsn) {
+                return; // nothing changed since the last snapshot
+            }
+            rotateAfter = upTo;
+            rotateOffset = pending.size();
+            notifyAll();
+        }
+        flush(); // also waits for the rotation
+
+        // Split the users by shard once, so each shard only walks its own.
+        // Live users are listed before spilled ones: someone evicted in
+        // between is in both lists, and the shard writes them once.
+        List<ShardUsers[]> split = new ArrayList<>(participants.size());
+        for (Participant p : participants) {
+            ShardUsers[] byShard = new ShardUsers[shards];
+            for (int i = 0; i < shards; i++) {
+                byShard[i] = new ShardUsers();
+            }
+            for (Map.Entry<String, ? extends Journaled> e : p.states().entrySet()) {
+                byShard[shardOf(e.getKey(), shards)].live.add(e);
+            }
+            for (String userId : p.spilledUsers()) {
+                byShard[shardOf(userId, shards)].spilled.add(userId);
+            }
+            split.add(byShard);
+        }
+        IntStream.range(0, shards).parallel().forEach(shard -> {
+            try {
+                writeShard(upTo, shard, split);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // The manifest is written last: a snapshot only counts once it exists
+        Path manifest = dir.resolve(String.format("snapshot-%019d.manifest", upTo));
+        Path temp = dir.resolve(manifest.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(upTo);
+            out.writeInt(shards);
+        }
+        Files.move(temp, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        synchronized (this) {
+            snapshotLsn = upTo;
+        }
+
+        deleteOlderThan(upTo);
+        for (Participant p : participants) {
+            p.snapshotWritten();
+        }
+    }
+
+    // One shard's users of one participant, see snapshot()
+    private static final class ShardUsers {
+        final List<Map.Entry<String, ? extends Journaled>> live = new ArrayList<>();
+        final List<String> spilled = new ArrayList<>();
+    }
+
+    // Writes to a .tmp file and renames it when it's complete, so a shard a
+    // manifest points at is never half written
+    private void writeShard(long upTo, int shard, List<ShardUsers[]> split) throws IOException {
+        Path file = dir.resolve(String.format("snapshot-%019d-%03d.bin", upTo, shard));
+        Path temp = dir.resolve(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            for (int i = 0; i < participants.size(); i++) {
+                Participant p = participants.get(i);
+                ShardUsers users = split.get(i)[shard];
+                Set<String> written = new HashSet<>();
+                for (Map.Entry<String, ? extends Journaled> e : users.live) {
+                    Stamp stamp = e.getValue().stamp();
+                    long held = stamp.lock.writeLock();
+                    try {
+                        if (stamp.retired) {
+                            // evicted after the split; copy the file it was saved to
+                            writeSpilled(out, p, e.getKey(), written);
+                            continue;
+                        }
+                        out.writeByte(p.domain());
+                        out.writeUTF(e.getKey());
+                        out.writeLong(stamp.lastLsn());
+                        p.writeState(e.getValue(), out);
+                        written.add(e.getKey());
+                    } finally {
+                        stamp.lock.unlockWrite(held);
+                    }
+                }
+                // Evicted users are copied over as they were saved. If one was
+                // loaded back and changed after the loop above passed it, those
+                // changes are after 'upTo' and stay in the log.
+                for (String userId : users.spilled) {
+                    if (!written.contains(userId)) {
+                        writeSpilled(out, p, userId, written);
+                    }
+                }
+            }
+            out.writeByte(0); // end of shard
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeSpilled(DataOutputStream out, Participant p, String userId, Set<String> written) throws IOException {
+        byte[] saved = p.spilledState(userId);
+        if (saved != null) {
+            out.writeByte(p.domain());
+            out.writeUTF(userId);
+            out.write(saved);
+            written.add(userId);
+        }
+    }
+
+    // Removes log files and snapshots that the new snapshot replaces
+    private void deleteOlderThan(long upTo) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (name.startsWith("wal-") && name.endsWith(".log") && lsnIn(name, 4) <= upTo) {
+                    Files.deleteIfExists(f);
+                } else if (name.startsWith("snapshot-") && lsnIn(name, 9) < upTo) {
+                    Files.deleteIfExists(f);
+                }
+            }
+        }
+    }
+
+    private static long lsnIn(String name, int from) {
+        return Long.parseLong(name.substring(from, from + 19));
+    }
+
+    static int shardOf(String userId, int count) {
+        return Math.floorMod(userId.hashCode(), count);
+    }
+
+    // ---------------------------------------------------------
+    // RECOVERY
+    // ---------------------------------------------------------
+
+    // One decoded log record waiting to be replayed
+    private static final class Entry {
+        final long lsn;
+        final byte domain;
+        final byte op;
+        final String userId;
+        final byte[] body;
+
+        Entry(long lsn, byte domain, byte op, String userId, byte[] body) {
+            this.lsn = lsn;
+            this.domain = domain;
+            this.op = op;
+            this.userId = userId;
+            this.body = body;
+        }
+    }
+
+    // Loads the newest snapshot and replays the log after it; returns the last LSN seen
+    long recover() throws IOException {
+        long snapshotLsn = 0;
+        int snapshotShards = 0;
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                String name = f.getFileName().toString();
+                if (name.startsWith("snapshot-") && name.endsWith(".manifest")) {
+                    try (DataInputStream in = new DataInputStream(Files.newInputStream(f))) {
+                        if (in.readInt() == SNAPSHOT_MAGIC) {
+                            long at = in.readLong();
+                            int count = in.readInt();
+                            if (at >= snapshotLsn) {
+                                snapshotLsn = at;
+                                snapshotShards = count;
+                            }
+                        }
+                    }
+                } else if (name.startsWith("wal-") && name.endsWith(".log")) {
+                    segments.add(f);
+                }
+            }
+        }
+        segments.sort(null); // names are zero padded, so this sorts by first LSN
+
+        // 1. Snapshot shards, in parallel
+        long upTo = snapshotLsn;
+        IntStream.range(0, snapshotShards).parallel().forEach(shard -> {
+            try {
+                readShard(upTo, shard);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        // 2. Log records, split by user into groups that replay in parallel
+        int groups = Math.max(1, Runtime.getRuntime().availableProcessors());
+        List<List<Entry>> byGroup = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            byGroup.add(new ArrayList<>());
+        }
+        long last = snapshotLsn;
+        for (int i = 0; i < segments.size(); i++) {
+            // a file left over from before the snapshot (if deleting it failed) can be skipped
+            if (i + 1 < segments.size() && lsnIn(segments.get(i + 1).getFileName().toString(), 4) <= snapshotLsn + 1) {
+                continue;
+            }
+            // the newest file may end in a record the crash cut short; cut that
+            // off, or new records appended after it could never be read back
+            last = Math.max(last, readSegment(segments.get(i), byGroup, groups, i == segments.size() - 1));
+        }
+        this.snapshotLsn = snapshotLsn;
+
+        long threshold = snapshotLsn;
+        byGroup.parallelStream().forEach(entries -> {
+            try {
+                for (Entry e : entries) {
+                    replay(e, threshold);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return last;
+    }
+
+    private void readShard(long upTo, int shard) throws IOException {
+        Path file = dir.resolve(String.format("snapshot-%019d-%03d.bin", upTo, shard));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte domain = in.readByte();
+                if (domain == 0) {
+                    return;
+                }
+                String userId = in.readUTF();
+                long lastLsn = in.readLong();
+                Journaled state = participant(domain).readState(userId, in);
+                state.stamp().applied(lastLsn);
+            }
+        }
+    }
+
+    // Reads every complete record in a log file; stops at a torn or corrupt tail.
+    // With 'truncateTail' the file is cut back to the end of the last good record.
+    private long readSegment(Path segment, List<List<Entry>> byGroup, int groups, boolean truncateTail) throws IOException {
+        long last = 0;
+        long good = 0; // bytes up to the end of the last good record
+        CRC32 check = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+            while (true) {
+                int length;
+                int sum;
+                byte[] record;
+                try {
+                    length = in.readInt();
+                    sum = in.readInt();
+                    if (length < 11 || length > 64 * 1024 * 1024) {
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                check.reset();
+                check.update(record, 0, length);
+                if ((int) check.getValue() != sum) {
+                    break;
+                }
+
+                DataInputStream body = new DataInputStream(new ByteArrayInputStream(record));
+                long recordLsn = body.readLong();
+                byte domain = body.readByte();
+                byte op = body.readByte();
+                String userId = body.readUTF();
+                byte[] rest = body.readAllBytes();
+                byGroup.get(shardOf(userId, groups)).add(new Entry(recordLsn, domain, op, userId, rest));
+                last = recordLsn;
+                good += 8 + length;
+            }
+        }
+        if (truncateTail && good < Files.size(segment)) {
+            log.warn("Cutting {} unreadable bytes off the end of {}", Files.size(segment) - good, segment.getFileName());
+            try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                file.truncate(good);
+                file.force(true);
+            }
+        }
+        return last;
+    }
+
+    private void replay(Entry e, long snapshotLsn) throws IOException {
+        Participant p = participant(e.domain);
+        Journaled state = p.states().get(e.userId);
+        // users in the snapshot skip what it already has; everyone else skips what came before it
+        long skipUpTo = state != null ? Math.max(state.stamp().lastLsn(), snapshotLsn) : snapshotLsn;
+        if (e.lsn <= skipUpTo) {
+            return;
+        }
+        Journaled changed = p.replay(e.userId, e.op, new DataInputStream(new ByteArrayInputStream(e.body)));
+        if (changed != null) {
+            changed.stamp().applied(e.lsn);
+        }
+    }
+
+    private Participant participant(byte domain) throws IOException {
+        for (Participant p : participants) {
+            if (p.domain() == domain) {
+                return p;
+            }
+        }
+        throw new IOException("No state registered for domain " + domain);
+    }
+
+    // ---------------------------------------------------------
+    // SHUTDOWN
+    // ---------------------------------------------------------
+
+    @Override
+    public void destroy() {
+        close();
+    }
+
+    // Flushes what is buffered and stops the background threads
+    void close() {
+        if (dir == null || writer == null) {
+            return;
+        }
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // already logged by the writer; nothing more can be saved
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join(5000);
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Could not close state journal", e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.gradgoals;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -33,6 +34,19 @@ public class SupabaseClient {
     // RestTemplate is a Spring utility for making HTTP requests (GET, POST, etc.)
     private final RestTemplate restTemplate = new RestTemplate();
 
+    // Counts every call to Supabase (see /api/metrics)
+    private final Metrics metrics;
+
+    // Without Spring (tests): counts into its own Metrics
+    public SupabaseClient() {
+        this(new Metrics());
+    }
+
+    @Autowired
+    public SupabaseClient(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
 
     // ---------------------------------------------------------
     // 1. LOGIN METHOD (GET PASSWORD HASH)
@@ -56,12 +70,19 @@ public class SupabaseClient {
 
         // Execute the GET request. 
         // We expect a List of Maps because Supabase always returns an array of JSON objects.
-        ResponseEntity<List<Map<String, String>>> response = restTemplate.exchange(
-                endpoint,
-                HttpMethod.GET,
-                entity,
-                new ParameterizedTypeReference<List<Map<String, String>>>() {}
-        );
+        ResponseEntity<List<Map<String, String>>> response;
+        try {
+            response = restTemplate.exchange(
+                    endpoint,
+                    HttpMethod.GET,
+                    entity,
+                    new ParameterizedTypeReference<List<Map<String, String>>>() {}
+            );
+        } catch (RuntimeException e) {
+            countCall("get_password", "error");
+            throw e;
+        }
+        countCall("get_password", "ok");
 
         List<Map<String, String>> result = response.getBody();
 
@@ -112,10 +133,18 @@ public class SupabaseClient {
                     String.class
             );
 
-            return response.getStatusCode() == HttpStatus.CREATED;
+            boolean created = response.getStatusCode() == HttpStatus.CREATED;
+            countCall("create_user", created ? "ok" : "error");
+            return created;
         } catch (Exception e) {
+            countCall("create_user", "error");
             e.printStackTrace();
             return false;
         }
     }
+
+    private void countCall(String operation, String outcome) {
+        metrics.counter("gradgoals_supabase_calls_total", "Calls to the Supabase REST API",
+                "operation=\"" + operation + "\",outcome=\"" + outcome + "\"").increment();
+    }
 }
\ No newline at end of file
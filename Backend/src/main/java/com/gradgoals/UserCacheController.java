@@ -0,0 +1,23 @@
+package com.gradgoals;
+
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+public class UserCacheController {
+
+    private final UserStateCache cache;
+
+    public UserCacheController(UserStateCache cache) {
+        this.cache = cache;
+    }
+
+    // Hits, misses, reloads from disk and evictions for budgets and goals,
+    // plus how many users are in memory and their estimated size
+    @GetMapping("/api/cache/stats")
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,555 @@
+// This class keeps the per-user state (budgets, goals) in memory up to a
+// size limit, and moves users who haven't been seen in a while to disk.
+//
+// Each controller gets a Region (one per kind of state). A region is a map of
+// the users currently in memory plus a folder of "spill" files for users that
+// were evicted. Looking a user up:
+//   - in memory        -> hit
+//   - in a spill file  -> miss; the file is read back and the user is in memory again
+//   - nowhere          -> miss; read requests get null (nothing is created),
+//                         write requests create a new empty state
+//
+// A background sweep (every few seconds) adds up the estimated size of every
+// user in memory, evicts users idle for longer than the idle limit, and then
+// evicts the least recently used users until the total is back under the
+// memory ceiling. Evicting takes the user's Stamp exclusively and marks the
+// in-memory copy as retired, so a request that was about to change it looks
+// the user up again (see acquire) instead of changing a copy that is gone.
+//
+// Spilled users are still part of the journal's snapshots (see
+// StateJournal.Participant.spilledUsers), so evicting never loses anything.
+// When a user is read back their spill file is deleted, but only after the
+// next snapshot: one that is running while they come back may already have
+// passed them in memory and still needs the file.
+// The journal is what survives a restart, so the spill folder is cleared on
+// startup. Without a data directory the spill files go in a temp folder.
+
+package com.gradgoals;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+@Component
+public class UserStateCache implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(UserStateCache.class);
+
+    // Turns one user's state into bytes and back (the same format the snapshot uses)
+    interface Codec<V> {
+        void write(V state, DataOutput out) throws IOException;
+        V read(DataInput in) throws IOException;
+    }
+
+    private final long maxBytes;          // <= 0 means no ceiling
+    private final long idleMillis;        // <= 0 means no idle eviction
+    private final Path configuredDir;     // null means a temp folder (made on first spill)
+    private final StateJournal journal;   // nothing is evicted before it has recovered
+    private final Metrics metrics;        // users in memory / on disk per region
+    private final List<Region<?>> regions = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService sweeper;
+    private Path spillRoot;
+
+    // Never evicts anything (used by controllers created with new). Writes
+    // still check that 'journal' can log them (see acquire).
+    static UserStateCache unbounded(StateJournal journal) {
+        return new UserStateCache(0, 0, 0, (Path) null, journal);
+    }
+
+    @Autowired
+    public UserStateCache(@Value("${gradgoals.user-cache.max-mb:256}") long maxMb,
+                          @Value("${gradgoals.user-cache.idle-minutes:30}") long idleMinutes,
+                          @Value("${gradgoals.user-cache.sweep-seconds:10}") long sweepSeconds,
+                          @Value("${gradgoals.data-dir:}") String dataDir,
+                          StateJournal journal,
+                          Metrics metrics) {
+        this(maxMb * 1024 * 1024, TimeUnit.MINUTES.toMillis(idleMinutes), sweepSeconds,
+                dataDir == null || dataDir.isBlank() ? null : Paths.get(dataDir).resolve("spill"),
+                journal, metrics);
+    }
+
+    UserStateCache(long maxBytes, long idleMillis, long sweepSeconds, Path spillDir, StateJournal journal) {
+        this(maxBytes, idleMillis, sweepSeconds, spillDir, journal, new Metrics());
+    }
+
+    UserStateCache(long maxBytes, long idleMillis, long sweepSeconds, Path spillDir, StateJournal journal,
+                   Metrics metrics) {
+        this.maxBytes = maxBytes;
+        this.idleMillis = idleMillis;
+        this.configuredDir = spillDir;
+        this.journal = journal;
+        this.metrics = metrics;
+        if (sweepSeconds > 0 && (maxBytes > 0 || idleMillis > 0)) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "user-state-sweep");
+                t.setDaemon(true);
+                return t;
+            });
+            sweeper.scheduleWithFixedDelay(() -> {
+                try {
+                    sweep(System.currentTimeMillis());
+                } catch (RuntimeException e) {
+                    log.error("User state sweep failed", e);
+                }
+            }, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // Creates the region for one kind of state. 'weigher' estimates how many
+    // bytes of heap one user's state takes.
+    <V extends StateJournal.Journaled> Region<V> region(String name, Supplier<V> factory,
+                                                        Codec<V> codec, ToLongFunction<V> weigher) {
+        Region<V> region = new Region<>(name, factory, codec, weigher);
+        regions.add(region);
+        String help = "Users whose state is held in memory or spilled to disk";
+        metrics.gauge("gradgoals_user_cache_users", help, "region=\"" + name + "\",where=\"memory\"", region.live::size);
+        metrics.gauge("gradgoals_user_cache_users", help, "region=\"" + name + "\",where=\"disk\"", region.spilled::size);
+        return region;
+    }
+
+    private synchronized Path spillRoot() throws IOException {
+        if (spillRoot == null) {
+            if (configuredDir != null) {
+                // left over from the last run; the journal has the real copy
+                deleteTree(configuredDir);
+                spillRoot = Files.createDirectories(configuredDir);
+            } else {
+                spillRoot = Files.createTempDirectory("gradgoals-spill");
+            }
+        }
+        return spillRoot;
+    }
+
+    // ---------------------------------------------------------
+    // REGIONS
+    // ---------------------------------------------------------
+
+    final class Region<V extends StateJournal.Journaled> {
+        private final String name;
+        private final Supplier<V> factory;
+        private final Codec<V> codec;
+        private final ToLongFunction<V> weigher;
+
+        // users in memory, and users that have a spill file
+        private final Map<String, V> live = new ConcurrentHashMap<>();
+        private final Set<String> spilled = ConcurrentHashMap.newKeySet();
+        // read back into memory, spill file not deleted yet (see snapshotWritten)
+        private final Set<String> reloaded = ConcurrentHashMap.newKeySet();
+        // users whose spill file is being read right now
+        private final Map<String, CompletableFuture<Void>> loading = new ConcurrentHashMap<>();
+        private volatile Path dir;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder reloads = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private volatile long estimatedBytes;
+
+        private Region(String name, Supplier<V> factory, Codec<V> codec, ToLongFunction<V> weigher) {
+            this.name = name;
+            this.factory = factory;
+            this.codec = codec;
+            this.weigher = weigher;
+        }
+
+        // Users currently in memory (what the journal snapshots directly)
+        Map<String, V> live() {
+            return live;
+        }
+
+        // For reads: the user's state, or null if they have none. Never creates state.
+        V peek(String userId) {
+            V state = live.get(userId);
+            if (state != null) {
+                hits.increment();
+                state.stamp().touch(System.currentTimeMillis());
+                return state;
+            }
+            misses.increment();
+            return spilled.contains(userId) ? reload(userId, false) : null;
+        }
+
+        // For writes: the user's state, created if they have none yet
+        V getOrCreate(String userId) {
+            V state = live.get(userId);
+            if (state != null) {
+                hits.increment();
+                state.stamp().touch(System.currentTimeMillis());
+                return state;
+            }
+            misses.increment();
+            return reload(userId, true);
+        }
+
+        // For writes: the user's state with its Stamp entered. Always call
+        // state.stamp().exit() afterwards (in a finally). Throws, without
+        // touching anything, if the journal can't log the change.
+        V acquire(String userId) {
+            journal.checkWritable();
+            while (true) {
+                V state = getOrCreate(userId);
+                if (state.stamp().enter()) {
+                    try {
+                        journal.checkWritable(); // it may have failed while we waited for the lock
+                    } catch (RuntimeException e) {
+                        state.stamp().exit();
+                        throw e;
+                    }
+                    return state;
+                }
+                // evicted between the lookup and enter(); look again
+            }
+        }
+
+        // Puts a user's state in place during recovery
+        void restore(String userId, V state) {
+            state.stamp().touch(System.currentTimeMillis());
+            live.put(userId, state);
+        }
+
+        // The spill file is read outside the map's lock, so a slow disk only
+        // holds up requests for this user. One thread per user reads it (see
+        // 'loading'); the others wait and then look again.
+        private V reload(String userId, boolean create) {
+            while (true) {
+                V current = live.get(userId);
+                if (current != null) {
+                    return current;
+                }
+                if (spilled.contains(userId)) {
+                    loadSpilled(userId);
+                    continue;
+                }
+                if (!create) {
+                    return null;
+                }
+                // Only creates if they weren't evicted since the check above
+                V created = live.compute(userId, (key, existing) -> {
+                    if (existing != null || spilled.contains(key)) {
+                        return existing;
+                    }
+                    V fresh = factory.get();
+                    fresh.stamp().touch(System.currentTimeMillis());
+                    return fresh;
+                });
+                if (created != null) {
+                    return created;
+                }
+            }
+        }
+
+        private void loadSpilled(String userId) {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> other = loading.putIfAbsent(userId, mine);
+            if (other != null) {
+                other.join();
+                return;
+            }
+            try {
+                // Nobody can bring the user back while we hold 'loading', so
+                // the file can't be replaced by a newer eviction under us
+                if (live.containsKey(userId) || !spilled.contains(userId)) {
+                    return;
+                }
+                V loaded = readSpill(userId);
+                if (loaded == null) {
+                    return;
+                }
+                boolean keepFile = journal.isEnabled();
+                if (!keepFile) {
+                    deleteSpill(userId); // no snapshots that could still need it
+                }
+                loaded.stamp().touch(System.currentTimeMillis());
+                live.compute(userId, (key, existing) -> {
+                    spilled.remove(key);
+                    if (keepFile) {
+                        reloaded.add(key);
+                    }
+                    return loaded;
+                });
+                reloads.increment();
+            } finally {
+                loading.remove(userId, mine);
+                mine.complete(null);
+            }
+        }
+
+        private V readSpill(String userId) {
+            try {
+                byte[] saved = Files.readAllBytes(spillFile(userId));
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(saved));
+                long lastLsn = in.readLong();
+                V state = codec.read(in);
+                state.stamp().applied(lastLsn);
+                return state;
+            } catch (NoSuchFileException e) {
+                spilled.remove(userId);
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not reload state for " + userId, e);
+            }
+        }
+
+        // Moves one user to disk. Returns false if they are busy (or can't be spilled).
+        private boolean evict(String userId, V state) {
+            long held = state.stamp().tryRetire();
+            if (held == 0) {
+                return false;
+            }
+            boolean evicted = false;
+            try {
+                if (live.get(userId) != state) {
+                    return false;
+                }
+                Path file = spillFile(userId);
+                if (file.getFileName().toString().length() > 240) {
+                    return false; // id too long for a file name; keep it in memory
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeLong(state.stamp().lastLsn());
+                codec.write(state, out);
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(temp, bytes.toByteArray());
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                spilled.add(userId);
+                live.remove(userId, state);
+                evictions.increment();
+                evicted = true;
+                return true;
+            } catch (IOException e) {
+                log.warn("Could not spill state for {}", userId, e);
+                return false;
+            } finally {
+                state.stamp().endRetire(held, evicted);
+            }
+        }
+
+        private void deleteSpill(String userId) {
+            try {
+                Files.deleteIfExists(spillFile(userId));
+            } catch (IOException e) {
+                log.warn("Could not delete the spill file of {}", userId, e);
+            }
+        }
+
+        private Path spillFile(String userId) throws IOException {
+            if (dir == null) {
+                dir = Files.createDirectories(spillRoot().resolve(name));
+            }
+            String file = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(userId.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(file + ".bin");
+        }
+
+        // --- what the journal's snapshot needs (see StateJournal.Participant) ---
+
+        // Includes reloaded users whose file is still there: a snapshot that
+        // missed them in memory copies the file instead
+        Iterable<String> spilledUsers() {
+            return () -> Stream.concat(spilled.stream(), reloaded.stream()).distinct().iterator();
+        }
+
+        // A snapshot finished, so no snapshot needs the files of reloaded users
+        // any more. The user's Stamp is taken so this can't race an eviction
+        // writing a new file; busy users are left for the next snapshot.
+        void snapshotWritten() {
+            for (String userId : reloaded) {
+                V state = live.get(userId);
+                if (state == null) {
+                    reloaded.remove(userId); // evicted again; the file is theirs now
+                    continue;
+                }
+                long held = state.stamp().tryRetire();
+                if (held == 0) {
+                    continue;
+                }
+                try {
+                    if (live.get(userId) == state && !spilled.contains(userId)) {
+                        deleteSpill(userId);
+                    }
+                    reloaded.remove(userId);
+                } finally {
+                    state.stamp().endRetire(held, false);
+                }
+            }
+        }
+
+        byte[] spilledState(String userId) throws IOException {
+            try {
+                return Files.readAllBytes(spillFile(userId));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            long h = hits.sum();
+            long m = misses.sum();
+            stats.put("hits", h);
+            stats.put("misses", m);
+            stats.put("hitRate", h + m == 0 ? 0.0 : (double) h / (h + m));
+            stats.put("reloads", reloads.sum());
+            stats.put("evictions", evictions.sum());
+            stats.put("usersInMemory", live.size());
+            stats.put("usersOnDisk", spilled.size());
+            stats.put("estimatedBytes", estimatedBytes);
+            return stats;
+        }
+    }
+
+    // ---------------------------------------------------------
+    // EVICTION
+    // ---------------------------------------------------------
+
+    // One user in memory, as seen by a sweep
+    private static final class Candidate {
+        final Region<?> region;
+        final String userId;
+        final StateJournal.Journaled state;
+        final long lastUsed;
+        final long bytes;
+
+        Candidate(Region<?> region, String userId, StateJournal.Journaled state, long bytes) {
+            this.region = region;
+            this.userId = userId;
+            this.state = state;
+            this.lastUsed = state.stamp().lastUsed();
+            this.bytes = bytes;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean evict() {
+            return ((Region<StateJournal.Journaled>) region).evict(userId, state);
+        }
+    }
+
+    // Evicts idle users, then the least recently used ones until under the ceiling
+    void sweep(long now) {
+        if (!journal.isStarted()) {
+            return; // recovery still running
+        }
+        List<Candidate> candidates = new ArrayList<>();
+        long total = 0;
+        for (Region<?> region : regions) {
+            total += collect(region, candidates);
+        }
+
+        if (idleMillis > 0) {
+            for (Iterator<Candidate> it = candidates.iterator(); it.hasNext(); ) {
+                Candidate c = it.next();
+                if (now - c.lastUsed > idleMillis && c.evict()) {
+                    total -= c.bytes;
+                    it.remove();
+                }
+            }
+        }
+
+        if (maxBytes > 0 && total > maxBytes) {
+            // go a bit under the limit so the next few new users don't trigger another round
+            long target = maxBytes - maxBytes / 10;
+            candidates.sort(Comparator.comparingLong(c -> c.lastUsed));
+            for (Candidate c : candidates) {
+                if (total <= target) {
+                    break;
+                }
+                if (c.evict()) {
+                    total -= c.bytes;
+                }
+            }
+        }
+
+        for (Region<?> region : regions) {
+            long bytes = 0;
+            for (Candidate c : candidates) {
+                if (c.region == region && !c.state.stamp().isRetired()) {
+                    bytes += c.bytes;
+                }
+            }
+            region.estimatedBytes = bytes;
+        }
+    }
+
+    private static <V extends StateJournal.Journaled> long collect(Region<V> region, List<Candidate> out) {
+        long total = 0;
+        for (Map.Entry<String, V> e : region.live.entrySet()) {
+            long bytes = region.weigher.applyAsLong(e.getValue());
+            out.add(new Candidate(region, e.getKey(), e.getValue(), bytes));
+            total += bytes;
+        }
+        return total;
+    }
+
+    // Hit/miss/eviction numbers for every region
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxBytes", maxBytes);
+        stats.put("idleMillis", idleMillis);
+        for (Region<?> region : regions) {
+            stats.put(region.name, region.stats());
+        }
+        return stats;
+    }
+
+    // ---------------------------------------------------------
+    // SHUTDOWN
+    // ---------------------------------------------------------
+
+    @Override
+    public void destroy() throws IOException {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+        synchronized (this) {
+            if (spillRoot != null && configuredDir == null) {
+                deleteTree(spillRoot);
+            }
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AmortizationScheduleTest {
+
+    @Test
+    void testScheduleWithoutExtraRunsFullTerm() {
+        AmortizationSchedule schedule = new AmortizationSchedule(10000, 5, 10, 0, false);
+        double payment = new BudgetToolCode().studentLoanMonthlyPayment(10000, 5, 10);
+
+        double principalPaid = 0;
+        while (schedule.next()) {
+            principalPaid += schedule.getPrincipal();
+        }
+
+        assertEquals(120, schedule.getMonth());
+        assertEquals(0, schedule.getBalance());
+        assertEquals(10000, principalPaid, 0.5);
+        assertEquals(120 * payment - 10000, schedule.getTotalInterest(), 0.05);
+    }
+
+    @Test
+    void testZeroInterestSchedule() {
+        AmortizationSchedule schedule = new AmortizationSchedule(12000, 0, 10, 0, false);
+
+        assertTrue(schedule.next());
+        assertEquals(100, schedule.getPayment());
+        assertEquals(0, schedule.getInterest());
+        assertEquals(11900, schedule.getBalance());
+    }
+
+    @Test
+    void testExtraPaymentsShortenLoan() {
+        AmortizationSchedule base = new AmortizationSchedule(30000, 6, 30, 0, false);
+        AmortizationSchedule monthly = new AmortizationSchedule(30000, 6, 30, 100, false);
+        AmortizationSchedule weekly = new AmortizationSchedule(30000, 6, 30, 25, true);
+        while (base.next()) { }
+        while (monthly.next()) { }
+        while (weekly.next()) { }
+
+        assertEquals(360, base.getMonth());
+        assertTrue(monthly.getMonth() < base.getMonth());
+        assertTrue(monthly.getTotalInterest() < base.getTotalInterest());
+        // $25 a week is a bit more than $100 a month (52 weeks vs 48)
+        assertTrue(weekly.getMonth() <= monthly.getMonth());
+        assertTrue(weekly.getTotalInterest() < monthly.getTotalInterest());
+    }
+
+    @Test
+    void testWeeklyExtraCountsWeeksPerMonth() {
+        AmortizationSchedule schedule = new AmortizationSchedule(100000, 4, 30, 10, true);
+        double totalExtra = 0;
+        for (int m = 0; m < 12; m++) {
+            schedule.next();
+            totalExtra += schedule.getExtra();
+        }
+        assertEquals(520, totalExtra, 0.001);
+    }
+
+    @Test
+    void testRejectsBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> new AmortizationSchedule(-1, 5, 10, 0, false));
+        assertThrows(IllegalArgumentException.class, () -> new AmortizationSchedule(1000, 5, 0, 0, false));
+        assertThrows(IllegalArgumentException.class, () -> new AmortizationSchedule(1000, 5, 10, -5, false));
+    }
+
+    @Test
+    void testControllerStreamsCsvAndJson() throws IOException {
+        BudgetController controller = new BudgetController();
+        Map<String, Object> body = new HashMap<>();
+        body.put("principal", 1200);
+        body.put("apr", 0);
+        body.put("years", 1);
+        body.put("format", "csv");
+
+        String csv = render(controller.studentLoanSchedule(body));
+        String[] lines = csv.split("\n");
+        assertEquals("Month,Payment,Principal,Interest,Extra,Balance", lines[0]);
+        assertEquals("1,100.0,100.0,0.0,0.0,1100.0", lines[1]);
+        assertEquals(13, lines.length);
+
+        body.put("format", "json");
+        String json = render(controller.studentLoanSchedule(body));
+        assertTrue(json.startsWith("{\"monthlyPayment\":100.0,\"rows\":[{\"month\":1,"));
+        assertTrue(json.endsWith("\"summary\":{\"months\":12,\"totalInterest\":0.0,\"totalPaid\":1200.0}}"));
+    }
+
+    private static String render(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
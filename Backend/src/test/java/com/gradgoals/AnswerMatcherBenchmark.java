@@ -0,0 +1,47 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Grading one answer: the old normalize-and-compare (copied from
+// ChallengeController) against the precompiled AnswerMatcher.
+// Run with -prof gc to see the allocation per grade (gc.alloc.rate.norm).
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="AnswerMatcherBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnswerMatcherBenchmark {
+
+    @Param({"1200", "$1,200", "1200.00"})
+    public String answer;
+
+    private final String correctAnswer = "1200";
+    private AnswerMatcher matcher;
+
+    @Setup
+    public void setup() {
+        matcher = AnswerMatcher.compile(correctAnswer);
+    }
+
+    @Benchmark
+    public boolean normalizeAndEquals() {
+        return normalize(answer).equals(normalize(correctAnswer));
+    }
+
+    @Benchmark
+    public boolean matcher() {
+        return matcher.matches(answer);
+    }
+
+    private static String normalize(String raw) {
+        if (raw == null) return "";
+        return raw.trim()
+                  .replace("$", "")
+                  .replace(",", "");
+    }
+}
@@ -0,0 +1,61 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerMatcherTest {
+
+    @Test
+    void testEquivalentNumbersMatch() {
+        AnswerMatcher matcher = AnswerMatcher.compile("1200");
+
+        for (String answer : new String[] {"1200", " 1200 ", "$1,200", "1,200.00", "1200.0", "$1.2k", "1.2K", "$ 1200", "1200.004"}) {
+            assertTrue(matcher.matches(answer), answer);
+        }
+        for (String answer : new String[] {"1201", "120", "12,00.5", "1200.01", "-1200", "1200 dollars", "", "abc", "$", ".", "1.2.0"}) {
+            assertFalse(matcher.matches(answer), answer);
+        }
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    void testDecimalsAndSuffixes() {
+        assertTrue(AnswerMatcher.compile("29.97").matches("$29.970"));
+        assertFalse(AnswerMatcher.compile("29.97").matches("29.9"));
+        assertTrue(AnswerMatcher.compile("45").matches("45%"));
+        assertTrue(AnswerMatcher.compile("2000000").matches("2m"));
+        assertTrue(AnswerMatcher.compile("-5").matches("$-5"));
+        assertTrue(AnswerMatcher.compile("0").matches("$0.00"));
+
+        assertEquals(1_200_000_000L, AnswerMatcher.parseMillionths("1,200"));
+        assertEquals(1L, AnswerMatcher.parseMillionths("0.0000005"));
+        assertEquals(0L, AnswerMatcher.parseMillionths("0." + "0".repeat(40) + "1"));
+        assertEquals(AnswerMatcher.NOT_A_NUMBER, AnswerMatcher.parseMillionths("99999999999999999999"));
+        assertEquals(AnswerMatcher.NOT_A_NUMBER, AnswerMatcher.parseMillionths("9999999999999k"));
+    }
+
+    @Test
+    void testTextAnswersIgnoreCaseAndSpacing() {
+        AnswerMatcher matcher = AnswerMatcher.compile("Roth IRA | roth");
+
+        assertTrue(matcher.matches("roth ira"));
+        assertTrue(matcher.matches("  ROTH   IRA "));
+        assertTrue(matcher.matches("Roth"));
+        assertFalse(matcher.matches("rothira"));
+        assertFalse(matcher.matches("roth ira 401k"));
+    }
+
+    @Test
+    void testEveryBankAnswerGradesItself() {
+        QuestionIndex index = new QuestionBank().index();
+        for (int id = 0; id < 200; id++) {
+            ChallengeQuestion q = index.byId(id);
+            if (q != null) {
+                assertTrue(q.isCorrect(q.getCorrectAnswer()), "question " + id);
+                String padded = q.getCorrectAnswer() + (q.getCorrectAnswer().contains(".") ? "0" : ".00");
+                assertTrue(q.isCorrect(" $" + padded + " "), "question " + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetImporterTest {
+
+    @Test
+    void testCsvImportAddsValidRows() throws IOException {
+        BudgetToolCode tool = new BudgetToolCode();
+        String csv = "Category,Amount,Type\n"
+                + "Job,3000,income\n"
+                + "Rent,1200,Expense\n"
+                + "\"Food, Snacks\",150.50,expense\n";
+
+        BudgetImporter importer = new BudgetImporter(tool).readCsv(new StringReader(csv));
+        importer.apply();
+
+        assertEquals(3, importer.report().get("imported"));
+        assertEquals(0, importer.report().get("rejected"));
+        assertEquals(3000, tool.getTotalIncome());
+        assertEquals(1350.5, tool.getTotalExpenses());
+        assertEquals("Food, Snacks", tool.getAllItems().get(2).getCategory());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCsvImportReportsBadRows() throws IOException {
+        BudgetToolCode tool = new BudgetToolCode();
+        String csv = "category,amount,type\n"
+                + "Job,3000,income\n"
+                + "Rent,abc,expense\n"
+                + "Gift,50,bonus\n"
+                + ",20,expense\n"
+                + "Nothing,0,expense\n"
+                + "Refund,-5,income\n";
+
+        BudgetImporter importer = new BudgetImporter(tool).readCsv(new StringReader(csv));
+        importer.apply();
+        Map<String, Object> report = importer.report();
+
+        assertEquals(1, report.get("imported"));
+        assertEquals(5, report.get("rejected"));
+        List<Map<String, Object>> errors = (List<Map<String, Object>>) report.get("errors");
+        assertEquals(2, errors.get(0).get("row"));
+        assertEquals(3, errors.get(1).get("row"));
+        assertEquals(4, errors.get(2).get("row"));
+        assertEquals("Amount must be a positive number.", errors.get(3).get("error"));
+        assertEquals("Amount must be a positive number.", errors.get(4).get("error"));
+        assertEquals(1, tool.getAllItems().size());
+    }
+
+    @Test
+    void testCsvImportRequiresHeader() {
+        BudgetToolCode tool = new BudgetToolCode();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                new BudgetImporter(tool).readCsv(new StringReader("Job,3000,income\n")));
+    }
+
+    @Test
+    void testJsonImport() throws IOException {
+        BudgetToolCode tool = new BudgetToolCode();
+        String json = "[{\"category\":\"Job\",\"amount\":2500,\"type\":\"income\"},"
+                + "{\"category\":\"Rent\",\"amount\":\"900.25\",\"type\":\"expense\",\"note\":{\"x\":1}},"
+                + "{\"category\":\"Oops\",\"type\":\"expense\"},"
+                + "42]";
+
+        BudgetImporter importer = new BudgetImporter(tool)
+                .readJson(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        importer.apply();
+
+        assertEquals(2, importer.report().get("imported"));
+        assertEquals(2, importer.report().get("rejected"));
+        assertEquals(2500, tool.getTotalIncome());
+        assertEquals(900.25, tool.getTotalExpenses());
+    }
+
+    @Test
+    void testLargeCsvImport() throws IOException {
+        BudgetToolCode tool = new BudgetToolCode();
+        StringBuilder csv = new StringBuilder("category,amount,type\n");
+        for (int i = 0; i < 100_000; i++) {
+            csv.append("Item ").append(i % 50).append(',').append(1 + i % 100).append(",expense\n");
+        }
+
+        BudgetImporter importer = new BudgetImporter(tool).readCsv(new StringReader(csv.toString()));
+        importer.apply();
+
+        assertEquals(100_000, tool.getAllItems().size());
+        assertEquals(100_000 / 100 * 5050.0, tool.getTotalExpenses());
+        assertEquals(50, tool.getTotals().getCategories().size());
+    }
+}
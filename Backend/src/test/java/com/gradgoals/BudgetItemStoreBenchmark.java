@@ -0,0 +1,106 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares the id-indexed BudgetItemStore against the plain ArrayList that
+// BudgetToolCode used before (linear removeIf delete, full copy on every read).
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args=BudgetItemStoreBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BudgetItemStoreBenchmark {
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private BudgetToolCode owner;
+    private List<BudgetToolCode.BudgetItem> list;
+    private BudgetItemStore store;
+    private String[] ids;
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        owner = new BudgetToolCode();
+        list = new ArrayList<>();
+        store = new BudgetItemStore();
+        ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            BudgetToolCode.BudgetItem item = owner.new BudgetItem("Category " + (i % 20), i, i % 3 == 0 ? "income" : "expense");
+            ids[i] = item.getId();
+            list.add(item);
+            store.add(item);
+        }
+        cursor = 0;
+    }
+
+    // Deletes one item and adds a replacement so the size stays the same
+    @Benchmark
+    public void listDeleteAndAdd() {
+        String id = ids[cursor];
+        BudgetToolCode.BudgetItem[] removed = new BudgetToolCode.BudgetItem[1];
+        list.removeIf(i -> {
+            if (i.getId().equals(id)) {
+                removed[0] = i;
+                return true;
+            }
+            return false;
+        });
+        BudgetToolCode.BudgetItem replacement = owner.new BudgetItem(removed[0].getCategory(), removed[0].getAmount(), removed[0].getType());
+        list.add(replacement);
+        ids[cursor] = replacement.getId();
+        cursor = (cursor + 1) % size;
+    }
+
+    @Benchmark
+    public void storeDeleteAndAdd() {
+        BudgetToolCode.BudgetItem removed = store.remove(ids[cursor]);
+        BudgetToolCode.BudgetItem replacement = owner.new BudgetItem(removed.getCategory(), removed.getAmount(), removed.getType());
+        store.add(replacement);
+        ids[cursor] = replacement.getId();
+        cursor = (cursor + 1) % size;
+    }
+
+    @Benchmark
+    public BudgetToolCode.BudgetItem listLookup() {
+        String id = ids[cursor];
+        cursor = (cursor + 1) % size;
+        for (BudgetToolCode.BudgetItem item : list) {
+            if (item.getId().equals(id)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public BudgetToolCode.BudgetItem storeLookup() {
+        String id = ids[cursor];
+        cursor = (cursor + 1) % size;
+        return store.get(id);
+    }
+
+    // What /budget/items did before: copy the list, then walk the copy
+    @Benchmark
+    public void listCopyAndIterate(Blackhole bh) {
+        for (BudgetToolCode.BudgetItem item : new ArrayList<>(list)) {
+            bh.consume(item);
+        }
+    }
+
+    @Benchmark
+    public void storeSnapshotIterate(Blackhole bh) {
+        for (BudgetToolCode.BudgetItem item : store.snapshot()) {
+            bh.consume(item);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryTotalsTest {
+
+    private static BudgetToolCode.CategoryTotal total(int cents) {
+        return new BudgetToolCode.CategoryTotal(cents, 0, 1);
+    }
+
+    @Test
+    void testMatchesALinkedHashMap() {
+        CategoryTotals map = CategoryTotals.EMPTY;
+        Map<String, BudgetToolCode.CategoryTotal> expected = new LinkedHashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 20_000; i++) {
+            String category = "c" + random.nextInt(100);
+            if (random.nextInt(3) == 0) {
+                map = map.with(category, null);
+                expected.remove(category);
+            } else {
+                BudgetToolCode.CategoryTotal t = total(i);
+                map = map.with(category, t);
+                expected.put(category, t);
+            }
+            assertEquals(expected.size(), map.size());
+            assertSame(expected.get(category), map.get(category));
+        }
+        assertEquals(expected, map);
+    }
+
+    @Test
+    void testOlderVersionsDontChange() {
+        CategoryTotals v1 = CategoryTotals.EMPTY.with("Food", total(1)).with("Rent", total(2));
+        CategoryTotals v2 = v1.with("Food", null).with("Fun", total(3));
+        // a second line made from v1 takes the slot v2 already used for Fun
+        CategoryTotals other = v1.with("Gas", total(4));
+
+        assertEquals(List.of("Food", "Rent"), new ArrayList<>(v1.keySet()));
+        assertEquals(List.of("Rent", "Fun"), new ArrayList<>(v2.keySet()));
+        assertEquals(List.of("Food", "Rent", "Gas"), new ArrayList<>(other.keySet()));
+        assertNull(v1.get("Fun"));
+        assertNull(other.get("Fun"));
+        assertNull(v2.get("Gas"));
+        assertEquals(3, v2.get("Fun").getIncome() * 100, 1e-9);
+        assertTrue(CategoryTotals.EMPTY.isEmpty());
+    }
+
+    @Test
+    void testEmptiedCategoryComesBackInItsOldSpot() {
+        CategoryTotals map = CategoryTotals.EMPTY.with("a", total(1)).with("b", total(2)).with("c", total(3));
+        map = map.with("a", null).with("a", total(4));
+
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(map.keySet()));
+    }
+}
@@ -153,4 +153,48 @@ class ChallengeBackendTests {
         // Assert
         assertTrue(resp.getMessage().startsWith("Correct"));
     }
-}
\ No newline at end of file
+
+    // 11) a batch is graded in order and comes back with the new progress
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchGradesAllAnswersAndReturnsProgress() {
+        ChallengeController controller = new ChallengeController(new ProgressMatrix());
+        List<ChallengeAnswerRequest> answers = List.of(
+            new ChallengeAnswerRequest(1, "1200"),
+            new ChallengeAnswerRequest(2, "5"),
+            new ChallengeAnswerRequest(999, "1"),
+            new ChallengeAnswerRequest(10, "$90")
+        );
+
+        Map<String, Object> body = controller.checkBatch(answers, "batchUser").getBody();
+
+        List<ChallengeResponse> results = (List<ChallengeResponse>) body.get("results");
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isCorrect());
+        assertFalse(results.get(1).isCorrect());
+        assertEquals("Unknown question.", results.get(2).getMessage());
+        assertTrue(results.get(3).isCorrect());
+
+        // the unknown question isn't counted
+        Map<String, ChallengeController.CategoryStats> progress =
+            (Map<String, ChallengeController.CategoryStats>) body.get("progress");
+        assertEquals(2, progress.get("budgeting").getAttempts());
+        assertEquals(1, progress.get("budgeting").getCorrect());
+        assertEquals(1, progress.get("saving").getAttempts());
+        assertEquals(progress.keySet(), controller.getProgress("batchUser").keySet());
+    }
+
+    // 12) empty or oversized batches are refused
+    @Test
+    void batchOutsideLimitsIsRejected() {
+        ChallengeController controller = new ChallengeController(new ProgressMatrix());
+        List<ChallengeAnswerRequest> tooMany = new java.util.ArrayList<>();
+        for (int i = 0; i <= ChallengeController.MAX_BATCH; i++) {
+            tooMany.add(new ChallengeAnswerRequest(1, "1200"));
+        }
+
+        assertEquals(400, controller.checkBatch(List.of(), "u").getStatusCode().value());
+        assertEquals(400, controller.checkBatch(tooMany, "u").getStatusCode().value());
+        assertTrue(controller.getProgress("u").isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContributionLogTest {
+
+    private static final long DAY = ContributionLog.DAY_MILLIS;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void testSteadySavingRate() {
+        ContributionLog log = new ContributionLog();
+        // $100 every week for a year
+        for (int week = 0; week < 52; week++) {
+            log.record(START + week * 7 * DAY, 10_000);
+        }
+        long midWeek = START + 51 * 7 * DAY + DAY * 7 / 2;
+
+        assertEquals(10_000 / 7.0, log.ratePerDay(midWeek), 10_000 / 7.0 * 0.05);
+    }
+
+    @Test
+    void testProjectedCompletionDate() {
+        GoalChecker checker = new GoalChecker();
+        GoalChecker.SavingsGoal goal = checker.createGoal("Laptop", 1000);
+        for (int day = 0; day < 60; day++) {
+            goal.addAmount(5, START + day * DAY);
+        }
+        // $300 saved at $5/day leaves about 140 days to go
+        long now = START + 60 * DAY;
+        LocalDate today = Instant.ofEpochMilli(now).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate eta = goal.history().projectedCompletion(goal.targetCents() - goal.currentCents(), now);
+
+        assertNotNull(eta);
+        long days = eta.toEpochDay() - today.toEpochDay();
+        assertTrue(days > 125 && days < 155, "days to go: " + days);
+    }
+
+    @Test
+    void testNoContributionsMeansNoDate() {
+        GoalChecker checker = new GoalChecker();
+        GoalChecker.SavingsGoal goal = checker.createGoal("Car", 5000);
+
+        assertNull(goal.getProjectedCompletionDate());
+        assertEquals(0, goal.getMonthlyContributionRate());
+    }
+
+    @Test
+    void testWithdrawalsMeanNoDate() {
+        GoalChecker checker = new GoalChecker();
+        GoalChecker.SavingsGoal goal = checker.createGoal("Trip", 2000);
+        goal.addAmount(100, START);
+        goal.addAmount(-300, START + DAY);
+
+        assertNull(goal.history().projectedCompletion(220_000, START + 2 * DAY));
+    }
+
+    @Test
+    void testReachedGoalCompletesToday() {
+        GoalChecker checker = new GoalChecker();
+        GoalChecker.SavingsGoal goal = checker.createGoal("Phone", 500);
+        goal.addAmount(800);
+
+        assertEquals(LocalDate.now(ZoneOffset.UTC).toString(), goal.getProjectedCompletionDate());
+        // only the $500 that was actually applied is logged
+        assertEquals(50_000, goal.history().entries()[1][0]);
+    }
+
+    @Test
+    void testCompactionKeepsTotalsAndBoundsSize() {
+        ContributionLog log = new ContributionLog();
+        long total = 0;
+        for (int i = 0; i < 10_000; i++) {
+            long cents = 100 + i % 37;
+            log.record(START + i * (DAY / 3), cents);
+            total += cents;
+        }
+
+        long[][] entries = log.entries();
+        long logged = 0;
+        for (long c : entries[1]) logged += c;
+
+        assertTrue(log.size() <= ContributionLog.MAX_ENTRIES);
+        assertEquals(total, logged);
+        for (int i = 1; i < entries[0].length; i++) {
+            assertTrue(entries[0][i] >= entries[0][i - 1]);
+        }
+    }
+
+    @Test
+    void testConcurrentContributionsAreAllRecorded() throws Exception {
+        GoalChecker checker = new GoalChecker();
+        GoalChecker.SavingsGoal goal = checker.createGoal("House", 1_000_000);
+        Thread[] savers = new Thread[8];
+        for (int t = 0; t < savers.length; t++) {
+            savers[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    goal.addCents(1 + i % 3, START + i);
+                }
+            });
+            savers[t].start();
+        }
+        for (Thread s : savers) {
+            s.join();
+        }
+
+        long logged = 0;
+        for (long c : goal.history().entries()[1]) logged += c;
+        assertEquals(8 * (5_000 / 3 * 6 + 1 + 2), goal.currentCents());
+        assertEquals(goal.currentCents(), logged);
+        assertTrue(goal.history().size() <= ContributionLog.MAX_ENTRIES);
+    }
+}
@@ -0,0 +1,111 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks the closed-form credit card payoff against the original
+// month-by-month simulation on a large corpus of random inputs.
+class CreditCardPayoffTest {
+
+    private final BudgetToolCode tool = new BudgetToolCode();
+
+    // Money is compared in whole cents, exactly
+    private static void assertSameCents(double expected, double actual, String message) {
+        assertEquals(Math.round(expected * 100), Math.round(actual * 100), message);
+    }
+
+    private void assertMatchesIterative(double balance, double apr, double payment) {
+        BudgetToolCode.CreditCardResult fast = tool.simulateCreditCardPayoff(balance, apr, payment);
+        BudgetToolCode.CreditCardResult slow = tool.simulateCreditCardPayoffIterative(balance, apr, payment);
+        String input = "balance=" + balance + " apr=" + apr + " payment=" + payment;
+
+        assertEquals(slow.isPayoffPossible(), fast.isPayoffPossible(), input);
+        assertEquals(slow.getMonthsToPayoff(), fast.getMonthsToPayoff(), input);
+        assertSameCents(slow.getTotalInterest(), fast.getTotalInterest(), input);
+        assertSameCents(slow.getFinalBalance(), fast.getFinalBalance(), input);
+    }
+
+    // Amounts are whole cents, like real balances and payments
+    private static double cents(Random random, double max) {
+        return (1 + random.nextInt((int) (max * 100))) / 100.0;
+    }
+
+    @Test
+    void testRandomCorpusMatchesIterative() {
+        Random random = new Random(20240601L);
+        for (int i = 0; i < 20_000; i++) {
+            double balance = cents(random, 50_000);
+            double apr = random.nextInt(10) == 0 ? 0 : random.nextInt(3600) / 100.0;
+            double monthlyInterest = balance * apr / 100.0 / 12.0;
+            double payment = Math.round((monthlyInterest + cents(random, balance / 2 + 50)) * 100) / 100.0;
+
+            assertMatchesIterative(balance, apr, payment);
+        }
+    }
+
+    @Test
+    void testPaymentsBarelyAboveInterestMatchIterative() {
+        Random random = new Random(7L);
+        for (int i = 0; i < 500; i++) {
+            double balance = cents(random, 20_000);
+            double apr = 1 + random.nextInt(3000) / 100.0;
+            double monthlyInterest = balance * apr / 100.0 / 12.0;
+            double payment = Math.ceil(monthlyInterest * 100) / 100.0 + random.nextInt(200) / 100.0;
+
+            assertMatchesIterative(balance, apr, payment);
+        }
+    }
+
+    @Test
+    void testEdgeCasesMatchIterative() {
+        assertMatchesIterative(1000, 12, 5);       // payment below interest
+        assertMatchesIterative(1000, 12, 10);      // payment equal to interest
+        assertMatchesIterative(1000, 0, 100);      // exact whole months at 0%
+        assertMatchesIterative(1000, 0, 0);        // no payment at 0%
+        assertMatchesIterative(0, 18, 50);         // nothing owed
+        assertMatchesIterative(500, 24, 10_000);   // paid off in one month
+        assertMatchesIterative(100_000, 0, 0.01);  // hits the month limit
+    }
+
+    @Test
+    void testKnownPayoff() {
+        BudgetToolCode.CreditCardResult res = tool.simulateCreditCardPayoff(1000, 12, 200);
+
+        assertTrue(res.isPayoffPossible());
+        assertEquals(6, res.getMonthsToPayoff());
+        assertEquals(0.0, res.getFinalBalance());
+        assertSameCents(31.12, res.getTotalInterest(), "interest");
+    }
+
+    @Test
+    void testSweepMatchesSingleCalculation() {
+        double balance = 4321.09;
+        double[] aprs = new double[40];
+        double[] payments = new double[75];
+        for (int i = 0; i < aprs.length; i++) aprs[i] = i * 0.75;
+        for (int j = 0; j < payments.length; j++) payments[j] = 20 + j * 12.5;
+
+        PayoffSweep sweep = new PayoffSweep(balance, aprs, payments).run();
+
+        for (int i = 0; i < aprs.length; i++) {
+            for (int j = 0; j < payments.length; j++) {
+                BudgetToolCode.CreditCardResult single = tool.simulateCreditCardPayoff(balance, aprs[i], payments[j]);
+                if (!single.isPayoffPossible() || single.getFinalBalance() > 0) {
+                    assertEquals(-1, sweep.months[i][j]);
+                } else {
+                    assertEquals(single.getMonthsToPayoff(), sweep.months[i][j]);
+                    assertSameCents(single.getTotalInterest(), sweep.totalInterest[i][j], "apr=" + aprs[i] + " payment=" + payments[j]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSweepRejectsOversizedGrid() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new PayoffSweep(1000, new double[2000], new double[1000]));
+    }
+}
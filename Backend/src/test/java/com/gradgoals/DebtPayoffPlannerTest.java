@@ -0,0 +1,137 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebtPayoffPlannerTest {
+
+    private static List<DebtPayoffPlanner.Debt> sampleDebts() {
+        List<DebtPayoffPlanner.Debt> debts = new ArrayList<>();
+        debts.add(new DebtPayoffPlanner.Debt("Visa", 3200, 24.99, 90));
+        debts.add(new DebtPayoffPlanner.Debt("Car", 9000, 6.5, 250));
+        debts.add(new DebtPayoffPlanner.Debt("Store card", 600, 29.99, 35));
+        debts.add(new DebtPayoffPlanner.Debt("Student loan", 18000, 4.5, 190));
+        return debts;
+    }
+
+    @Test
+    void testAvalancheTargetsHighestApr() {
+        Map<String, Object> plan = new DebtPayoffPlanner(sampleDebts(), 900, "avalanche", null).plan();
+
+        assertEquals(List.of("Store card", "Visa", "Car", "Student loan"), plan.get("order"));
+        assertEquals(true, plan.get("debtFree"));
+    }
+
+    @Test
+    void testSnowballTargetsSmallestBalance() {
+        Map<String, Object> plan = new DebtPayoffPlanner(sampleDebts(), 900, "snowball", null).plan();
+
+        assertEquals(List.of("Store card", "Visa", "Car", "Student loan"), plan.get("order"));
+    }
+
+    @Test
+    void testCustomOrderIsRespected() {
+        Map<String, Object> plan = new DebtPayoffPlanner(sampleDebts(), 900, "custom", List.of("Car", "Visa")).plan();
+
+        assertEquals(List.of("Car", "Visa", "Store card", "Student loan"), plan.get("order"));
+    }
+
+    @Test
+    void testMatchesMonthByMonthSimulation() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            int n = 1 + random.nextInt(6);
+            List<DebtPayoffPlanner.Debt> debts = new ArrayList<>();
+            double[] balance = new double[n];
+            double[] rate = new double[n];
+            double[] min = new double[n];
+            double minimums = 0;
+            for (int i = 0; i < n; i++) {
+                balance[i] = 100 + random.nextInt(15000);
+                double apr = random.nextInt(2800) / 100.0;
+                rate[i] = apr / 100.0 / 12.0;
+                min[i] = Math.ceil(balance[i] * 0.02 + 10);
+                minimums += min[i];
+                debts.add(new DebtPayoffPlanner.Debt("d" + i, balance[i], apr, min[i]));
+            }
+            double budget = minimums + random.nextInt(800);
+            String strategy = random.nextBoolean() ? "avalanche" : "snowball";
+
+            Map<String, Object> plan = new DebtPayoffPlanner(debts, budget, strategy, null).plan();
+
+            @SuppressWarnings("unchecked")
+            List<String> order = (List<String>) plan.get("order");
+            double[] expected = simulate(balance, rate, min, budget, order);
+
+            assertEquals((int) expected[0], plan.get("months"), "run " + run);
+            assertEquals(expected[1], (double) plan.get("totalInterest"), 0.02, "run " + run);
+        }
+    }
+
+    // Plain month-by-month version of the same rules, used as the reference.
+    // Returns { month the last debt was paid off (or -1), total interest }.
+    private static double[] simulate(double[] start, double[] rate, double[] min, double budget, List<String> order) {
+        int n = start.length;
+        double[] b = start.clone();
+        double[] pay = min.clone();
+        boolean[] done = new boolean[n];
+        int[] priority = new int[n];
+        for (int i = 0; i < n; i++) {
+            priority[i] = Integer.parseInt(order.get(i).substring(1));
+        }
+        double extra = budget;
+        for (double m : min) extra -= m;
+        pay[priority[0]] += extra;
+
+        double interest = 0;
+        int left = n;
+        int last = -1;
+        for (int month = 1; month <= DebtPayoffPlanner.MAX_MONTHS && left > 0; month++) {
+            double freed = 0;
+            for (int i = 0; i < n; i++) {
+                if (done[i]) continue;
+                double charge = b[i] * rate[i];
+                interest += charge;
+                b[i] = b[i] + charge - pay[i];
+                if (b[i] <= 1e-9) {
+                    done[i] = true;
+                    freed += pay[i];
+                    pay[i] = 0;
+                    left--;
+                    last = month;
+                }
+            }
+            if (freed > 0) {
+                for (int p : priority) {
+                    if (!done[p]) {
+                        pay[p] += freed;
+                        break;
+                    }
+                }
+            }
+        }
+        return new double[] { left == 0 ? last : -1, Math.round(interest * 100) / 100.0 };
+    }
+
+    @Test
+    void testRejectsBudgetBelowMinimums() {
+        assertThrows(IllegalArgumentException.class, () ->
+                new DebtPayoffPlanner(sampleDebts(), 100, "avalanche", null));
+    }
+
+    @Test
+    void testDebtThatNeverPaysOff() {
+        List<DebtPayoffPlanner.Debt> debts = List.of(new DebtPayoffPlanner.Debt("Card", 10000, 30, 50));
+        Map<String, Object> plan = new DebtPayoffPlanner(debts, 50, "avalanche", null).plan();
+
+        assertEquals(false, plan.get("debtFree"));
+        assertEquals(-1, plan.get("months"));
+        assertTrue((double) plan.get("remainingBalance") > 10000);
+    }
+}
@@ -2,8 +2,7 @@ package com.gradgoals;
 
 import org.junit.jupiter.api.*;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.StringWriter;
 import static org.junit.jupiter.api.Assertions.*;
 
 class BudgetToolCodeTest69 {
@@ -76,10 +75,11 @@ class BudgetToolCodeTest69 {
         tool.addItem("Rent", 800, "expense");
         tool.addItem("Groceries", 300, "expense");
 
-        // UPDATED: No arguments passed here
-        Path file = tool.exportCsv();
+        // UPDATED: CSV is now written to a stream instead of a file
+        StringWriter out = new StringWriter();
+        tool.writeCsv(out);
 
-        String content = Files.readString(file);
+        String content = out.toString();
 
         // Check that totals appear correctly
         assertTrue(content.contains("Total Income,1200.0"));
@@ -93,9 +93,6 @@ class BudgetToolCodeTest69 {
 
         // UPDATED: Removed checks for Credit Card and Student Loan info
         // as they are no longer included in the CSV export.
-
-        // Clean up
-        Files.deleteIfExists(file);
     }
 
     // 9 Removing an item decreases list size
@@ -113,12 +110,11 @@ class BudgetToolCodeTest69 {
     void testCsvEscaping() throws IOException {
         tool.addItem("Food, Snacks", 200, "expense");
         
-        // UPDATED: No arguments passed here
-        Path file = tool.exportCsv();
+        // UPDATED: CSV is now written to a stream instead of a file
+        StringWriter out = new StringWriter();
+        tool.writeCsv(out);
 
-        String content = Files.readString(file);
+        String content = out.toString();
         assertTrue(content.contains("\"Food, Snacks\""));
-
-        Files.deleteIfExists(file);
     }
 }
\ No newline at end of file
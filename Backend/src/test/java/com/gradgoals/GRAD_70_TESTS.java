@@ -3,8 +3,7 @@ package com.gradgoals;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.StringWriter;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -96,18 +95,145 @@ class BudgetToolCodeTest {
     }
 
     @Test
-    void testCsvExportFileCreated() throws IOException {
+    void testCsvExportWritesOutput() throws IOException {
         BudgetToolCode tool = new BudgetToolCode();
 
         tool.addItem("Job", 3000, "income");
         tool.addItem("Rent", 1200, "expense");
 
-        // UPDATED: No arguments passed here
-        Path file = tool.exportCsv();
+        // UPDATED: CSV is streamed to a writer, no file is created
+        StringWriter out = new StringWriter();
+        tool.writeCsv(out);
 
-        assertTrue(Files.exists(file));
-        assertTrue(Files.size(file) > 0);
+        String[] lines = out.toString().split("\n");
+        assertEquals("Section,Item,Value,Notes", lines[0]);
+        assertEquals("Net,Net Monthly,1800.0,", lines[3]);
+        assertEquals("", lines[4]);
+        assertEquals("Item,Job,3000.0,income", lines[6]);
+        assertEquals("Item,Rent,1200.0,expense", lines[7]);
+    }
+
+    @Test
+    void testTotalsUpdateWhenItemRemoved() {
+        BudgetToolCode tool = new BudgetToolCode();
+        tool.addItem("Job", 3000, "income");
+        tool.addItem("Rent", 1000, "expense");
+        tool.addItem("Food", 250, "expense");
+
+        String rentId = tool.getAllItems().get(1).getId();
+        tool.removeItem(rentId);
+
+        assertEquals(3000, tool.getTotalIncome());
+        assertEquals(250, tool.getTotalExpenses());
+        assertEquals(2750.00, tool.getNetMonthly());
+        assertFalse(tool.getTotals().getCategories().containsKey("Rent"));
+        assertEquals(250, tool.getTotals().getCategories().get("Food").getExpenses());
+    }
+
+    @Test
+    void testCategoryTotalsCombineItems() {
+        BudgetToolCode tool = new BudgetToolCode();
+        tool.addItem("Food", 100, "expense");
+        tool.addItem("Food", 50, "expense");
+        tool.addItem("Job", 2000, "income");
+
+        BudgetToolCode.CategoryTotal food = tool.getTotals().getCategories().get("Food");
 
-        Files.deleteIfExists(file);
+        assertEquals(150, food.getExpenses());
+        assertEquals(0, food.getIncome());
+        assertEquals(2, food.getCount());
+    }
+
+    @Test
+    void testTotalsConsistentUnderConcurrentWrites() throws InterruptedException {
+        BudgetToolCode tool = new BudgetToolCode();
+        int threads = 8;
+        int perThread = 500;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    tool.addItem("Job", 2, "income");
+                    tool.addItem("Food", 1, "expense");
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertEquals(threads * perThread * 2.0, tool.getTotalIncome());
+        assertEquals(threads * perThread * 1.0, tool.getTotalExpenses());
+        assertEquals(threads * perThread * 2, tool.getAllItems().size());
+    }
+
+    @Test
+    void testSnapshotUnaffectedByLaterWrites() {
+        BudgetToolCode tool = new BudgetToolCode();
+        tool.addItem("Job", 3000, "income");
+        tool.addItem("Rent", 1000, "expense");
+
+        List<BudgetToolCode.BudgetItem> before = tool.getAllItems();
+        tool.removeItem(before.get(0).getId());
+        tool.addItem("Food", 200, "expense");
+
+        assertEquals(2, before.size());
+        assertEquals("Job", before.get(0).getCategory());
+        assertEquals("Rent", before.get(1).getCategory());
+
+        List<BudgetToolCode.BudgetItem> after = tool.getAllItems();
+        assertEquals(2, after.size());
+        assertEquals("Rent", after.get(0).getCategory());
+        assertEquals("Food", after.get(1).getCategory());
+    }
+
+    @Test
+    void testLookupAndOrderSurviveCompaction() {
+        BudgetToolCode tool = new BudgetToolCode();
+        for (int i = 0; i < 500; i++) {
+            tool.addItem("Item " + i, i, "expense");
+        }
+        List<BudgetToolCode.BudgetItem> all = tool.getAllItems();
+        for (int i = 1; i < 400; i += 3) {
+            tool.removeItem(all.get(i).getId());
+        }
+        for (int i = 0; i < 400; i++) {
+            tool.removeItem(all.get(i).getId());
+        }
+
+        List<BudgetToolCode.BudgetItem> left = tool.getAllItems();
+        assertEquals(100, left.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Item " + (400 + i), left.get(i).getCategory());
+        }
+        assertNotNull(tool.getItem(all.get(450).getId()));
+        assertNull(tool.getItem(all.get(10).getId()));
+    }
+
+    @Test
+    void testIndexedReadsSkipDeletedSlots() {
+        BudgetToolCode tool = new BudgetToolCode();
+        for (int i = 0; i < 1000; i++) {
+            tool.addItem("Item " + i, i, "expense");
+        }
+        List<BudgetToolCode.BudgetItem> all = tool.getAllItems();
+        // every third one gone: not enough deleted slots to compact
+        for (int i = 0; i < 1000; i += 3) {
+            tool.removeItem(all.get(i).getId());
+        }
+
+        List<BudgetToolCode.BudgetItem> left = tool.getAllItems();
+        assertEquals(666, left.size());
+        int n = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i % 3 != 0) {
+                assertEquals("Item " + i, left.get(n++).getCategory());
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> left.get(666));
+        // the old snapshot still has all of them, in order
+        assertEquals("Item 999", all.get(999).getCategory());
     }
-}
\ No newline at end of file
+}
@@ -128,4 +128,65 @@ class GoalCheckerTest {
 
         assertEquals(1, checker.getAllGoals().size());
     }
+
+    @Test
+    void testConcurrentContributionsAreNotLost() throws InterruptedException {
+        GoalChecker checker = new GoalChecker();
+        var goal = checker.createGoal("Emergency Fund", 1_000_000);
+        int threads = 16;
+        int perThread = 5_000;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    checker.addToGoal(goal.getId(), 0.01);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        // 80,000 one-cent contributions
+        assertEquals(800.0, goal.getCurrentAmount());
+    }
+
+    @Test
+    void testConcurrentContributionsStopAtTarget() throws InterruptedException {
+        GoalChecker checker = new GoalChecker();
+        var goal = checker.createGoal("Concert", 250);
+        int threads = 8;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    checker.addToGoal(goal.getId(), 1);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertEquals(250.0, goal.getCurrentAmount());
+    }
+
+    @Test
+    void testGetAllGoalsKeepsCreationOrder() {
+        GoalChecker checker = new GoalChecker();
+        checker.createGoal("First", 100);
+        var second = checker.createGoal("Second", 100);
+        checker.createGoal("Third", 100);
+        checker.removeGoal(second.getId());
+        checker.createGoal("Fourth", 100);
+
+        List<GoalChecker.SavingsGoal> goals = checker.getAllGoals();
+
+        assertEquals(List.of("First", "Third", "Fourth"), goals.stream().map(GoalChecker.SavingsGoal::getName).toList());
+        assertSame(goals.get(1), checker.getGoal(goals.get(1).getId()));
+    }
 }
@@ -0,0 +1,30 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Latency of one goal projection request at the sizes the endpoint allows.
+// Add "-prof gc" to the JMH arguments to confirm the per-path loop doesn't allocate.
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args=GoalProjectionBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GoalProjectionBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int paths;
+
+    @Param({"60", "240"})
+    public int months;
+
+    @Benchmark
+    public long[] project() {
+        // $10k goal, $150/month +- $50, 7% return with 15% volatility
+        return new GoalProjection(500, 10_000, 150, 50, 7, 15, months, paths, 12345L).run();
+    }
+}
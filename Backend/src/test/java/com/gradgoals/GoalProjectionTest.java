@@ -0,0 +1,78 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoalProjectionTest {
+
+    @Test
+    void testNoRandomnessGivesExactMonth() {
+        // $1,000 goal, $100 a month, no returns or variation: always month 10
+        GoalProjection projection = new GoalProjection(0, 1000, 100, 0, 0, 0, 120, 10_000, 1L);
+        long[] finished = projection.run();
+
+        assertEquals(10_000, finished[10]);
+        assertEquals(10, GoalProjection.percentile(finished, 10_000, 0.5));
+    }
+
+    @Test
+    void testAlreadyReachedGoal() {
+        GoalProjection projection = new GoalProjection(500, 400, 0, 0, 5, 10, 12, 1000, 1L);
+        Map<String, Object> report = projection.report(LocalDate.of(2025, 1, 1));
+
+        assertEquals(1.0, report.get("probability"));
+        assertEquals(0, ((Map<?, ?>) report.get("p50")).get("months"));
+    }
+
+    @Test
+    void testUnreachableGoalReportsNoDates() {
+        GoalProjection projection = new GoalProjection(0, 1_000_000, 10, 0, 0, 0, 24, 1000, 1L);
+        Map<String, Object> report = projection.report(LocalDate.of(2025, 1, 1));
+
+        assertEquals(0.0, report.get("probability"));
+        assertNull(((Map<?, ?>) report.get("p90")).get("date"));
+    }
+
+    @Test
+    void testPercentilesAreOrderedAndRepeatable() {
+        GoalProjection a = new GoalProjection(1000, 10_000, 200, 80, 7, 15, 240, 200_000, 42L);
+        GoalProjection b = new GoalProjection(1000, 10_000, 200, 80, 7, 15, 240, 200_000, 42L);
+        Map<String, Object> first = a.report(LocalDate.of(2025, 1, 1));
+        Map<String, Object> second = b.report(LocalDate.of(2025, 1, 1));
+
+        int p10 = (int) ((Map<?, ?>) first.get("p10")).get("months");
+        int p50 = (int) ((Map<?, ?>) first.get("p50")).get("months");
+        int p90 = (int) ((Map<?, ?>) first.get("p90")).get("months");
+        assertTrue(p10 <= p50 && p50 <= p90);
+        // without growth it takes 45 months; with ~7% returns the median is a bit sooner
+        assertTrue(p50 > 30 && p50 <= 45, "median was " + p50);
+        assertEquals(first.get("p50"), second.get("p50"));
+        assertEquals(first.get("probability"), second.get("probability"));
+    }
+
+    @Test
+    void testStepBudgetLimitsPaths() {
+        GoalProjection projection = new GoalProjection(0, 1000, 10, 0, 0, 0, 600, 1_000_000, 1L);
+
+        assertEquals(GoalProjection.MAX_STEPS / 600, projection.getPaths());
+    }
+
+    @Test
+    void testTimeBudgetCutsPathsShort() {
+        GoalProjection projection = new GoalProjection(0, 1000, 100, 0, 0, 0, 120, 100_000, 1L);
+        // already out of time: only the first chunk runs
+        Map<String, Object> report = projection.report(LocalDate.of(2025, 1, 1), -1);
+
+        int simulated = (int) report.get("paths");
+        assertTrue(simulated > 0 && simulated < 100_000, "simulated " + simulated);
+        assertEquals(true, report.get("outOfTime"));
+        assertEquals(1.0, report.get("probability"));
+        assertEquals(10, ((Map<?, ?>) report.get("p50")).get("months"));
+
+        assertEquals(false, projection.report(LocalDate.of(2025, 1, 1)).get("outOfTime"));
+    }
+}
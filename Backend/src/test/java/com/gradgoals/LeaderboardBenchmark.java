@@ -0,0 +1,74 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// A leaderboard with a million users: moving one user after an answer,
+// ranking one user, and reading the top 10 with RankTree, against working
+// out a rank by looking at every user (what a scan over all progress does).
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="LeaderboardBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    @Param({"1000000"})
+    public int users;
+
+    private RankTree tree;
+    private RankTree.Entry[] entries;   // each user's current entry
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setup() {
+        tree = new RankTree();
+        entries = new RankTree.Entry[users];
+        for (int u = 0; u < users; u++) {
+            int attempts = 1 + random.nextInt(500);
+            entries[u] = new RankTree.Entry(random.nextInt(attempts + 1), attempts, "user" + u);
+            tree.add(entries[u]);
+        }
+    }
+
+    // One answer: take the user out and put them back one attempt further on
+    @Benchmark
+    public RankTree.Entry answer() {
+        int u = random.nextInt(users);
+        RankTree.Entry old = entries[u];
+        RankTree.Entry moved = new RankTree.Entry(old.correct + (random.nextBoolean() ? 1 : 0), old.attempts + 1, old.userId);
+        tree.remove(old);
+        tree.add(moved);
+        entries[u] = moved;
+        return moved;
+    }
+
+    @Benchmark
+    public int rank() {
+        RankTree.Entry e = entries[random.nextInt(users)];
+        return 1 + tree.countBetter(e.correct, e.attempts);
+    }
+
+    @Benchmark
+    public List<RankTree.Entry> top10() {
+        return tree.top(10);
+    }
+
+    @Benchmark
+    public int rankByScan() {
+        RankTree.Entry me = entries[random.nextInt(users)];
+        int better = 0;
+        for (RankTree.Entry e : entries) {
+            if (e.compareTo(me) < 0 && !e.sameScore(me)) {
+                better++;
+            }
+        }
+        return 1 + better;
+    }
+}
@@ -0,0 +1,162 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardsTest {
+
+    @TempDir
+    Path dir;
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> top(Map<String, Object> standings) {
+        return (List<Map<String, Object>>) standings.get("top");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> you(Map<String, Object> standings) {
+        return (Map<String, Object>) standings.get("you");
+    }
+
+    @Test
+    void testRankTreeMatchesSortingEveryone() {
+        Random random = new Random(7);
+        RankTree tree = new RankTree();
+        Map<String, RankTree.Entry> current = new HashMap<>();
+
+        // 20,000 random moves over 2,000 users
+        for (int i = 0; i < 20_000; i++) {
+            String user = "u" + random.nextInt(2000);
+            RankTree.Entry old = current.remove(user);
+            if (old != null) {
+                tree.remove(old);
+            }
+            if (random.nextInt(10) > 0) {
+                int attempts = 1 + random.nextInt(50);
+                RankTree.Entry entry = new RankTree.Entry(random.nextInt(attempts + 1), attempts, user);
+                tree.add(entry);
+                current.put(user, entry);
+            }
+        }
+
+        List<RankTree.Entry> sorted = new ArrayList<>(current.values());
+        sorted.sort(null);
+        assertEquals(sorted.size(), tree.size());
+        assertEquals(sorted.subList(0, 50), tree.top(50));
+        for (int i = 0; i < sorted.size(); i += 37) {
+            RankTree.Entry entry = sorted.get(i);
+            assertEquals(i, tree.countBefore(entry));
+            int better = 0;
+            while (better < i && !sorted.get(better).sameScore(entry)) {
+                better++;
+            }
+            assertEquals(better, tree.countBetter(entry.correct, entry.attempts));
+        }
+    }
+
+    @Test
+    void testCheckAnswerMovesUsersUpTheBoards() {
+        ChallengeController challenge = new ChallengeController();
+        // ana: 2 of 2 budgeting, ben: 2 of 3 budgeting, cy: 1 of 1 saving
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), "ana");
+        challenge.checkAnswer(new ChallengeAnswerRequest(2, "1300"), "ana");
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), "ben");
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "7"), "ben");
+        challenge.checkAnswer(new ChallengeAnswerRequest(2, "1300"), "ben");
+        challenge.checkAnswer(new ChallengeAnswerRequest(10, "90"), "cy");
+
+        Map<String, Object> budgeting = challenge.leaderboard("ben", "Budgeting", 10).getBody();
+        assertEquals("budgeting", budgeting.get("board"));
+        assertEquals(2, budgeting.get("users"));
+        assertEquals("ana", top(budgeting).get(0).get("userId"));
+        assertEquals(100.0, top(budgeting).get(0).get("accuracy"));
+        assertEquals(2, you(budgeting).get("rank"));
+        assertEquals(66.7, you(budgeting).get("accuracy"));
+
+        Map<String, Object> global = challenge.leaderboard("cy", null, 1).getBody();
+        assertEquals(3, global.get("users"));
+        assertEquals(1, top(global).size());
+        assertEquals(3, you(global).get("rank"));
+
+        // same correct count as ana but worse accuracy, until one more right answer
+        assertEquals(2, you(challenge.leaderboard("ben", null, 10).getBody()).get("rank"));
+        challenge.checkAnswer(new ChallengeAnswerRequest(3, "70"), "ben");
+        assertEquals(1, you(challenge.leaderboard("ben", null, 10).getBody()).get("rank"));
+        challenge.resetProgress("ben");
+        Map<String, Object> after = challenge.leaderboard("ben", null, 10).getBody();
+        assertEquals(2, after.get("users"));
+        assertNull(after.get("you"));
+
+        assertEquals(400, challenge.leaderboard("ana", "nope", 10).getStatusCode().value());
+    }
+
+    @Test
+    void testTiedUsersShareARank() {
+        ChallengeController challenge = new ChallengeController();
+        for (String user : List.of("ana", "ben", "cy")) {
+            challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), user);
+        }
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "0"), "cy");
+
+        List<Map<String, Object>> top = top(challenge.leaderboard("cy", null, 10).getBody());
+        assertEquals(List.of(1, 1, 3), top.stream().map(r -> r.get("rank")).toList());
+    }
+
+    @Test
+    void testBoardsAreRebuiltFromSavedProgress() throws Exception {
+        ProgressMatrix first = new ProgressMatrix(dir.resolve("progress.dat"));
+        for (int u = 0; u < 100; u++) {
+            for (int i = 0; i <= u % 10; i++) {
+                first.record("user" + u, "saving", true);
+            }
+        }
+        first.destroy();
+
+        Leaderboards boards = new Leaderboards(new ProgressMatrix(dir.resolve("progress.dat")));
+        Map<String, Object> saving = boards.standings("saving", "user0", 5);
+        assertEquals(100, saving.get("users"));
+        assertEquals(10, top(saving).get(0).get("correct"));
+        assertEquals(91, you(saving).get("rank")); // 90 users have more than 1 correct
+    }
+
+    @Test
+    void testConcurrentAnswersEndUpOnTheBoards() throws Exception {
+        ProgressMatrix matrix = new ProgressMatrix();
+        Leaderboards boards = new Leaderboards(matrix);
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            int thread = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String user = "user" + thread + "-" + (i % 50);
+                    String category = i % 2 == 0 ? "budgeting" : "saving";
+                    matrix.record(user, category, i % 3 == 0);
+                    boards.answered(user, category);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        Map<String, Object> global = boards.standings(null, "user0-0", 1);
+        assertEquals(400, global.get("users"));
+        int row = matrix.row("user0-0");
+        long totals = matrix.totals(row);
+        assertEquals(ProgressMatrix.correctOf(totals), you(global).get("correct"));
+        assertEquals(ProgressMatrix.attemptsOf(totals), you(global).get("attempts"));
+        // even answers are budgeting, odd ones saving, so each board has half the users
+        assertEquals(200, boards.standings("saving", null, 1).get("users"));
+        boards.destroy();
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,6 +20,10 @@ public class LoginControllerTest {
     @Mock
     private SupabaseClient supabaseClient;
 
+    // handed to the constructor along with the mock
+    @Spy
+    private Metrics metrics = new Metrics();
+
     @InjectMocks
     private LoginController loginController;
 
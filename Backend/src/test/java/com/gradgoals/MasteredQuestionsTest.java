@@ -0,0 +1,116 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MasteredQuestionsTest {
+
+    private static final List<ChallengeCategory> CATEGORIES = List.of(
+            new ChallengeCategory("budgeting", "Budgeting", "blurb"),
+            new ChallengeCategory("saving", "Saving", "blurb"));
+
+    // 'count' budgeting questions with ids 1..count, plus one saving question (id 0)
+    private static QuestionIndex index(int count) {
+        List<ChallengeQuestion> questions = new ArrayList<>();
+        questions.add(new ChallengeQuestion(0, "saving", "S", "0", "e"));
+        for (int i = 1; i <= count; i++) {
+            questions.add(new ChallengeQuestion(i, "budgeting", "Q" + i, String.valueOf(i), "e"));
+        }
+        return new QuestionIndex(CATEGORIES, questions);
+    }
+
+    @Test
+    void testOnlyUnmasteredQuestionsAreDrawn() {
+        QuestionIndex index = index(200);
+        MasteredQuestions mastered = new MasteredQuestions();
+
+        // master everything except 7 and 150, then draw a lot
+        for (int id = 1; id <= 200; id++) {
+            if (id != 7 && id != 150) {
+                mastered.master("ana", index, index.byId(id));
+            }
+        }
+        assertEquals(198, mastered.masteredCount("ana", index, "budgeting"));
+
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            seen.add(mastered.next("ana", index, "BUDGETING").getId());
+        }
+        assertEquals(Set.of(7, 150), seen);
+
+        // other users and categories are untouched
+        assertNotNull(mastered.next("ben", index, "budgeting"));
+        assertEquals(0, mastered.next("ana", index, "saving").getId());
+    }
+
+    @Test
+    void testReportsExhaustedCategoryAndReset() {
+        QuestionIndex index = index(65); // crosses a 64-bit word
+        MasteredQuestions mastered = new MasteredQuestions();
+        for (int id = 1; id <= 65; id++) {
+            mastered.master("ana", index, index.byId(id));
+            mastered.master("ana", index, index.byId(id)); // twice counts once
+        }
+
+        assertNull(mastered.next("ana", index, "budgeting"));
+        assertEquals(65, mastered.masteredCount("ana", index, "budgeting"));
+
+        mastered.reset("ana");
+        assertNotNull(mastered.next("ana", index, "budgeting"));
+    }
+
+    @Test
+    void testMasteryFollowsQuestionsAcrossReload() {
+        QuestionIndex before = index(10);
+        MasteredQuestions mastered = new MasteredQuestions();
+        for (int id = 1; id <= 9; id++) {
+            mastered.master("ana", before, before.byId(id));
+        }
+
+        // new bank: same questions in a different order, plus id 11
+        List<ChallengeQuestion> questions = new ArrayList<>();
+        for (int id = 11; id >= 1; id--) {
+            questions.add(new ChallengeQuestion(id, "budgeting", "Q" + id, "x", "e"));
+        }
+        QuestionIndex after = new QuestionIndex(CATEGORIES, questions);
+
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            seen.add(mastered.next("ana", after, "budgeting").getId());
+        }
+        assertEquals(Set.of(10, 11), seen);
+        assertEquals(9, mastered.masteredCount("ana", after, "budgeting"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNextEndpointSkipsMasteredQuestions() {
+        ChallengeController controller = new ChallengeController();
+        QuestionIndex index = new QuestionBank().index();
+        ChallengeQuestion[] pool = index.pool("budgeting");
+
+        for (ChallengeQuestion q : pool) {
+            ChallengeAnswerRequest req = new ChallengeAnswerRequest();
+            req.setQuestionId(q.getId());
+            req.setAnswer(q.getCorrectAnswer());
+            controller.checkAnswer(req, "ana");
+        }
+
+        Map<String, Object> done = (Map<String, Object>) controller.nextQuestion("ana", "budgeting", null).getBody();
+        assertEquals(true, done.get("exhausted"));
+        assertEquals(pool.length, done.get("total"));
+
+        assertEquals(200, controller.nextQuestion("ben", "budgeting", null).getStatusCode().value());
+        assertEquals(400, controller.nextQuestion("ana", "nope", null).getStatusCode().value());
+
+        controller.resetProgress("ana");
+        assertTrue(controller.nextQuestion("ana", "budgeting", null).getBody() instanceof byte[]);
+    }
+}
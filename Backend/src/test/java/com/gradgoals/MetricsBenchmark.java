@@ -0,0 +1,85 @@
+package com.gradgoals;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// What the hot path pays for observability: recording one request in a
+// LatencyHistogram, and one challenge event, the old way (println on the
+// request thread) against the sampled EventLog, going through an
+// AsyncAppender like the one in logback-spring.xml. Run with -t 4 to see
+// histogram recording under contention, and -prof gc for allocation.
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="MetricsBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    // stands in for stdout without filling the console
+    private final PrintStream sink = new PrintStream(OutputStream.nullOutputStream(), true);
+    private final EventLog events = new EventLog(100);
+    private AsyncAppender async;
+    private long nanos = 1;
+
+    // EventLog's lines go to the same null stream, through an async appender
+    @Setup
+    public void setUp() {
+        Logger logger = (Logger) LoggerFactory.getLogger(EventLog.class);
+        LoggerContext context = logger.getLoggerContext();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %msg%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> nowhere = new OutputStreamAppender<>();
+        nowhere.setContext(context);
+        nowhere.setEncoder(encoder);
+        nowhere.setOutputStream(OutputStream.nullOutputStream());
+        nowhere.start();
+        async = new AsyncAppender();
+        async.setContext(context);
+        async.setNeverBlock(true);
+        async.setDiscardingThreshold(0);
+        async.addAppender(nowhere);
+        async.start();
+        logger.detachAndStopAllAppenders();
+        logger.setAdditive(false);
+        logger.addAppender(async);
+    }
+
+    @TearDown
+    public void tearDown() {
+        async.stop();
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        nanos = nanos * 31 % 50_000_000 + 1;
+        histogram.record(nanos);
+    }
+
+    @Benchmark
+    public void debugPrintln() {
+        sink.println("DEBUG: Updated stats for " + "ana" + " - Correct: " + 3 + ", Attempts: " + 5);
+    }
+
+    @Benchmark
+    public void sampledEvent() {
+        if (events.sampled()) {
+            events.log("check_answer", "user", "ana", "categoryCorrect", 3, "categoryAttempts", 5);
+        }
+    }
+}
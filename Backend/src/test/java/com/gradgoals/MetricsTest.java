@@ -0,0 +1,119 @@
+package com.gradgoals;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testBucketsAreWithinOneSixteenth() {
+        for (long v = 0; v < 5_000_000; v += 1 + v / 50) {
+            long highest = LatencyHistogram.highestIn(LatencyHistogram.bucket(v));
+            assertTrue(highest >= v, "bucket of " + v + " ends at " + highest);
+            assertTrue(highest - v <= Math.max(0, v / 16), "bucket of " + v + " is too wide: " + highest);
+        }
+        long huge = TimeUnit.HOURS.toNanos(5);
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Math.min(huge, (1L << 40) - 1)));
+    }
+
+    @Test
+    void testPercentilesOfKnownValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        LatencyHistogram.Snapshot snap = histogram.snapshot();
+
+        assertEquals(1000, snap.count);
+        assertEquals(500_500_000L, snap.sumNanos);
+        assertEquals(500_000, snap.valueAt(0.5), 500_000 / 16.0);
+        assertEquals(990_000, snap.valueAt(0.99), 990_000 / 16.0);
+        assertEquals(0, new LatencyHistogram().snapshot().valueAt(0.5));
+    }
+
+    @Test
+    void testConcurrentRecordsAllCount() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    histogram.record(1_000 + i % 7);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        assertEquals(400_000, histogram.snapshot().count);
+    }
+
+    @Test
+    void testPrometheusText() {
+        Metrics metrics = new Metrics(0);
+        metrics.counter("gradgoals_supabase_calls_total", "Calls", "operation=\"get_password\",outcome=\"ok\"").increment();
+        metrics.counter("gradgoals_supabase_calls_total", "Calls", "operation=\"get_password\",outcome=\"ok\"").increment();
+        metrics.gauge("gradgoals_test_users", "Users", "", () -> 7);
+        metrics.endpoint("GET", "/api/questions/{id}").record(2_000_000);
+
+        String text = metrics.prometheus();
+
+        assertTrue(text.contains("# TYPE gradgoals_supabase_calls_total counter\n"));
+        assertTrue(text.contains("gradgoals_supabase_calls_total{operation=\"get_password\",outcome=\"ok\"} 2\n"));
+        assertTrue(text.contains("gradgoals_test_users 7\n"));
+        assertTrue(text.contains("# TYPE gradgoals_http_server_requests_seconds summary\n"));
+        assertTrue(text.contains("gradgoals_http_server_requests_seconds_count{method=\"GET\",uri=\"/api/questions/{id}\"} 1\n"));
+        assertTrue(text.contains("quantile=\"0.99\"} 0.002"));
+    }
+
+    @Test
+    void testChallengeGaugesFollowTheMaps() {
+        Metrics metrics = new Metrics(0);
+        ProgressMatrix matrix = new ProgressMatrix();
+        ChallengeController challenge = new ChallengeController(matrix, new QuestionBank(), new Leaderboards(matrix), metrics);
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), "ana");
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "5"), "ben");
+
+        String text = metrics.prometheus();
+
+        assertTrue(text.contains("gradgoals_challenge_users 2\n"));
+        assertTrue(text.contains("gradgoals_mastered_users 1\n"));
+        assertTrue(text.contains("gradgoals_leaderboard_users 2\n"));
+    }
+
+    @Test
+    void testEventLogWritesStructuredLines() {
+        Logger logger = (Logger) LoggerFactory.getLogger(EventLog.class);
+        ListAppender<ILoggingEvent> lines = new ListAppender<>();
+        lines.start();
+        logger.addAppender(lines);
+        try {
+            EventLog events = new EventLog(1);
+            assertTrue(events.sampled());
+            events.log("check_answer", "user", "ana b", "questionId", 3, "correct", true);
+
+            assertEquals(1, events.logged());
+            assertEquals(1, lines.list.size());
+            assertEquals("event=check_answer user=\"ana b\" questionId=3 correct=true",
+                    lines.list.get(0).getFormattedMessage());
+        } finally {
+            logger.detachAppender(lines);
+        }
+    }
+
+    @Test
+    void testEventLogOffNeverSamples() {
+        EventLog events = new EventLog(0);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(events.sampled());
+        }
+    }
+}
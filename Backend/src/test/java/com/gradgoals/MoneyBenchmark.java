@@ -0,0 +1,96 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+// Compares the money math right before long cents (user-010) with the cents
+// version, on the two hot paths: building the budget summary and the credit
+// card payoff response. The "legacy" methods copy the code as it was just
+// before: running totals already kept as doubles (so no summing here either),
+// with results rounded through a String and a BigDecimal. Both sides run the
+// same steps; only the money representation and the rounding differ.
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="MoneyBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+
+    @Param({"100", "10000"})
+    public int items;
+
+    private double legacyIncome;     // the running totals as doubles, as Totals held them
+    private double legacyExpenses;
+    private BudgetToolCode budget;
+
+    @Setup
+    public void setup() {
+        budget = new BudgetToolCode();
+        for (int i = 0; i < items; i++) {
+            double amount = 5 + (i * 37 % 200000) / 100.0;
+            boolean income = i % 4 == 0;
+            budget.addItem("c" + (i % 20), amount, income ? "income" : "expense");
+            if (income) legacyIncome += amount; else legacyExpenses += amount;
+        }
+    }
+
+    private static double legacyRound(double v) {
+        return new BigDecimal("" + v).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    // Before: the old Totals getters (income, expenses, round(income - expenses))
+    @Benchmark
+    public double summaryLegacy() {
+        return legacyIncome + legacyExpenses + legacyRound(legacyIncome - legacyExpenses);
+    }
+
+    // After: the snapshot holds exact cents totals
+    @Benchmark
+    public double summaryCents() {
+        BudgetToolCode.Totals totals = budget.getTotals();
+        return totals.getIncome() + totals.getExpenses() + totals.getNet();
+    }
+
+    // Before: simulateCreditCardPayoff as it was, rounding with BigDecimal
+    @Benchmark
+    public BudgetToolCode.CreditCardResult payoffLegacy() {
+        return legacyPayoff(5000, 19.99, 150);
+    }
+
+    // After: the same method today, rounding with Money.round
+    @Benchmark
+    public BudgetToolCode.CreditCardResult payoffCents() {
+        return budget.simulateCreditCardPayoff(5000, 19.99, 150);
+    }
+
+    private BudgetToolCode.CreditCardResult legacyPayoff(double balance, double apr, double payment) {
+        double monthlyRate = apr / 100.0 / 12.0;
+        double firstInterest = balance * monthlyRate;
+        if (payment <= firstInterest && monthlyRate > 0) {
+            return budget.new CreditCardResult(false, 0, 0, legacyRound(balance + firstInterest - payment));
+        }
+        if (monthlyRate < 0 || !Double.isFinite(balance) || !Double.isFinite(monthlyRate) || !Double.isFinite(payment)) {
+            return budget.simulateCreditCardPayoffIterative(balance, apr, payment);
+        }
+        if (balance <= 0) {
+            return budget.new CreditCardResult(true, 0, 0, legacyRound(balance));
+        }
+        if (payment <= 0) {
+            return budget.new CreditCardResult(false, 0, 0, legacyRound(balance - payment));
+        }
+        int months = BudgetToolCode.payoffMonths(balance, monthlyRate, payment);
+        if (months > BudgetToolCode.MAX_MONTHS) {
+            double remaining = BudgetToolCode.balanceAfter(balance, monthlyRate, payment, BudgetToolCode.MAX_MONTHS);
+            double interest = remaining - balance + BudgetToolCode.MAX_MONTHS * payment;
+            return budget.new CreditCardResult(true, BudgetToolCode.MAX_MONTHS, legacyRound(interest), legacyRound(remaining));
+        }
+        return budget.new CreditCardResult(true, months,
+                legacyRound(BudgetToolCode.payoffInterest(balance, monthlyRate, payment, months)), 0.0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParseStrings() {
+        assertEquals(120000, Money.parse("1200"));
+        assertEquals(-4550, Money.parse("-45.5"));
+        assertEquals(2000, Money.parse("19.999"));
+        assertEquals(101, Money.parse(" 1.005 "));
+        assertEquals(100000, Money.parse("1e3"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse("abc"));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse(""));
+    }
+
+    @Test
+    void testParseJsonNumbers() {
+        assertEquals(50000, Money.parse((Object) 500));
+        assertEquals(1999, Money.parse((Object) 19.99));
+        assertEquals(1999, Money.parse((Object) new BigDecimal("19.99")));
+        assertThrows(IllegalArgumentException.class, () -> Money.parse((Object) null));
+    }
+
+    @Test
+    void testRoundMatchesOldBigDecimalRounding() {
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            double v = (random.nextInt(20_000_000) - 10_000_000) / 1000.0;
+            double expected = new BigDecimal("" + v).setScale(2, RoundingMode.HALF_UP).doubleValue();
+            assertEquals(expected, Money.round(v), "value " + v);
+        }
+    }
+
+    @Test
+    void testTotalsDoNotDrift() {
+        BudgetToolCode budget = new BudgetToolCode();
+        for (int i = 0; i < 1000; i++) {
+            budget.addItem("Coffee", 0.1, "expense");
+        }
+        // 1000 x 0.1 added as doubles would come out as 99.9999999999986
+        assertEquals(100.0, budget.getTotalExpenses());
+        assertEquals(-100.0, budget.getNetMonthly());
+    }
+}
@@ -0,0 +1,45 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Measures how the payoff sweep scales with the number of fork/join threads
+// on a 200 APR x 1000 payment grid (200k points).
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args=PayoffSweepBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PayoffSweepBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private double[] aprs;
+    private double[] payments;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        aprs = new double[200];
+        payments = new double[1000];
+        for (int i = 0; i < aprs.length; i++) aprs[i] = 5 + i * 0.15;
+        for (int j = 0; j < payments.length; j++) payments[j] = 150 + j * 2.5;
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int[][] sweep() {
+        return new PayoffSweep(10_000, aprs, payments).run(pool).months;
+    }
+}
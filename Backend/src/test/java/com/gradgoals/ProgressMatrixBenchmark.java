@@ -0,0 +1,78 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Counting answers from 64 threads at once.
+//
+//   - twoCounters*: attempts and correct as two atomic ints, the way
+//     ProgressMatrix used to count (two locked adds per answer)
+//   - record*: both counters packed in one word, one locked add per answer
+//   - checkAnswer: the whole /api/challenge/check path (each thread its own user)
+//
+// "SharedUser" means every thread answers as the same user (e.g. "guest"),
+// so they all hit the same counter; "OwnUser" gives each thread its own row.
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ProgressMatrixBenchmark -prof gc"
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+public class ProgressMatrixBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        ProgressMatrix matrix;
+        ChallengeController controller;
+        AtomicIntegerArray twoCounters = new AtomicIntegerArray(2 * ProgressMatrix.CATEGORY_SLOTS);
+        final AtomicInteger nextThread = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            matrix = new ProgressMatrix();
+            // event log off (log-sample=0): this measures the counting
+            controller = new ChallengeController(matrix, new QuestionBank(), new Leaderboards(matrix), new Metrics(0));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        String userId;
+        int i;
+        ChallengeAnswerRequest right = new ChallengeAnswerRequest(1, "1200");
+        ChallengeAnswerRequest wrong = new ChallengeAnswerRequest(1, "7");
+
+        @Setup
+        public void setup(Shared shared) {
+            userId = "user" + shared.nextThread.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public void twoCountersSharedUser(Shared shared, PerThread t) {
+        shared.twoCounters.getAndAdd(0, 1);
+        if ((++t.i & 1) == 0) {
+            shared.twoCounters.getAndAdd(1, 1);
+        }
+    }
+
+    @Benchmark
+    public long recordSharedUser(Shared shared, PerThread t) {
+        return shared.matrix.record("guest", "budgeting", (++t.i & 1) == 0);
+    }
+
+    @Benchmark
+    public long recordOwnUser(Shared shared, PerThread t) {
+        return shared.matrix.record(t.userId, "budgeting", (++t.i & 1) == 0);
+    }
+
+    @Benchmark
+    public ChallengeResponse checkAnswer(Shared shared, PerThread t) {
+        return shared.controller.checkAnswer((++t.i & 1) == 0 ? t.right : t.wrong, t.userId);
+    }
+}
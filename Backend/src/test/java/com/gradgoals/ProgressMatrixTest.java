@@ -0,0 +1,206 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProgressMatrixTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testProgressSurvivesRestart() throws Exception {
+        ProgressMatrix first = new ProgressMatrix(dir.resolve("progress.dat"));
+        ChallengeController challenge = new ChallengeController(first);
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), "ana");
+        challenge.checkAnswer(new ChallengeAnswerRequest(2, "5"), "ana");
+        challenge.checkAnswer(new ChallengeAnswerRequest(10, "90"), "ben");
+        challenge.resetProgress("ben");
+        challenge.checkAnswer(new ChallengeAnswerRequest(11, "100"), "ben");
+        first.destroy();
+
+        ChallengeController second = new ChallengeController(new ProgressMatrix(dir.resolve("progress.dat")));
+        Map<String, ChallengeController.CategoryStats> ana = second.getProgress("ana");
+        assertEquals(2, ana.get("budgeting").getAttempts());
+        assertEquals(1, ana.get("budgeting").getCorrect());
+        // ben's first answer was wiped by the reset
+        assertEquals(1, second.getProgress("ben").size());
+        assertEquals(1, second.getProgress("ben").get("saving").getAttempts());
+    }
+
+    @Test
+    void testRowsGrowPastOneSegment() throws Exception {
+        ProgressMatrix first = new ProgressMatrix(dir.resolve("progress.dat"));
+        for (int u = 0; u < 10_000; u++) {
+            first.record("user" + u, "saving", u % 2 == 0);
+        }
+        first.destroy();
+
+        ProgressMatrix second = new ProgressMatrix(dir.resolve("progress.dat"));
+        assertEquals(10_000, second.users());
+        int row = second.row("user9998");
+        assertEquals(1, second.attempts(row, second.slot("saving")));
+        assertEquals(1, second.correct(row, second.slot("saving")));
+        second.destroy();
+    }
+
+    @Test
+    void testConcurrentAnswersAllCount() throws Exception {
+        ProgressMatrix matrix = new ProgressMatrix();
+        int threads = 8;
+        int perThread = 20_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    matrix.record("ana", i % 2 == 0 ? "budgeting" : "saving", i % 4 == 0);
+                    matrix.record("user" + (i % 500), "debt", true);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        int ana = matrix.row("ana");
+        assertEquals(threads * perThread / 2, matrix.attempts(ana, matrix.slot("budgeting")));
+        assertEquals(threads * perThread / 4, matrix.correct(ana, matrix.slot("budgeting")));
+        assertEquals(threads * perThread / 2, matrix.attempts(ana, matrix.slot("saving")));
+        assertEquals(501, matrix.users());
+        assertEquals(threads * perThread / 500, matrix.attempts(matrix.row("user7"), matrix.slot("debt")));
+    }
+
+    @Test
+    void testProgressReadsAreConsistentWhileAnswersArrive() throws Exception {
+        ProgressMatrix matrix = new ProgressMatrix();
+        ChallengeController challenge = new ChallengeController(matrix);
+        int writers = 8;
+        int perWriter = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> broken = new AtomicReference<>();
+
+        matrix.record("ana", "budgeting", false); // so ana has a row to read
+
+        // readers keep taking the same snapshot /api/progress uses and check every pair
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int row = matrix.row("ana");
+                while (!done.get()) {
+                    for (long counts : matrix.snapshot(row)) {
+                        if (ProgressMatrix.correctOf(counts) > ProgressMatrix.attemptsOf(counts)) {
+                            broken.set(ProgressMatrix.correctOf(counts) + " correct of " + ProgressMatrix.attemptsOf(counts));
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+        Thread[] workers = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    matrix.record("ana", i % 2 == 0 ? "budgeting" : "saving", i % 8 != 0);
+                }
+            });
+            workers[t].start();
+        }
+        // a reset in the middle must not break the pairs either
+        matrix.record("ana", "debt", true);
+        matrix.reset("ana");
+        for (Thread w : workers) {
+            w.join();
+        }
+        done.set(true);
+        for (Thread r : readers) {
+            r.join();
+        }
+
+        assertNull(broken.get());
+        ChallengeController.CategoryStats budgeting = challenge.getProgress("ana").get("budgeting");
+        assertTrue(budgeting.getAttempts() <= writers * perWriter / 2);
+        assertTrue(budgeting.getCorrect() <= budgeting.getAttempts());
+    }
+
+    @Test
+    void testBatchIsSeenWholeOrNotAtAll() throws Exception {
+        ProgressMatrix matrix = new ProgressMatrix();
+        int batches = 20_000;
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> broken = new AtomicReference<>();
+        Map<String, Long> batch = Map.of(
+            "budgeting", ProgressMatrix.pack(2, 1),
+            "saving", ProgressMatrix.pack(2, 1)
+        );
+        matrix.recordAll("ana", batch);
+        int row = matrix.row("ana");
+        int budgeting = matrix.slot("budgeting");
+        int saving = matrix.slot("saving");
+
+        // every batch adds the same to both categories, so a reader must never see them differ
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                long[] counts = matrix.snapshot(row);
+                if (counts[budgeting] != counts[saving]) {
+                    broken.set(ProgressMatrix.attemptsOf(counts[budgeting]) + " vs " + ProgressMatrix.attemptsOf(counts[saving]));
+                }
+                long totals = matrix.totals(row);
+                if (ProgressMatrix.attemptsOf(totals) != 2 * ProgressMatrix.correctOf(totals)) {
+                    broken.set("totals " + ProgressMatrix.correctOf(totals) + " of " + ProgressMatrix.attemptsOf(totals));
+                }
+            }
+        });
+        reader.start();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < batches / 4; i++) {
+                    matrix.recordAll("ana", batch);
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread w : writers) {
+            w.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(broken.get());
+        assertEquals(2 * (batches + 1), matrix.attempts(row, budgeting));
+        assertEquals(batches + 1, matrix.correct(row, saving));
+    }
+
+    @Test
+    void testReadingUnknownUserCreatesNoRow() {
+        ProgressMatrix matrix = new ProgressMatrix();
+        ChallengeController challenge = new ChallengeController(matrix);
+
+        assertTrue(challenge.getProgress("nobody").isEmpty());
+        assertEquals(0, matrix.users());
+    }
+
+    @Test
+    void testTooLongUserIdIsABadRequest() {
+        ProgressMatrix matrix = new ProgressMatrix();
+        ChallengeController challenge = new ChallengeController(matrix);
+        String userId = "x".repeat(ProgressMatrix.MAX_USER_ID_BYTES + 1);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), userId));
+        assertEquals(400, challenge.badArgument(e).getStatusCode().value());
+        assertEquals(0, matrix.users());
+
+        // the longest id that fits still works
+        challenge.checkAnswer(new ChallengeAnswerRequest(1, "1200"), "x".repeat(ProgressMatrix.MAX_USER_ID_BYTES));
+        assertEquals(1, matrix.users());
+    }
+}
@@ -0,0 +1,153 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionBankTest {
+
+    @TempDir
+    Path dir;
+
+    // A bank with 'count' budgeting questions, ids 1..count, answer = id
+    private static String bank(int count) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"version\": 2, \"categories\": [")
+            .append("{\"id\":\"budgeting\",\"name\":\"Budgeting\",\"blurb\":\"b\",\"icon\":{\"x\":1}}")
+            .append("], \"questions\": [");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                .append(",\"categoryId\":\"budgeting\",\"prompt\":\"Q").append(i)
+                .append("\",\"correctAnswer\":\"").append(i)
+                .append("\",\"explanation\":\"e\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    // Writes the new file next to the old one and renames it over, like most editors do
+    private void save(Path file, String json) throws IOException {
+        Path tmp = dir.resolve("bank.json.tmp");
+        Files.writeString(tmp, json, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    void testBuiltInBankMatchesTheOldHardcodedOne() {
+        QuestionIndex index = new QuestionBank().index();
+
+        assertEquals(31, index.size());
+        assertEquals(15, index.categoryRows().size());
+        assertEquals("1200", index.byId(1).getCorrectAnswer());
+        assertEquals("50% of 2,400 is 0.50 × 2,400 = 1,200.", index.byId(1).getExplanation());
+        assertEquals("travel", index.byId(141).getCategoryId());
+    }
+
+    @Test
+    void testLoadsFileAndSkipsUnknownFields() throws IOException {
+        Path file = dir.resolve("bank.json");
+        save(file, bank(3));
+
+        QuestionIndex index = new QuestionBank(file, false).index();
+
+        assertEquals(3, index.size());
+        assertEquals("Q2", index.byId(2).getPrompt());
+        assertEquals(3L, index.categoryRows().get(0).get("questionCount"));
+    }
+
+    @Test
+    void testBrokenFileKeepsTheOldBank() throws IOException {
+        Path file = dir.resolve("bank.json");
+        save(file, bank(3));
+        QuestionBank questions = new QuestionBank(file, false);
+        QuestionIndex before = questions.index();
+
+        save(file, "{\"questions\": [ {\"id\": 1, ");
+        assertFalse(questions.reload());
+        save(file, "{\"questions\": [ {\"prompt\": \"no id\"} ]}");
+        assertFalse(questions.reload());
+        // a stray value in the list, and a list that is cut off, aren't half-loaded
+        save(file, "{\"questions\": [ {\"id\": 1, \"categoryId\": \"budgeting\", \"correctAnswer\": \"1\"}, 5,"
+                + " {\"id\": 2, \"categoryId\": \"budgeting\", \"correctAnswer\": \"2\"} ]}");
+        assertFalse(questions.reload());
+        save(file, "{\"questions\": [ {\"id\": 1, \"categoryId\": \"budgeting\", \"correctAnswer\": \"1\"}");
+        assertFalse(questions.reload());
+
+        assertSame(before, questions.index());
+        assertEquals(4, questions.failedReloads());
+    }
+
+    @Test
+    void testBankThatWontFitProgressIsRefused() throws IOException {
+        Path file = dir.resolve("bank.json");
+        save(file, bank(3));
+        QuestionBank questions = new QuestionBank(file, false);
+        QuestionIndex before = questions.index();
+
+        // one category more than ProgressMatrix has slots for
+        StringBuilder json = new StringBuilder("{\"categories\": [], \"questions\": [");
+        for (int i = 0; i <= ProgressMatrix.CATEGORY_SLOTS; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i + 1)
+                .append(",\"categoryId\":\"c").append(i).append("\",\"correctAnswer\":\"1\"}");
+        }
+        save(file, json.append("]}").toString());
+        assertFalse(questions.reload());
+
+        String longId = "c".repeat(ProgressMatrix.MAX_CATEGORY_ID_BYTES + 1);
+        save(file, "{\"questions\": [ {\"id\": 1, \"categoryId\": \"" + longId + "\", \"correctAnswer\": \"1\"} ]}");
+        assertFalse(questions.reload());
+
+        assertSame(before, questions.index());
+        assertEquals(2, questions.failedReloads());
+    }
+
+    @Test
+    void testWatcherSwapsInTheNewBankWhileReadersKeepGoing() throws Exception {
+        Path file = dir.resolve("bank.json");
+        save(file, bank(10));
+        QuestionBank questions = new QuestionBank(file, true);
+        ChallengeController controller = new ChallengeController(new ProgressMatrix(), questions);
+
+        // readers hammer the random question endpoint the whole time
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!stop.get()) {
+                    assertEquals(200, controller.randomQuestion("budgeting", null).getStatusCode().value());
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+
+        try {
+            save(file, bank(50_000));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (questions.index().size() != 50_000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        } finally {
+            stop.set(true);
+            reader.join();
+            questions.destroy();
+        }
+
+        assertNull(failure.get());
+        assertEquals(50_000, questions.index().size());
+        assertEquals("Q49999", questions.index().byId(49_999).getPrompt());
+        assertTrue(questions.reloads() >= 1);
+    }
+}
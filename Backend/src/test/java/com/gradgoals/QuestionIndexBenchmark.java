@@ -0,0 +1,70 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Picking a random question in a category and finding a question by id,
+// the way ChallengeController used to (stream over the whole bank) and with
+// QuestionIndex. The "scan" methods copy the old code.
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args="QuestionIndexBenchmark -prof gc"
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuestionIndexBenchmark {
+
+    @Param({"30", "100000"})
+    public int questions;
+
+    private List<ChallengeQuestion> bank;
+    private QuestionIndex index;
+    private final Random random = new Random(42);
+
+    @Setup
+    public void setup() {
+        List<ChallengeCategory> categories = new ArrayList<>();
+        for (int c = 0; c < 15; c++) {
+            categories.add(new ChallengeCategory("cat" + c, "Category " + c, ""));
+        }
+        bank = new ArrayList<>();
+        for (int i = 0; i < questions; i++) {
+            bank.add(new ChallengeQuestion(i + 1, "cat" + (i % 15), "Q" + i, "1", ""));
+        }
+        index = new QuestionIndex(categories, bank);
+    }
+
+    @Benchmark
+    public ChallengeQuestion randomInCategoryScan() {
+        List<ChallengeQuestion> pool = bank.stream()
+            .filter(q -> q.getCategoryId().equalsIgnoreCase("cat7"))
+            .collect(Collectors.toList());
+        return pool.get(random.nextInt(pool.size()));
+    }
+
+    @Benchmark
+    public ChallengeQuestion randomInCategoryIndex() {
+        ChallengeQuestion[] pool = index.pool("cat7");
+        return pool[random.nextInt(pool.length)];
+    }
+
+    @Benchmark
+    public ChallengeQuestion byIdScan() {
+        int id = random.nextInt(questions) + 1;
+        Optional<ChallengeQuestion> q = bank.stream().filter(x -> x.getId() == id).findFirst();
+        return q.orElse(null);
+    }
+
+    @Benchmark
+    public ChallengeQuestion byIdIndex() {
+        return index.byId(random.nextInt(questions) + 1);
+    }
+}
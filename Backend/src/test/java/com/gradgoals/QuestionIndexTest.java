@@ -0,0 +1,67 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionIndexTest {
+
+    private static final List<ChallengeCategory> CATEGORIES = List.of(
+            new ChallengeCategory("budgeting", "Budgeting", "blurb"),
+            new ChallengeCategory("saving", "Saving", "blurb"),
+            new ChallengeCategory("empty", "Nothing yet", "blurb"));
+
+    private static List<ChallengeQuestion> bank(int count, int idStep) {
+        List<ChallengeQuestion> questions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String category = i % 3 == 0 ? "saving" : "budgeting";
+            questions.add(new ChallengeQuestion(i * idStep + 1, category, "Q" + i, String.valueOf(i), "because"));
+        }
+        return questions;
+    }
+
+    @Test
+    void testLooksUpByIdAndCategory() {
+        QuestionIndex index = new QuestionIndex(CATEGORIES, bank(100_000, 1));
+
+        assertEquals(100_000, index.size());
+        assertEquals("Q4999", index.byId(5000).getPrompt());
+        assertNull(index.byId(0));
+        assertNull(index.byId(-3));
+        assertNull(index.byId(100_001));
+        assertEquals(33_334, index.pool("saving").length);
+        assertEquals(66_666, index.pool("BUDGETING").length);
+        assertEquals(0, index.pool("nope").length);
+        assertEquals(0, index.pool(null).length);
+    }
+
+    @Test
+    void testSparseIdsUseBinarySearch() {
+        QuestionIndex index = new QuestionIndex(CATEGORIES, bank(1000, 1_000_000));
+
+        assertEquals("Q7", index.byId(7_000_001).getPrompt());
+        assertNull(index.byId(7_000_002));
+    }
+
+    @Test
+    void testCategoryRowsHaveCounts() {
+        QuestionIndex index = new QuestionIndex(CATEGORIES, bank(9, 1));
+
+        Map<String, Object> saving = index.categoryRows().get(1);
+        assertEquals("saving", saving.get("id"));
+        assertEquals(3L, saving.get("questionCount"));
+        assertEquals(0L, index.categoryRows().get(2).get("questionCount"));
+    }
+
+    @Test
+    void testDuplicateIdsAreRejected() {
+        List<ChallengeQuestion> questions = bank(5, 1);
+        questions.add(new ChallengeQuestion(3, "saving", "again", "1", "x"));
+
+        assertThrows(IllegalArgumentException.class, () -> new QuestionIndex(CATEGORIES, questions));
+    }
+}
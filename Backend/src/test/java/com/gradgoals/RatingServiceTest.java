@@ -0,0 +1,79 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RatingServiceTest {
+
+    @Test
+    void testAverageAndReRating() {
+        RatingService service = new RatingService();
+        service.addRating(new Rating("budget-101", "ana", 5));
+        service.addRating(new Rating("budget-101", "ben", 2));
+        assertEquals(3.5, service.getAverage("budget-101"));
+
+        // ben changes their rating; still two ratings
+        service.addRating(new Rating("budget-101", "ben", 4));
+        service.addRating(new Rating("budget-101", "ben", 4));
+        assertEquals(4.5, service.getAverage("budget-101"));
+        assertEquals(4, service.getUserRating("budget-101", "ben").getStars());
+        assertNull(service.getUserRating("budget-101", "cat"));
+        assertEquals(0.0, service.getAverage("nothing-here"));
+
+        Map<String, Object> summary = service.getSummary("budget-101");
+        assertEquals(2L, summary.get("count"));
+        assertArrayEquals(new long[] {0, 0, 0, 1, 1}, (long[]) summary.get("starCounts"));
+    }
+
+    @Test
+    void testStarsOutsideOneToFiveAreRejected() {
+        RatingController controller = new RatingController();
+
+        assertEquals(400, controller.addRating(new Rating("r", "ana", 0)).getStatusCode().value());
+        assertEquals(400, controller.addRating(new Rating("r", "ana", 6)).getStatusCode().value());
+        assertEquals(200, controller.addRating(new Rating("r", "ana", 3)).getStatusCode().value());
+        assertEquals(3.0, controller.getAverage("r"));
+    }
+
+    @Test
+    void testConcurrentVotesAllCount() throws Exception {
+        RatingService service = new RatingService();
+        int threads = 8;
+        int users = 2_000;
+        Thread[] voters = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            voters[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                // every thread votes (and re-votes) for the same users
+                for (int i = 0; i < 20_000; i++) {
+                    service.addRating(new Rating("saving-101", "user" + random.nextInt(users), 1 + random.nextInt(5)));
+                }
+            });
+            voters[t].start();
+        }
+        for (Thread v : voters) {
+            v.join();
+        }
+
+        // the running totals must match what the users' ratings add up to
+        long sum = 0;
+        long rated = 0;
+        long[] expected = new long[5];
+        for (int u = 0; u < users; u++) {
+            Rating r = service.getUserRating("saving-101", "user" + u);
+            if (r != null) {
+                sum += r.getStars();
+                rated++;
+                expected[r.getStars() - 1]++;
+            }
+        }
+        Map<String, Object> summary = service.getSummary("saving-101");
+        assertEquals(rated, summary.get("count"));
+        assertEquals(sum / (double) rated, service.getAverage("saving-101"), 1e-9);
+        assertArrayEquals(expected, (long[]) summary.get("starCounts"));
+    }
+}
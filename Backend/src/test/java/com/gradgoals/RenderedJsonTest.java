@@ -0,0 +1,94 @@
+package com.gradgoals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderedJsonTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testCategoriesMatchWhatSpringWouldSend() throws IOException {
+        ChallengeController controller = new ChallengeController();
+
+        ResponseEntity<byte[]> plain = controller.categories(null, null);
+        ResponseEntity<byte[]> zipped = controller.categories(null, "gzip, deflate, br");
+
+        assertEquals(HttpStatus.OK, plain.getStatusCode());
+        assertEquals(mapper.readTree(mapper.writeValueAsBytes(controller.getCategories())), mapper.readTree(plain.getBody()));
+        assertEquals("gzip", zipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(plain.getBody(), gunzip(zipped.getBody()));
+        assertNotEquals(plain.getHeaders().getETag(), zipped.getHeaders().getETag());
+        // rendered once, so every request gets the very same array
+        assertSame(plain.getBody(), controller.categories(null, null).getBody());
+    }
+
+    @Test
+    void testMatchingEtagGets304() {
+        ChallengeController controller = new ChallengeController();
+        String etag = controller.categories(null, "gzip").getHeaders().getETag();
+
+        ResponseEntity<byte[]> again = controller.categories("\"nope\", " + etag, "gzip");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertNull(again.getBody());
+        assertEquals(etag, again.getHeaders().getETag());
+        assertEquals(HttpStatus.OK, controller.categories("\"nope\"", "gzip").getStatusCode());
+    }
+
+    @Test
+    void testAcceptEncodingWeights() {
+        assertTrue(RenderedJson.acceptsGzip("gzip"));
+        assertTrue(RenderedJson.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(RenderedJson.acceptsGzip("br, *"));
+        assertFalse(RenderedJson.acceptsGzip(null));
+        assertFalse(RenderedJson.acceptsGzip("gzip;q=0"));
+        assertFalse(RenderedJson.acceptsGzip("gzip; q=0.0, br"));
+        assertFalse(RenderedJson.acceptsGzip("x-gzip, br"));
+        assertFalse(RenderedJson.acceptsGzip("*, gzip;q=0"));
+        assertFalse(RenderedJson.acceptsGzip("*;q=0"));
+
+        ChallengeController controller = new ChallengeController();
+        assertNull(controller.categories(null, "gzip;q=0, identity").getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void testQuestionById() throws IOException {
+        ChallengeController controller = new ChallengeController();
+
+        ResponseEntity<byte[]> found = controller.getQuestion(10, null, null);
+        String etag = found.getHeaders().getETag();
+
+        assertEquals(10, mapper.readTree(found.getBody()).get("id").asInt());
+        assertEquals("saving", mapper.readTree(found.getBody()).get("categoryId").asText());
+        assertTrue(found.getHeaders().getCacheControl().contains("max-age"));
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getQuestion(10, "W/" + etag, null).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getQuestion(9999, null, null).getStatusCode());
+    }
+
+    @Test
+    void testRandomQuestionIsNotCached() throws IOException {
+        ChallengeController controller = new ChallengeController();
+
+        ResponseEntity<byte[]> response = controller.randomQuestion("budgeting", null);
+
+        assertEquals("no-store", response.getHeaders().getCacheControl());
+        assertTrue(List.of(1, 2, 3).contains(mapper.readTree(response.getBody()).get("id").asInt()));
+    }
+}
@@ -0,0 +1,146 @@
+package com.gradgoals;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Two questions about StateJournal:
+//   1. How much does logging add to a write request? (addItem with the
+//      journal on vs. off, from 1 and 8 threads)
+//   2. How long does recovery take for 1M users? (snapshot + log tail)
+//
+// Run with: mvn -Pbenchmarks test-compile exec:exec -Djmh.args=StateJournalBenchmark
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StateJournalBenchmark {
+
+    private static Map<String, Object> item(String userId, int i) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("userId", userId);
+        body.put("category", "Category " + (i % 12));
+        body.put("amount", 10 + i % 500);
+        body.put("type", i % 3 == 0 ? "income" : "expense");
+        return body;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+        @Param({"true", "false"})
+        public boolean journaled;
+
+        Path dir;
+        StateJournal journal;
+        BudgetController controller;
+
+        @Setup
+        public void setup() throws IOException {
+            if (journaled) {
+                dir = Files.createTempDirectory("journal-bench");
+                journal = new StateJournal(dir, 8, 0);
+            } else {
+                journal = StateJournal.disabled();
+            }
+            controller = new BudgetController(journal);
+            journal.start();
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            journal.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        String userId;
+        int i;
+
+        @Setup
+        public void setup() {
+            userId = "user-" + Thread.currentThread().getId();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Threads(1)
+    public String addItem(Writes writes, Caller caller) {
+        return writes.controller.addItem(item(caller.userId, caller.i++));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Threads(8)
+    public String addItem8Threads(Writes writes, Caller caller) {
+        return writes.controller.addItem(item(caller.userId, caller.i++));
+    }
+
+    @State(Scope.Benchmark)
+    public static class SavedState {
+        @Param({"1000000"})
+        public int users;
+
+        Path dir;
+
+        // 1M users with 3 budget items each, a snapshot, then 100k more changes in the log
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("journal-recovery");
+            StateJournal journal = new StateJournal(dir, 8, 0);
+            BudgetController controller = new BudgetController(journal);
+            new GoalController(journal);
+            journal.start();
+            for (int u = 0; u < users; u++) {
+                for (int i = 0; i < 3; i++) {
+                    controller.addItem(item("user" + u, i));
+                }
+            }
+            journal.snapshot();
+            for (int u = 0; u < 100_000; u++) {
+                controller.addItem(item("user" + u, 3));
+            }
+            journal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public BudgetController recover(SavedState saved) throws IOException {
+        StateJournal journal = new StateJournal(saved.dir, 8, 0);
+        BudgetController controller = new BudgetController(journal);
+        new GoalController(journal);
+        journal.start();
+        journal.close();
+        return controller;
+    }
+}
@@ -0,0 +1,287 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateJournalTest {
+
+    @TempDir
+    Path dir;
+
+    // The controllers sharing one journal, like Spring wires them
+    private static final class App {
+        final StateJournal journal;
+        final BudgetController budget;
+        final GoalController goals;
+
+        App(Path dir) throws IOException {
+            journal = new StateJournal(dir, 4, 0);
+            budget = new BudgetController(journal);
+            goals = new GoalController(journal);
+            journal.start();
+        }
+    }
+
+    private static Map<String, Object> body(Object... pairs) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put((String) pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+
+    private static void makeChanges(App app) {
+        app.budget.addItem(body("userId", "ana", "category", "Job", "amount", 3000, "type", "income"));
+        app.budget.addItem(body("userId", "ana", "category", "Rent", "amount", "1200.50", "type", "expense"));
+        app.budget.addItem(body("userId", "ben", "category", "Food", "amount", 80.25, "type", "expense"));
+        String rentId = (String) app.budget.getItems("ana").stream()
+                .filter(i -> i.get("category").equals("Rent")).findFirst().get().get("id");
+        app.budget.deleteItem(rentId, "ana");
+
+        GoalChecker.SavingsGoal car = app.goals.createGoal(body("userId", "ana", "name", "Car", "targetAmount", 5000));
+        GoalChecker.SavingsGoal trip = app.goals.createGoal(body("userId", "ana", "name", "Trip", "targetAmount", 300));
+        app.goals.addToGoal(body("userId", "ana", "id", car.getId(), "amount", 250.10));
+        app.goals.addToGoal(body("userId", "ana", "id", trip.getId(), "amount", 500));
+        app.goals.deleteGoal(car.getId(), "ana");
+    }
+
+    private static void assertRestored(App app) {
+        assertEquals(1, app.budget.getItems("ana").size());
+        assertEquals(3000.0, app.budget.summary("ana").get("net"));
+        assertEquals(-80.25, app.budget.summary("ben").get("net"));
+
+        List<GoalChecker.SavingsGoal> goals = app.goals.getAllGoals("ana");
+        assertEquals(1, goals.size());
+        assertEquals("Trip", goals.get(0).getName());
+        assertEquals(300.0, goals.get(0).getCurrentAmount());
+    }
+
+    @Test
+    void testRecoversFromLogOnly() throws IOException {
+        App first = new App(dir);
+        makeChanges(first);
+        first.journal.close();
+
+        assertRestored(new App(dir));
+    }
+
+    @Test
+    void testRecoversFromSnapshotPlusLog() throws IOException {
+        App first = new App(dir);
+        makeChanges(first);
+        first.journal.snapshot();
+        first.budget.addItem(body("userId", "cal", "category", "Gift", "amount", 40, "type", "income"));
+        first.journal.close();
+
+        App second = new App(dir);
+        assertRestored(second);
+        assertEquals(40.0, second.budget.summary("cal").get("income"));
+
+        // a second restart (log files from the first run are gone after the snapshot)
+        second.journal.snapshot();
+        second.journal.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(f -> f.getFileName().toString().endsWith(".manifest")).count());
+        }
+        App third = new App(dir);
+        assertRestored(third);
+        assertEquals(40.0, third.budget.summary("cal").get("income"));
+    }
+
+    @Test
+    void testTornTailIsIgnored() throws IOException {
+        App first = new App(dir);
+        makeChanges(first);
+        first.journal.close();
+
+        // a crash in the middle of a write leaves half a record at the end
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("wal-"))
+                    .filter(f -> f.toFile().length() > 0).findFirst().get();
+        }
+        Files.write(segment, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        assertRestored(new App(dir));
+    }
+
+    @Test
+    void testTornFirstRecordDoesNotHideLaterWrites() throws IOException {
+        App first = new App(dir);
+        makeChanges(first);
+        first.journal.close();
+        App second = new App(dir); // opens a new, empty log file
+        second.journal.close();
+
+        // a crash while writing the new file's first record
+        Path newest;
+        try (Stream<Path> files = Files.list(dir)) {
+            newest = files.filter(f -> f.getFileName().toString().startsWith("wal-")).sorted().reduce((a, b) -> b).get();
+        }
+        Files.write(newest, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        // the restart appends to that same file; the garbage must not hide it
+        App third = new App(dir);
+        third.budget.addItem(body("userId", "cal", "category", "Gift", "amount", 40, "type", "income"));
+        third.journal.close();
+
+        App fourth = new App(dir);
+        assertRestored(fourth);
+        assertEquals(40.0, fourth.budget.summary("cal").get("income"));
+    }
+
+    @Test
+    void testIdleSnapshotLeavesShardsAlone() throws Exception {
+        App first = new App(dir);
+        makeChanges(first);
+        first.journal.snapshot();
+        Map<Path, FileTime> shards = new HashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) {
+                if (f.getFileName().toString().endsWith(".bin")) {
+                    shards.put(f, Files.getLastModifiedTime(f));
+                }
+            }
+        }
+        Thread.sleep(20);
+
+        first.journal.snapshot(); // nothing changed: nothing is rewritten
+        for (Map.Entry<Path, FileTime> shard : shards.entrySet()) {
+            assertEquals(shard.getValue(), Files.getLastModifiedTime(shard.getKey()));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.filter(f -> f.getFileName().toString().endsWith(".tmp")).count());
+        }
+        first.journal.close();
+        assertRestored(new App(dir));
+    }
+
+    @Test
+    void testFailedWriteStopsTheJournal() throws Exception {
+        App first = new App(dir);
+        first.budget.addItem(body("userId", "ana", "category", "Job", "amount", 10, "type", "income"));
+        first.journal.flush();
+
+        // the disk goes away under the writer
+        Field channel = StateJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(first.journal)).close();
+        first.budget.addItem(body("userId", "ana", "category", "Gift", "amount", 5, "type", "income"));
+
+        assertThrows(UncheckedIOException.class, first.journal::flush);
+        Object income = first.budget.summary("ana").get("income");
+        assertThrows(UncheckedIOException.class, () ->
+                first.budget.addItem(body("userId", "ana", "category", "More", "amount", 1, "type", "income")));
+        assertThrows(UncheckedIOException.class, () ->
+                first.goals.createGoal(body("userId", "ben", "name", "Car", "targetAmount", 100)));
+
+        // refused before anything changed: memory still matches what was logged
+        assertEquals(income, first.budget.summary("ana").get("income"));
+        assertEquals(2, first.budget.getItems("ana").size());
+        assertTrue(first.goals.getAllGoals("ben").isEmpty());
+        first.journal.close();
+    }
+
+    @Test
+    void testConcurrentWritesDuringSnapshot() throws Exception {
+        App first = new App(dir);
+        int threads = 8;
+        int perThread = 2_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String user = "user" + t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    first.budget.addItem(body("userId", user, "category", "c", "amount", 1, "type", "income"));
+                }
+            });
+            workers[t].start();
+        }
+        for (int i = 0; i < 3; i++) {
+            first.journal.snapshot();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        first.journal.close();
+
+        App second = new App(dir);
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread * 1.0, second.budget.summary("user" + t).get("income"), "user" + t);
+        }
+    }
+
+    @Test
+    void testInterleavedChangesForOneUserReplayInOrder() throws Exception {
+        App first = new App(dir);
+        int threads = 4;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int me = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 1_000; i++) {
+                    // adds and deletes (often of another thread's item) race for the same user
+                    first.budget.addItem(body("userId", "ana", "category", "c" + me, "amount", 1 + i % 7, "type", "income"));
+                    List<Map<String, Object>> items = first.budget.getItems("ana");
+                    if (!items.isEmpty() && random.nextBoolean()) {
+                        first.budget.deleteItem((String) items.get(random.nextInt(items.size())).get("id"), "ana");
+                    }
+                    // and a goal is created while others put money into the newest one
+                    if (i % 10 == 0) {
+                        first.goals.createGoal(body("userId", "ana", "name", "g" + me + "-" + i, "targetAmount", 1_000_000));
+                    }
+                    List<GoalChecker.SavingsGoal> goals = first.goals.getAllGoals("ana");
+                    if (!goals.isEmpty()) {
+                        first.goals.addToGoal(body("userId", "ana", "id", goals.get(goals.size() - 1).getId(), "amount", 1));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        List<Map<String, Object>> items = first.budget.getItems("ana");
+        Object net = first.budget.summary("ana").get("net");
+        Map<String, Double> saved = new HashMap<>();
+        for (GoalChecker.SavingsGoal g : first.goals.getAllGoals("ana")) {
+            saved.put(g.getId(), g.getCurrentAmount());
+        }
+        first.journal.close();
+
+        App second = new App(dir);
+        assertEquals(items, second.budget.getItems("ana"));
+        assertEquals(net, second.budget.summary("ana").get("net"));
+        Map<String, Double> replayed = new HashMap<>();
+        for (GoalChecker.SavingsGoal g : second.goals.getAllGoals("ana")) {
+            replayed.put(g.getId(), g.getCurrentAmount());
+        }
+        assertEquals(saved, replayed);
+        second.journal.close();
+    }
+
+    @Test
+    void testDisabledJournalWritesNothing() {
+        BudgetController controller = new BudgetController();
+        controller.addItem(body("userId", "ana", "category", "Job", "amount", 10, "type", "income"));
+
+        assertEquals(10.0, controller.summary("ana").get("income"));
+    }
+}
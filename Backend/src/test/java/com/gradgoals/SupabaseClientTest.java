@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
@@ -26,6 +27,10 @@ public class SupabaseClientTest {
     @Mock
     private RestTemplate restTemplate;
 
+    // handed to the constructor
+    @Spy
+    private Metrics metrics = new Metrics();
+
     @InjectMocks
     private SupabaseClient supabaseClient;
 
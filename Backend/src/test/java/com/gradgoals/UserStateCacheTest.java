@@ -0,0 +1,222 @@
+package com.gradgoals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserStateCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static Map<String, Object> body(Object... pairs) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put((String) pairs[i], pairs[i + 1]);
+        }
+        return map;
+    }
+
+    private static Map<String, Object> item(String userId, int amount) {
+        return body("userId", userId, "category", "Job", "amount", amount, "type", "income");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> budgets(UserStateCache cache) {
+        return (Map<String, Object>) cache.stats().get("budgets");
+    }
+
+    // no sweep thread; the tests call sweep() themselves
+    private UserStateCache cache(long maxBytes, long idleMillis, StateJournal journal) {
+        return new UserStateCache(maxBytes, idleMillis, 0, dir.resolve("spill"), journal);
+    }
+
+    @Test
+    void testReadsForUnknownUsersCreateNothing() {
+        UserStateCache cache = cache(0, HOUR, StateJournal.disabled());
+        BudgetController budget = new BudgetController(StateJournal.disabled(), cache);
+        GoalController goals = new GoalController(StateJournal.disabled(), cache);
+
+        // summary, items and delete for 1000 random ids
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(budget.getItems("scan" + i).isEmpty());
+            assertEquals(0.0, budget.summary("scan" + i).get("net"));
+            assertTrue(goals.getAllGoals("scan" + i).isEmpty());
+            budget.deleteItem("x", "scan" + i);
+        }
+
+        assertEquals(0, budgets(cache).get("usersInMemory"));
+        assertEquals(3000L, budgets(cache).get("misses"));
+    }
+
+    @Test
+    void testIdleUsersSpillAndReloadLazily() throws IOException {
+        StateJournal journal = StateJournal.disabled();
+        UserStateCache cache = cache(0, HOUR, journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        GoalController goals = new GoalController(journal, cache);
+        journal.start(); // nothing is evicted before the journal has started
+        budget.addItem(item("ana", 100));
+        budget.addItem(item("ana", 50));
+        GoalChecker.SavingsGoal car = goals.createGoal(body("userId", "ana", "name", "Car", "targetAmount", 900));
+        goals.addToGoal(body("userId", "ana", "id", car.getId(), "amount", 40));
+
+        cache.sweep(System.currentTimeMillis() + 2 * HOUR);
+        assertEquals(0, budgets(cache).get("usersInMemory"));
+        assertEquals(1, budgets(cache).get("usersOnDisk"));
+        assertEquals(1L, budgets(cache).get("evictions"));
+
+        assertEquals(150.0, budget.summary("ana").get("income"));
+        assertEquals(40.0, goals.getAllGoals("ana").get(0).getCurrentAmount());
+        assertEquals(1L, budgets(cache).get("reloads"));
+
+        // the reloaded copy takes new writes
+        budget.addItem(item("ana", 5));
+        assertEquals(155.0, budget.summary("ana").get("income"));
+    }
+
+    @Test
+    void testCeilingEvictsLeastRecentlyUsed() throws IOException {
+        StateJournal journal = StateJournal.disabled();
+        UserStateCache cache = cache(10_000, 0, journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        journal.start();
+        for (int u = 0; u < 100; u++) {
+            budget.addItem(item("user" + u, u));
+        }
+
+        cache.sweep(System.currentTimeMillis());
+
+        assertTrue((Long) budgets(cache).get("estimatedBytes") <= 10_000);
+        assertTrue((Integer) budgets(cache).get("usersInMemory") < 100);
+        for (int u = 0; u < 100; u++) {
+            assertEquals((double) u, budget.summary("user" + u).get("income"), "user" + u);
+        }
+    }
+
+    @Test
+    void testWritesRacingEvictionAreNotLost() throws Exception {
+        StateJournal journal = StateJournal.disabled();
+        UserStateCache cache = cache(0, 1, journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        journal.start();
+        int threads = 4;
+        int perThread = 2_000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    budget.addItem(item("ana", 1));
+                }
+            });
+            workers[t].start();
+        }
+        // evicts ana over and over while the writers run
+        for (int i = 0; i < 200; i++) {
+            cache.sweep(System.currentTimeMillis() + HOUR);
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+
+        assertEquals(threads * perThread * 1.0, budget.summary("ana").get("income"));
+    }
+
+    @Test
+    void testSnapshotIncludesSpilledUsers() throws IOException {
+        Path data = dir.resolve("data");
+        StateJournal journal = new StateJournal(data, 2, 0);
+        UserStateCache cache = new UserStateCache(0, HOUR, 0, data.resolve("spill"), journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        journal.start();
+        budget.addItem(item("ana", 100));
+        budget.addItem(item("ben", 7));
+        cache.sweep(System.currentTimeMillis() + 2 * HOUR);
+        assertEquals(0, budgets(cache).get("usersInMemory"));
+
+        // the snapshot deletes the log, so ana and ben only survive through it
+        journal.snapshot();
+        journal.close();
+
+        StateJournal again = new StateJournal(data, 2, 0);
+        BudgetController restored = new BudgetController(again, new UserStateCache(0, HOUR, 0, data.resolve("spill"), again));
+        again.start();
+        assertEquals(100.0, restored.summary("ana").get("income"));
+        assertEquals(7.0, restored.summary("ben").get("income"));
+        again.close();
+    }
+
+    private long spillFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(dir.resolve("spill"))) {
+            return files.filter(f -> f.toString().endsWith(".bin")).count();
+        }
+    }
+
+    @Test
+    void testReloadedUsersLoseTheirSpillFileAfterTheNextSnapshot() throws IOException {
+        Path data = dir.resolve("data");
+        StateJournal journal = new StateJournal(data, 2, 0);
+        UserStateCache cache = new UserStateCache(0, HOUR, 0, dir.resolve("spill"), journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        journal.start();
+        budget.addItem(item("ana", 100));
+        cache.sweep(System.currentTimeMillis() + 2 * HOUR);
+        assertEquals(1, spillFiles());
+
+        assertEquals(100.0, budget.summary("ana").get("income"));
+        assertEquals(0, budgets(cache).get("usersOnDisk"));
+        // a snapshot running right now could still need the file
+        assertEquals(1, spillFiles());
+
+        budget.addItem(item("ana", 5));
+        journal.snapshot();
+        assertEquals(0, spillFiles());
+        journal.close();
+
+        StateJournal again = new StateJournal(data, 2, 0);
+        BudgetController restored = new BudgetController(again, new UserStateCache(0, HOUR, 0, dir.resolve("spill"), again));
+        again.start();
+        assertEquals(105.0, restored.summary("ana").get("income"));
+        again.close();
+    }
+
+    @Test
+    void testWithoutAJournalTheSpillFileGoesOnReload() throws IOException {
+        StateJournal journal = StateJournal.disabled();
+        UserStateCache cache = cache(0, HOUR, journal);
+        BudgetController budget = new BudgetController(journal, cache);
+        journal.start();
+        budget.addItem(item("ana", 100));
+        cache.sweep(System.currentTimeMillis() + 2 * HOUR);
+        assertEquals(1, spillFiles());
+
+        assertEquals(100.0, budget.summary("ana").get("income"));
+        assertEquals(0, spillFiles());
+        assertEquals(0, budgets(cache).get("usersOnDisk"));
+    }
+
+    @Test
+    void testBadImportCreatesNoBudget() throws IOException {
+        UserStateCache cache = cache(0, HOUR, StateJournal.disabled());
+        BudgetController budget = new BudgetController(StateJournal.disabled(), cache);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContentType("text/csv");
+        request.setContent("no,header,here\n".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(400, budget.importItems("ana", request).getStatusCode().value());
+        assertEquals(0, budgets(cache).get("usersInMemory"));
+    }
+}
@@ -484,53 +484,39 @@ async function fetchCategories(userId) {
 }
 
 //------------------------------------------------------------
-// fetchRandomQuestion(categoryId, userId, retries)
+// fetchRandomQuestion(categoryId, userId)
 // ------------------------------------------------------------
-// Gets a new random question from the backend for the selected category.
-// Also avoids repeating questions the user has already mastered:
-  //   • If the user mastered all questions → show a “you’re done” message.
-  //   • If the question returned is mastered and there are more to learn,
-//       retry up to 5 times to get a new one.
+// Gets the next question from the backend for the selected category.
+// The server remembers which questions this user already mastered
+// (/challenge/next), so it only ever sends one they still need to learn:
+  //   • If the user mastered all questions → the server says "exhausted"
+  //     and we show a “you’re done” message.
+  //   • Otherwise we get a new question back in a single request (no retries).
 // Updates the UI by setting currentQuestion and calling renderQuestion().
 
-async function fetchRandomQuestion(categoryId, userId, retries = 0) {
+async function fetchRandomQuestion(categoryId, userId) {
   const questionBox = document.getElementById('challenge-question-box');
   const feedbackBox = document.getElementById('challenge-feedback');
 
   if (feedbackBox) feedbackBox.innerHTML = '';
 
-  const cat = categories.find(c => c.id === categoryId);
-  const total = cat?.questionCount || 3;  // assume 3 if not provided
-  const masteredSet = masteredQuestions[categoryId];
-
-  //If user has already mastered all questions in this category, stop here
-  if (masteredSet && masteredSet.size >= total) {
-    if (questionBox) {
-      questionBox.innerHTML = `<p>🎉 You’ve mastered all ${total} questions in this topic!</p>`;
-    }
-    return;
-  }
-
   if (questionBox) questionBox.textContent = 'Loading question...';
 
   try {
     const res = await fetch(
-      `${API_BASE}/challenge?category=${encodeURIComponent(categoryId)}`
+      `${API_BASE}/challenge/next?userId=${encodeURIComponent(userId)}&category=${encodeURIComponent(categoryId)}`
     );
     if (!res.ok) {
       throw new Error(`HTTP ${res.status}`);
     }
     const q = await res.json();
 
-    // If we got a question we've already mastered AND we still have more to learn,
-    // try again a few times to get a new one.
-    if (
-      masteredSet &&
-      masteredSet.has(q.id) &&
-      masteredSet.size < total &&
-      retries < 5
-    ) {
-      return fetchRandomQuestion(categoryId, userId, retries + 1);
+    //If user has already mastered all questions in this category, stop here
+    if (q.exhausted) {
+      if (questionBox) {
+        questionBox.innerHTML = `<p>🎉 You’ve mastered all ${q.total} questions in this topic!</p>`;
+      }
+      return;
     }
 
     currentQuestion = q;
@@ -547,9 +533,10 @@ async function fetchRandomQuestion(categoryId, userId, retries = 0) {
 // checkAnswer(answerText, userId)
 // ------------------------------------------------------------
 // Sends the user's answer to the backend to be graded.
-//   • POSTs { questionId, answer } to /challenge/check
+//   • POSTs [{ questionId, answer }] to /challenge/check-batch
 //   • Shows a temporary “checking...” message in the UI
 //   • Waits for the backend’s response (correct/incorrect, explanation)
+//     which also carries the updated progress, so no second request
 //   • Updates progress, feedback, and triggers UI re-renders
 //
 // This is the core function that handles answer submission.
@@ -562,20 +549,22 @@ async function checkAnswer(answerText, userId) {
   }
 
   try {
-    const res = await fetch(`${API_BASE}/challenge/check?userId=${userId}`, {
+    const res = await fetch(`${API_BASE}/challenge/check-batch?userId=${userId}`, {
       method: 'POST',
       headers: { 'Content-Type': 'application/json' },
-      body: JSON.stringify({
+      body: JSON.stringify([{
         questionId: currentQuestion.id,
         answer: answerText
-      })
+      }])
     });
 
     if (!res.ok) {
       throw new Error(`HTTP ${res.status}`);
     }
 
-    const data = await res.json();
+    // { results: [ one result per answer ], progress: { ...updated stats } }
+    const batch = await res.json();
+    const data = batch.results[0];
 
     // If correct, mark this question as mastered for this category (in this session)
     if (data.correct) {
@@ -588,9 +577,8 @@ async function checkAnswer(answerText, userId) {
       }
     }
     
-    // Re-fetch server-side progress to stay in sync
-    const resProg = await fetch(`${API_BASE}/progress?userId=${userId}`);
-    progress = await resProg.json();
+    // Server-side progress came back with the grade, already up to date
+    progress = batch.progress || {};
 
     renderFeedback(data, userId);
     
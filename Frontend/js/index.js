@@ -129,6 +129,7 @@ function setupGoalLogic(currentUser) {
                     <div class="progress-bar">
                         <div style="width: ${percent}%; background-color: ${getProgressColor(percent)};"></div>
                     </div>
+                    ${goal.projectedCompletionDate && percent < 100 ? `<small>On track for ${goal.projectedCompletionDate}</small>` : ""}
                     
                     <div class="goal-controls">
                         <input type="number" class="add-input" placeholder="Add Amount" />